@@ -0,0 +1,132 @@
+package com.cloud_idaas.core.cache;
+
+import com.cloud_idaas.core.cache.strategy.NonBlockingPrefetchStrategy;
+import com.cloud_idaas.core.cache.strategy.OneCallerBlocksPrefetchStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark of the CachedResultSupplier read path under contention, for both the blocking and the non-blocking prefetch strategy.
+ * IDaaSMachineCredentialProvider.getCredential() only delegates to CachedResultSupplier.get(), so the cached-hit results apply to it as well.
+ * The value supplier is a stub consuming a fixed amount of CPU instead of calling IDaaS.
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark.args="CachedResultSupplierBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CachedResultSupplierBenchmark {
+
+    // Deadlines far beyond the jitter added by CachedResultSupplier, which is at most 10 minutes
+    private static final Duration FAR = Duration.ofHours(1);
+
+    // CPU cost of a stubbed refresh, roughly a few microseconds
+    private static final long REFRESH_TOKENS = 1000L;
+
+    @Param({"ONE_CALLER_BLOCKS", "NON_BLOCKING"})
+    public String prefetchStrategy;
+
+    // Value fresh until far in the future, every get() is a cache hit
+    private CachedResultSupplier<String> freshSupplier;
+
+    // Value within its prefetch window, every get() hands a refresh to the prefetch strategy
+    private CachedResultSupplier<String> prefetchingSupplier;
+
+    // Value stale right after every refresh, every get() refreshes
+    private CachedResultSupplier<String> staleSupplier;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        freshSupplier = build(() -> RefreshResult.builder(refresh())
+                .staleTime(Instant.now().plus(FAR))
+                .prefetchTime(Instant.now().plus(FAR))
+                .build());
+        prefetchingSupplier = build(() -> RefreshResult.builder(refresh())
+                .staleTime(Instant.now().plus(FAR))
+                .prefetchTime(Instant.now().minus(FAR))
+                .build());
+        staleSupplier = build(() -> RefreshResult.builder(refresh())
+                .staleTime(Instant.now().minus(FAR))
+                .prefetchTime(Instant.now().minus(FAR))
+                .build());
+        // Populate the caches outside of the measurement
+        freshSupplier.get();
+        prefetchingSupplier.get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        freshSupplier.close();
+        prefetchingSupplier.close();
+        staleSupplier.close();
+    }
+
+    private CachedResultSupplier<String> build(Supplier<RefreshResult<String>> valueSupplier) {
+        PrefetchStrategy strategy = "NON_BLOCKING".equals(prefetchStrategy)
+                ? new NonBlockingPrefetchStrategy() : new OneCallerBlocksPrefetchStrategy();
+        return new CachedResultSupplier.Builder<>(valueSupplier)
+                .prefetchStrategy(strategy)
+                .staleValueBehavior(StaleValueBehavior.ALLOW)
+                .build();
+    }
+
+    private static String refresh() {
+        Blackhole.consumeCPU(REFRESH_TOKENS);
+        return "access-token";
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String cachedHit1Thread() {
+        return freshSupplier.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String cachedHit8Threads() {
+        return freshSupplier.get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String cachedHit64Threads() {
+        return freshSupplier.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object cachedHitAsync8Threads() {
+        return freshSupplier.getAsync();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String prefetchCrossover1Thread() {
+        return prefetchingSupplier.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String prefetchCrossover8Threads() {
+        return prefetchingSupplier.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String staleRefresh1Thread() {
+        return staleSupplier.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String staleRefresh8Threads() {
+        return staleSupplier.get();
+    }
+}
@@ -0,0 +1,167 @@
+package com.cloud_idaas.core.mock;
+
+import com.cloud_idaas.core.config.IDaaSClientConfig;
+import com.cloud_idaas.core.config.IdentityAuthenticationConfiguration;
+import com.cloud_idaas.core.factory.IDaaSCredentialProviderFactory;
+import com.cloud_idaas.core.implementation.IDaaSMachineCredentialProvider;
+import com.cloud_idaas.core.util.TokenAuthnMethod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load driver running N machine credential providers across M threads against the MockIDaaSServer.
+ * Reports the number of refreshes per scope, the getCredential() latency percentiles and the maximum number
+ * of concurrent token requests per scope, which stays at 1 as long as refreshes do not stampede.
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark.mainClass=com.cloud_idaas.core.mock.CredentialLoadDriver
+ * -Dbenchmark.args="--providers 16 --threads 64 --duration 60 --latency 50 --error-rate 0.05 --expires-in 120"
+ */
+public class CredentialLoadDriver {
+
+    // Latency histogram: 1 us buckets below 1 ms, 1 ms buckets up to 60 s
+    private static final int MICROSECOND_BUCKETS = 1000;
+
+    private static final int BUCKETS = MICROSECOND_BUCKETS + 60000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int providerCount = Integer.parseInt(options.getOrDefault("providers", "8"));
+        int threadCount = Integer.parseInt(options.getOrDefault("threads", "32"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        boolean asyncCredentialUpdateEnabled = Boolean.parseBoolean(options.getOrDefault("async-update", "false"));
+
+        try (MockIDaaSServer server = MockIDaaSServer.builder()
+                .latencyMillis(Long.parseLong(options.getOrDefault("latency", "20")))
+                .errorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                .expiresIn(Long.parseLong(options.getOrDefault("expires-in", "3600")))
+                .build()) {
+            initFactory(server);
+
+            List<IDaaSMachineCredentialProvider> providers = new ArrayList<>();
+            for (int i = 0; i < providerCount; i++) {
+                providers.add(IDaaSMachineCredentialProvider.builder()
+                        .clientId("mock_client")
+                        .clientSecretSupplier(() -> "mock_secret")
+                        .authnMethod(TokenAuthnMethod.CLIENT_SECRET_POST)
+                        .tokenEndpoint(server.getTokenEndpoint())
+                        .scope("urn:mock:scope:" + i)
+                        .asyncCredentialUpdateEnabled(asyncCredentialUpdateEnabled)
+                        .build());
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+            long[][] histograms = new long[threadCount][];
+            long[] errors = new long[threadCount];
+            long[] maxLatencies = new long[threadCount];
+            CountDownLatch done = new CountDownLatch(threadCount);
+            for (int t = 0; t < threadCount; t++) {
+                final int index = t;
+                Thread thread = new Thread(() -> {
+                    long[] histogram = new long[BUCKETS];
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            IDaaSMachineCredentialProvider provider = providers.get(random.nextInt(providers.size()));
+                            long start = System.nanoTime();
+                            try {
+                                provider.getCredential();
+                            } catch (RuntimeException e) {
+                                errors[index]++;
+                            }
+                            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                            maxLatencies[index] = Math.max(maxLatencies[index], micros);
+                            histogram[bucket(micros)]++;
+                        }
+                    } finally {
+                        histograms[index] = histogram;
+                        done.countDown();
+                    }
+                }, "credential-load-driver-" + t);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            done.await();
+            for (IDaaSMachineCredentialProvider provider : providers) {
+                provider.close();
+            }
+            report(server, histograms, errors, maxLatencies, durationSeconds);
+        }
+    }
+
+    private static void initFactory(MockIDaaSServer server) {
+        IdentityAuthenticationConfiguration authnConfiguration = new IdentityAuthenticationConfiguration();
+        authnConfiguration.setAuthnMethod(TokenAuthnMethod.CLIENT_SECRET_POST);
+        authnConfiguration.setClientSecretEnvVarName("MOCK_CLIENT_SECRET");
+        IDaaSClientConfig clientConfig = new IDaaSClientConfig();
+        clientConfig.setIdaasInstanceId("idaas_mock");
+        clientConfig.setClientId("mock_client");
+        clientConfig.setIssuer(server.getBaseUrl());
+        clientConfig.setTokenEndpoint(server.getTokenEndpoint());
+        clientConfig.setDeviceAuthorizationEndpoint(server.getDeviceAuthorizationEndpoint());
+        clientConfig.setDeveloperApiEndpoint(server.getBaseUrl());
+        clientConfig.setAuthnConfiguration(authnConfiguration);
+        IDaaSCredentialProviderFactory.init(clientConfig);
+    }
+
+    private static void report(MockIDaaSServer server, long[][] histograms, long[] errors, long[] maxLatencies, long durationSeconds) {
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        long totalErrors = 0;
+        long maxLatency = 0;
+        for (int t = 0; t < histograms.length; t++) {
+            for (int b = 0; b < BUCKETS; b++) {
+                merged[b] += histograms[t][b];
+                total += histograms[t][b];
+            }
+            totalErrors += errors[t];
+            maxLatency = Math.max(maxLatency, maxLatencies[t]);
+        }
+        System.out.printf("getCredential() calls: %d (%.0f/s), errors: %d%n", total, (double) total / durationSeconds, totalErrors);
+        System.out.printf("latency p50: %d us, p99: %d us, p99.9: %d us, max: %d us%n",
+                percentile(merged, total, 0.50), percentile(merged, total, 0.99), percentile(merged, total, 0.999), maxLatency);
+        System.out.printf("token requests: %d, injected errors: %d%n", server.getTokenRequests(), server.getInjectedErrors());
+        int maxInFlight = 0;
+        for (Map.Entry<String, MockIDaaSServer.ScopeStatistics> entry : server.getScopeStatistics().entrySet()) {
+            MockIDaaSServer.ScopeStatistics statistics = entry.getValue();
+            maxInFlight = Math.max(maxInFlight, statistics.getMaxInFlight());
+            System.out.printf("  %s: refreshes %d, max concurrent token requests %d%n",
+                    entry.getKey(), statistics.getIssued(), statistics.getMaxInFlight());
+        }
+        System.out.println(maxInFlight > 1 ? "stampede detected: concurrent token requests for the same scope" : "no stampede");
+    }
+
+    private static int bucket(long micros) {
+        if (micros < MICROSECOND_BUCKETS) {
+            return (int) micros;
+        }
+        return (int) Math.min(BUCKETS - 1, MICROSECOND_BUCKETS + micros / 1000);
+    }
+
+    private static long percentile(long[] histogram, long total, double percentile) {
+        long threshold = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int b = 0; b < histogram.length; b++) {
+            seen += histogram[b];
+            if (seen >= threshold && seen > 0) {
+                return b < MICROSECOND_BUCKETS ? b : (long) (b - MICROSECOND_BUCKETS) * 1000;
+            }
+        }
+        return 0;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,342 @@
+package com.cloud_idaas.core.mock;
+
+import com.cloud_idaas.core.domain.constants.HttpConstants;
+import com.cloud_idaas.core.domain.constants.OAuth2Constants;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded stand-in for the IDaaS token and device authorization endpoints and the ECS metadata server,
+ * based on the JDK http server so that no live IDaaS tenant is needed to drive OAuth2TokenUtil end to end.
+ * Latency, error rate, token lifetime and the number of authorization_pending/slow_down responses are configurable.
+ */
+public class MockIDaaSServer implements AutoCloseable {
+
+    public static final String TOKEN_PATH = "/v2/oauth2/token";
+
+    public static final String DEVICE_AUTHORIZATION_PATH = "/v2/oauth2/device/code";
+
+    public static final String ECS_METADATA_TOKEN_PATH = "/latest/api/token";
+
+    public static final String ECS_PKCS7_PATH = "/latest/dynamic/instance-identity/pkcs7";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final long latencyMillis;
+
+    private final double errorRate;
+
+    private final long expiresIn;
+
+    private final int pendingResponses;
+
+    private final int slowDownResponses;
+
+    private final AtomicLong tokenRequests = new AtomicLong();
+
+    private final AtomicLong deviceAuthorizationRequests = new AtomicLong();
+
+    private final AtomicLong ecsMetadataRequests = new AtomicLong();
+
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private final ConcurrentMap<String, ScopeStatistics> scopeStatistics = new ConcurrentHashMap<>();
+
+    // Number of polls of each device code so far
+    private final ConcurrentMap<String, AtomicInteger> deviceCodePolls = new ConcurrentHashMap<>();
+
+    private MockIDaaSServer(Builder builder) throws IOException {
+        this.latencyMillis = builder.latencyMillis;
+        this.errorRate = builder.errorRate;
+        this.expiresIn = builder.expiresIn;
+        this.pendingResponses = builder.pendingResponses;
+        this.slowDownResponses = builder.slowDownResponses;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mock-idaas-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext(TOKEN_PATH, this::handleToken);
+        server.createContext(DEVICE_AUTHORIZATION_PATH, this::handleDeviceAuthorization);
+        server.createContext(ECS_METADATA_TOKEN_PATH, this::handleEcsMetadataToken);
+        server.createContext(ECS_PKCS7_PATH, this::handleEcsPkcs7);
+        server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String getTokenEndpoint() {
+        return getBaseUrl() + TOKEN_PATH;
+    }
+
+    public String getDeviceAuthorizationEndpoint() {
+        return getBaseUrl() + DEVICE_AUTHORIZATION_PATH;
+    }
+
+    public String getEcsMetadataTokenUrl() {
+        return getBaseUrl() + ECS_METADATA_TOKEN_PATH;
+    }
+
+    public String getEcsPkcs7UrlTemplate() {
+        return getBaseUrl() + ECS_PKCS7_PATH + "?audience=%s";
+    }
+
+    public long getTokenRequests() {
+        return tokenRequests.get();
+    }
+
+    public long getDeviceAuthorizationRequests() {
+        return deviceAuthorizationRequests.get();
+    }
+
+    public long getEcsMetadataRequests() {
+        return ecsMetadataRequests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public Map<String, ScopeStatistics> getScopeStatistics() {
+        return scopeStatistics;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        tokenRequests.incrementAndGet();
+        Map<String, String> form = readForm(exchange);
+        String scope = form.containsKey(OAuth2Constants.SCOPE) ? form.get(OAuth2Constants.SCOPE) : "";
+        ScopeStatistics statistics = scopeStatistics.computeIfAbsent(scope, key -> new ScopeStatistics());
+        statistics.enter();
+        try {
+            simulateLatency();
+            if (shouldInjectError()) {
+                respondError(exchange, 503, "server_error", "Injected error");
+                return;
+            }
+            String grantType = form.get(OAuth2Constants.GRANT_TYPE);
+            if (OAuth2Constants.DEVICE_CODE_GRANT_TYPE_VALUE.equals(grantType)) {
+                int poll = deviceCodePolls.computeIfAbsent(String.valueOf(form.get(OAuth2Constants.DEVICE_CODE)), key -> new AtomicInteger())
+                        .incrementAndGet();
+                if (poll <= pendingResponses) {
+                    respondError(exchange, 400, "authorization_pending", "The authorization request is still pending");
+                    return;
+                }
+                if (poll <= pendingResponses + slowDownResponses) {
+                    respondError(exchange, 400, "slow_down", "Polling too frequently");
+                    return;
+                }
+            }
+            statistics.issued.incrementAndGet();
+            long now = System.currentTimeMillis() / 1000L;
+            respond(exchange, 200, "{\"access_token\":\"" + UUID.randomUUID() + "\",\"token_type\":\"Bearer\""
+                    + ",\"id_token\":\"" + UUID.randomUUID() + "\",\"refresh_token\":\"" + UUID.randomUUID() + "\""
+                    + ",\"expires_in\":" + expiresIn + ",\"expires_at\":" + (now + expiresIn) + "}");
+        } finally {
+            statistics.exit();
+        }
+    }
+
+    private void handleDeviceAuthorization(HttpExchange exchange) throws IOException {
+        deviceAuthorizationRequests.incrementAndGet();
+        readForm(exchange);
+        simulateLatency();
+        if (shouldInjectError()) {
+            respondError(exchange, 503, "server_error", "Injected error");
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000L;
+        respond(exchange, 200, "{\"device_code\":\"" + UUID.randomUUID() + "\",\"user_code\":\"MOCK-CODE\""
+                + ",\"verification_uri\":\"" + getBaseUrl() + "/device\",\"verification_uri_complete\":\"" + getBaseUrl() + "/device?user_code=MOCK-CODE\""
+                + ",\"expires_in\":600,\"expires_at\":" + (now + 600) + ",\"interval\":1}");
+    }
+
+    private void handleEcsMetadataToken(HttpExchange exchange) throws IOException {
+        ecsMetadataRequests.incrementAndGet();
+        simulateLatency();
+        respond(exchange, 200, UUID.randomUUID().toString());
+    }
+
+    private void handleEcsPkcs7(HttpExchange exchange) throws IOException {
+        ecsMetadataRequests.incrementAndGet();
+        simulateLatency();
+        if (exchange.getRequestHeaders().getFirst(HttpConstants.X_ALIYUN_ECS_METADATA_TOKEN) == null) {
+            respond(exchange, 401, "");
+            return;
+        }
+        respond(exchange, 200, "MIIMOCKPKCS7" + UUID.randomUUID());
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean shouldInjectError() {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private static Map<String, String> readForm(HttpExchange exchange) throws IOException {
+        Map<String, String> form = new HashMap<>();
+        String body = readBody(exchange.getRequestBody());
+        if (body.isEmpty()) {
+            return form;
+        }
+        for (String pair : body.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                form.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+            }
+        }
+        return form;
+    }
+
+    private static String readBody(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static void respondError(HttpExchange exchange, int status, String error, String description) throws IOException {
+        respond(exchange, status, "{\"error\":\"" + error + "\",\"error_description\":\"" + description + "\""
+                + ",\"request_id\":\"" + UUID.randomUUID() + "\"}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(HttpConstants.CONTENT_TYPE_HEADER, "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Token requests of a single scope, the maximum number of concurrent requests shows whether refreshes stampede
+     */
+    public static final class ScopeStatistics {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private final AtomicLong issued = new AtomicLong();
+
+        private void enter() {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+        }
+
+        private void exit() {
+            inFlight.decrementAndGet();
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight.get();
+        }
+
+        public long getIssued() {
+            return issued.get();
+        }
+    }
+
+    public static final class Builder {
+        private long latencyMillis = 20L;
+        private double errorRate = 0D;
+        private long expiresIn = 3600L;
+        private int pendingResponses = 0;
+        private int slowDownResponses = 0;
+
+        public Builder latencyMillis(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+            return this;
+        }
+
+        public Builder errorRate(double errorRate) {
+            if (errorRate < 0 || errorRate > 1) {
+                throw new IllegalArgumentException("errorRate must be between 0 and 1");
+            }
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Builder expiresIn(long expiresIn) {
+            this.expiresIn = expiresIn;
+            return this;
+        }
+
+        /**
+         * @param pendingResponses Number of authorization_pending responses to every device code before the token is issued
+         * @return Builder instance
+         */
+        public Builder pendingResponses(int pendingResponses) {
+            this.pendingResponses = pendingResponses;
+            return this;
+        }
+
+        /**
+         * @param slowDownResponses Number of slow_down responses to every device code after the pending responses
+         * @return Builder instance
+         */
+        public Builder slowDownResponses(int slowDownResponses) {
+            this.slowDownResponses = slowDownResponses;
+            return this;
+        }
+
+        public MockIDaaSServer build() throws IOException {
+            return new MockIDaaSServer(this);
+        }
+    }
+}
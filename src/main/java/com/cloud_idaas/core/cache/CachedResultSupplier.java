@@ -1,17 +1,27 @@
 package com.cloud_idaas.core.cache;
 
 import com.cloud_idaas.core.cache.strategy.OneCallerBlocksPrefetchStrategy;
+import com.cloud_idaas.core.domain.constants.MetricsConstants;
 import com.cloud_idaas.core.exception.CacheException;
 import com.cloud_idaas.core.exception.ConcurrentOperationException;
+import com.cloud_idaas.core.jfr.EventRecorder;
+import com.cloud_idaas.core.jfr.EventRecorderUtil;
+import com.cloud_idaas.core.metrics.Counter;
+import com.cloud_idaas.core.metrics.MetricsRegistry;
+import com.cloud_idaas.core.metrics.MetricsUtil;
+import com.cloud_idaas.core.metrics.Timer;
+import com.cloud_idaas.core.util.AsyncExecutorUtil;
+import com.cloud_idaas.core.util.SchedulerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Clock;
 import java.time.Duration;
+import java.lang.ref.WeakReference;
 import java.time.Instant;
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 /**
@@ -20,7 +30,7 @@ import java.util.function.Supplier;
  *
  * @param <T> The type of the cached value
  */
-public class CachedResultSupplier<T> implements Supplier<T> {
+public class CachedResultSupplier<T> implements Supplier<T>, AutoCloseable {
 
     // Default maximum blocking refresh wait time
     private static final Duration BLOCKING_REFRESH_MAX_WAIT = Duration.ofSeconds(5);
@@ -32,34 +42,106 @@ public class CachedResultSupplier<T> implements Supplier<T> {
 
     private static final Duration JITTER_RANGE = Duration.ofMinutes(5);
 
-    // Current cached value
-    private volatile RefreshResult<T> cachedValue;
+    // Default backoff after the first failed refresh, doubled for every consecutive failure
+    private static final Duration DEFAULT_FAILURE_BACKOFF = Duration.ofSeconds(1);
+
+    // Default upper bound of the backoff after consecutive failed refreshes
+    private static final Duration DEFAULT_MAX_FAILURE_BACKOFF = Duration.ofSeconds(60);
+
+    // Current cached value, held as a compact snapshot with precomputed deadlines
+    private volatile CachedValue<T> cachedValue;
+
+    // Failure state of the last refreshes, null while the last refresh succeeded
+    private volatile RefreshFailure refreshFailure;
 
     // Value supplier, used to retrieve new values
     private final Supplier<RefreshResult<T>> valueSupplier;
 
+    // Asynchronous value supplier used by asynchronous refreshes, null if only the blocking value supplier is available
+    private final Supplier<CompletableFuture<RefreshResult<T>>> asyncValueSupplier;
+
     // Prefetch strategy
     private final PrefetchStrategy prefetchStrategy;
 
     // Clock source, pluggable for easier testing
     private final Clock clock;
 
-    // Refresh lock, used to prevent frequent refreshing
-    private final ReentrantLock refreshLock = new ReentrantLock();
-
     // Stale value behavior strategy
     private final StaleValueBehavior staleValueBehavior;
 
+    // Executor running asynchronous refreshes, so that asynchronous callers are never blocked
+    private final Executor asyncRefreshExecutor;
+
+    // Maximum time a caller waits for the in-flight refresh owned by another caller
+    private final Duration refreshWaitTimeout;
+
+    // Backoff after the first failed refresh and its upper bound, in millis
+    private final long failureBackoffMillis;
+
+    private final long maxFailureBackoffMillis;
+
+    // The single in-flight refresh, owned by the caller that started it and shared with all other waiting callers
+    private final AtomicReference<CompletableFuture<CachedValue<T>>> pendingRefresh = new AtomicReference<>();
+
+    // Whether the cache is refreshed at its prefetch time by the shared scheduler, whether or not anyone is calling
+    private final boolean proactiveRefreshEnabled;
+
+    // The next scheduled proactive refresh
+    private final AtomicReference<ScheduledFuture<?>> scheduledProactiveRefresh = new AtomicReference<>();
+
+    private volatile boolean closed;
+
+    // Refresh task handed to the prefetch strategy, created once to keep the read path allocation-free
+    private final Runnable refreshTask = this::refreshCache;
+
+    // Name of the cache, tagging its metrics and flight recorder events
+    private final String name;
+
+    // Meters resolved once, so that the read path only increments striped counters
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter prefetches;
+
+    private final Counter staleServed;
+
+    private final Timer refreshSuccesses;
+
+    private final Timer refreshFailures;
+
+    private final Timer refreshWait;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(CachedResultSupplier.class);
 
+    private static final EventRecorder EVENT_RECORDER = EventRecorderUtil.getRecorder();
+
     /**
      * Private constructor, can only create instance via Builder
      */
     private CachedResultSupplier(Builder<T> builder) {
         this.valueSupplier = builder.valueSupplier;
+        this.asyncValueSupplier = builder.asyncValueSupplier;
         this.prefetchStrategy = builder.prefetchStrategy;
         this.clock = builder.clock;
         this.staleValueBehavior = builder.staleValueBehavior;
+        this.asyncRefreshExecutor = builder.asyncRefreshExecutor;
+        this.refreshWaitTimeout = builder.refreshWaitTimeout;
+        this.failureBackoffMillis = builder.failureBackoff.toMillis();
+        this.maxFailureBackoffMillis = builder.maxFailureBackoff.toMillis();
+        this.proactiveRefreshEnabled = builder.proactiveRefreshEnabled;
+        MetricsRegistry metricsRegistry = MetricsUtil.getRegistry();
+        String cacheName = builder.metricsName;
+        this.name = cacheName;
+        this.hits = metricsRegistry.counter(MetricsConstants.CACHE_HITS, MetricsConstants.TAG_CACHE, cacheName);
+        this.misses = metricsRegistry.counter(MetricsConstants.CACHE_MISSES, MetricsConstants.TAG_CACHE, cacheName);
+        this.prefetches = metricsRegistry.counter(MetricsConstants.CACHE_PREFETCHES, MetricsConstants.TAG_CACHE, cacheName);
+        this.staleServed = metricsRegistry.counter(MetricsConstants.CACHE_STALE_SERVED, MetricsConstants.TAG_CACHE, cacheName);
+        this.refreshSuccesses = metricsRegistry.timer(MetricsConstants.CACHE_REFRESH,
+                MetricsConstants.TAG_CACHE, cacheName, MetricsConstants.TAG_OUTCOME, MetricsConstants.OUTCOME_SUCCESS);
+        this.refreshFailures = metricsRegistry.timer(MetricsConstants.CACHE_REFRESH,
+                MetricsConstants.TAG_CACHE, cacheName, MetricsConstants.TAG_OUTCOME, MetricsConstants.OUTCOME_FAILURE);
+        this.refreshWait = metricsRegistry.timer(MetricsConstants.CACHE_REFRESH_WAIT, MetricsConstants.TAG_CACHE, cacheName);
     }
 
     /**
@@ -69,84 +151,306 @@ public class CachedResultSupplier<T> implements Supplier<T> {
      */
     @Override
     public T get() {
-        RefreshResult<T> localCachedValue = cachedValue;
+        CachedValue<T> localCachedValue = cachedValue;
+        long now = clock.millis();
 
         // Check if cache has expired
-        if (cacheIsStale(localCachedValue)) {
-            refreshCache();
-            localCachedValue = cachedValue;
-        }
-        // Confirm
-        if (localCachedValue == null) {
-            throw new ConcurrentOperationException();
+        if (localCachedValue == null || localCachedValue.isStale(now)) {
+            misses.increment();
+            localCachedValue = refreshAndWait();
+            // Confirm
+            if (localCachedValue == null) {
+                throw new ConcurrentOperationException();
+            }
+        } else {
+            hits.increment();
         }
 
         // Check if prefetching is needed
-        if (shouldInitiateCachePrefetch(localCachedValue)) {
-            prefetchStrategy.prefetch(this::refreshCache);
+        if (localCachedValue.shouldPrefetch(now)) {
+            prefetches.increment();
+            prefetchStrategy.prefetch(refreshTask);
         }
 
-        return localCachedValue.getValue();
+        return localCachedValue.value;
     }
 
     /**
-     * Check if cache has expired
+     * Get cached value without blocking the calling thread.
+     * When the cached value is fresh, an already completed future is returned without waiting,
+     * each caller gets its own future.
+     * When the cached value is stale, the returned future completes once the single in-flight refresh,
+     * shared by all concurrent callers, has finished.
      *
-     * @param refreshResult The cache result
-     * @return True if expired, otherwise false
+     * @return Future of the cached value
      */
-    private boolean cacheIsStale(RefreshResult<T> refreshResult) {
-        if (refreshResult == null) {
-            return true;
+    public CompletableFuture<T> getAsync() {
+        CachedValue<T> localCachedValue = cachedValue;
+        long now = clock.millis();
+
+        // Check if cache has expired
+        if (localCachedValue == null || localCachedValue.isStale(now)) {
+            misses.increment();
+            RefreshFailure localRefreshFailure = refreshFailure;
+            if (localRefreshFailure != null && localRefreshFailure.isOpen(now)) {
+                CompletableFuture<T> result = new CompletableFuture<>();
+                try {
+                    localCachedValue = handleOpenCircuit(localRefreshFailure);
+                    if (localCachedValue == null) {
+                        throw new ConcurrentOperationException();
+                    }
+                    result.complete(localCachedValue.value);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+                return result;
+            }
+            return refreshAsync().handle(this::resolveRefreshedValue);
+        }
+        hits.increment();
+
+        // Prefetch in the background, the calling thread must never run the refresh
+        if (localCachedValue.shouldPrefetch(now)) {
+            prefetches.increment();
+            refreshAsync();
         }
-        return clock.instant().isAfter(refreshResult.getStaleTime());
+
+        return CompletableFuture.completedFuture(localCachedValue.value);
     }
 
     /**
-     * Check if cache prefetching should be initiated
+     * Join the in-flight refresh, or claim the ownership of the given new refresh if none is in flight
      *
-     * @param refreshResult The cache result
-     * @return True if prefetching should be initiated, otherwise false
+     * @param refresh The new refresh to be claimed
+     * @return The given refresh if the caller owns it now, otherwise the refresh already in flight
      */
-    private boolean shouldInitiateCachePrefetch(RefreshResult<T> refreshResult) {
-        if (refreshResult == null) {
-            return false;
+    private CompletableFuture<CachedValue<T>> joinOrClaimRefresh(CompletableFuture<CachedValue<T>> refresh) {
+        while (true) {
+            CompletableFuture<CachedValue<T>> inFlightRefresh = pendingRefresh.get();
+            if (inFlightRefresh != null) {
+                return inFlightRefresh;
+            }
+            if (pendingRefresh.compareAndSet(null, refresh)) {
+                return refresh;
+            }
         }
-        Instant prefetchTime = refreshResult.getPrefetchTime();
-        return prefetchTime != null && clock.instant().isAfter(prefetchTime);
     }
 
     /**
-     * Refresh cache
+     * Refresh cache and wait for the result. The first caller owns the refresh and runs it on its own thread,
+     * the other callers park on the same pending result for at most the refresh wait timeout.
+     * While the circuit is open after failed refreshes, no refresh is started at all.
+     *
+     * @return The refreshed value, or the current value if the refresh failed or timed out
      */
-    private void refreshCache() {
-        boolean lockAcquired = false;
+    private CachedValue<T> refreshAndWait() {
+        // Circuit open: fail fast or serve the current value without calling out
+        RefreshFailure localRefreshFailure = refreshFailure;
+        if (localRefreshFailure != null && localRefreshFailure.isOpen(clock.millis())) {
+            return handleOpenCircuit(localRefreshFailure);
+        }
+
+        CompletableFuture<CachedValue<T>> refresh = new CompletableFuture<>();
+        CompletableFuture<CachedValue<T>> inFlightRefresh = joinOrClaimRefresh(refresh);
+        long waitStart = 0L;
+        Object waitEvent = null;
+        if (inFlightRefresh == refresh) {
+            runRefresh(refresh);
+        } else {
+            waitStart = System.nanoTime();
+            waitEvent = EVENT_RECORDER.beginRefreshWait();
+        }
+
         try {
-            // Try to acquire the lock, waiting up to specified time
-            lockAcquired = refreshLock.tryLock(BLOCKING_REFRESH_MAX_WAIT.toMillis(), TimeUnit.MILLISECONDS);
-            if (!lockAcquired) {
-                // Failed to acquire lock due to timeout, just return current value
-                LOGGER.error("Failed to acquire refresh lock");
-                return;
+            return inFlightRefresh.get(refreshWaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The refresh is still running, just return current value
+            LOGGER.warn("Timed out after {} ms waiting for the in-flight refresh", refreshWaitTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handleFetchFailure(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            handleFetchFailure(cause);
+        } finally {
+            // Time the callers parked on the refresh owned by another caller
+            if (waitStart != 0L) {
+                refreshWait.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+                EVENT_RECORDER.commitRefreshWait(waitEvent, name);
             }
+        }
+        CachedValue<T> localCachedValue = cachedValue;
+        if (localCachedValue != null) {
+            staleServed.increment();
+            EVENT_RECORDER.staleServed(name);
+        }
+        return localCachedValue;
+    }
 
-            // Double-check if refresh is still needed
-            if (!cacheIsStale(cachedValue)) {
-                return;
+    /**
+     * Start an asynchronous refresh on the asynchronous refresh executor, or join the one already in flight.
+     * While the circuit is open after failed refreshes, the returned future is completed with the last failure.
+     * With an asynchronous value supplier the executor thread only starts the refresh and is released at once.
+     *
+     * @return Future of the refreshed value
+     */
+    private CompletableFuture<CachedValue<T>> refreshAsync() {
+        CompletableFuture<CachedValue<T>> inFlightRefresh = pendingRefresh.get();
+        if (inFlightRefresh != null) {
+            return inFlightRefresh;
+        }
+
+        // Circuit open: complete with the last failure without calling out
+        RefreshFailure localRefreshFailure = refreshFailure;
+        if (localRefreshFailure != null && localRefreshFailure.isOpen(clock.millis())) {
+            CompletableFuture<CachedValue<T>> failedRefresh = new CompletableFuture<>();
+            failedRefresh.completeExceptionally(localRefreshFailure.lastFailure);
+            return failedRefresh;
+        }
+
+        CompletableFuture<CachedValue<T>> refresh = new CompletableFuture<>();
+        inFlightRefresh = joinOrClaimRefresh(refresh);
+        if (inFlightRefresh == refresh) {
+            try {
+                if (asyncValueSupplier != null) {
+                    asyncRefreshExecutor.execute(() -> runAsyncRefresh(refresh));
+                } else {
+                    asyncRefreshExecutor.execute(() -> runRefresh(refresh));
+                }
+            } catch (RejectedExecutionException e) {
+                pendingRefresh.compareAndSet(refresh, null);
+                refresh.completeExceptionally(e);
             }
+        }
+        return inFlightRefresh;
+    }
 
-            // Execute the actual refresh logic
-            RefreshResult<T> refreshedValue = valueSupplier.get();
-            
-            // Apply jitter
-            handleFetchedSuccess(refreshedValue);
-        } catch (Exception e) {
-            // Handle refresh failure
-            handleFetchFailure(e);
-        } finally {
-            if (lockAcquired) {
-                refreshLock.unlock();
+    /**
+     * Resolve the result of an asynchronous refresh for the asynchronous callers
+     *
+     * @param refreshedValue The refreshed value
+     * @param failure        The refresh failure, null if the refresh succeeded
+     * @return The refreshed value, or the current value if the refresh failed
+     */
+    private T resolveRefreshedValue(CachedValue<T> refreshedValue, Throwable failure) {
+        if (failure != null) {
+            handleFetchFailure(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+            refreshedValue = cachedValue;
+            if (refreshedValue != null) {
+                staleServed.increment();
+                EVENT_RECORDER.staleServed(name);
+            }
+        }
+        if (refreshedValue == null) {
+            throw new ConcurrentOperationException();
+        }
+        return refreshedValue.value;
+    }
+
+    /**
+     * Refresh cache, executed by the prefetch strategy. Returns immediately if a refresh is already in flight
+     * or the circuit is open.
+     */
+    private void refreshCache() {
+        if (pendingRefresh.get() != null) {
+            return;
+        }
+        RefreshFailure localRefreshFailure = refreshFailure;
+        if (localRefreshFailure != null && localRefreshFailure.isOpen(clock.millis())) {
+            return;
+        }
+        CompletableFuture<CachedValue<T>> refresh = new CompletableFuture<>();
+        if (joinOrClaimRefresh(refresh) != refresh) {
+            return;
+        }
+
+        runRefresh(refresh);
+        if (refresh.isCompletedExceptionally()) {
+            // The current value has not become stale yet, keep serving it
+            LOGGER.warn("Failed to prefetch cache, using the current value");
+        }
+    }
+
+    /**
+     * Execute the refresh owned by the caller and publish its result to all waiting callers
+     *
+     * @param refresh The refresh owned by the caller
+     */
+    private void runRefresh(CompletableFuture<CachedValue<T>> refresh) {
+        try {
+            // Double-check if refresh is still needed, a concurrent caller may have refreshed the cache already
+            CachedValue<T> localCachedValue = cachedValue;
+            if (localCachedValue == null || localCachedValue.needsRefresh(clock.millis())) {
+                // Execute the actual refresh logic
+                long refreshStart = System.nanoTime();
+                Object refreshEvent = EVENT_RECORDER.beginRefresh();
+                RefreshResult<T> refreshedValue;
+                try {
+                    refreshedValue = valueSupplier.get();
+                } catch (Throwable t) {
+                    refreshFailures.record(System.nanoTime() - refreshStart, TimeUnit.NANOSECONDS);
+                    EVENT_RECORDER.commitRefresh(refreshEvent, name, false);
+                    throw t;
+                }
+                refreshSuccesses.record(System.nanoTime() - refreshStart, TimeUnit.NANOSECONDS);
+                EVENT_RECORDER.commitRefresh(refreshEvent, name, true);
+
+                // Apply jitter
+                localCachedValue = handleFetchedSuccess(refreshedValue);
+            }
+            pendingRefresh.compareAndSet(refresh, null);
+            refresh.complete(localCachedValue);
+        } catch (Throwable t) {
+            recordFailure(t);
+            pendingRefresh.compareAndSet(refresh, null);
+            refresh.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Start the refresh owned by the caller via the asynchronous value supplier, its result is published
+     * to all waiting callers on the thread completing the supplied future
+     *
+     * @param refresh The refresh owned by the caller
+     */
+    private void runAsyncRefresh(CompletableFuture<CachedValue<T>> refresh) {
+        try {
+            // Double-check if refresh is still needed, a concurrent caller may have refreshed the cache already
+            CachedValue<T> localCachedValue = cachedValue;
+            if (localCachedValue != null && !localCachedValue.needsRefresh(clock.millis())) {
+                pendingRefresh.compareAndSet(refresh, null);
+                refresh.complete(localCachedValue);
+                return;
             }
+            long refreshStart = System.nanoTime();
+            Object refreshEvent = EVENT_RECORDER.beginRefresh();
+            asyncValueSupplier.get().whenComplete((refreshedValue, failure) -> {
+                (failure == null ? refreshSuccesses : refreshFailures).record(System.nanoTime() - refreshStart, TimeUnit.NANOSECONDS);
+                EVENT_RECORDER.commitRefresh(refreshEvent, name, failure == null);
+                if (failure != null) {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                    recordFailure(cause);
+                    pendingRefresh.compareAndSet(refresh, null);
+                    refresh.completeExceptionally(cause);
+                    return;
+                }
+                try {
+                    CachedValue<T> refreshedCachedValue = handleFetchedSuccess(refreshedValue);
+                    pendingRefresh.compareAndSet(refresh, null);
+                    refresh.complete(refreshedCachedValue);
+                } catch (Throwable t) {
+                    recordFailure(t);
+                    pendingRefresh.compareAndSet(refresh, null);
+                    refresh.completeExceptionally(t);
+                }
+            });
+        } catch (Throwable t) {
+            recordFailure(t);
+            pendingRefresh.compareAndSet(refresh, null);
+            refresh.completeExceptionally(t);
         }
     }
 
@@ -154,22 +458,115 @@ public class CachedResultSupplier<T> implements Supplier<T> {
      * Handle the newly fetched value
      *
      * @param refreshedValue The newly fetched value
+     * @return The updated cached value
      */
-    private void handleFetchedSuccess(RefreshResult<T> refreshedValue) {
-        // Apply jitter to staleTime and prefetchTime
-        Instant staleTime = refreshedValue.getStaleTime();
-        Instant prefetchTime = refreshedValue.getPrefetchTime();
+    private CachedValue<T> handleFetchedSuccess(RefreshResult<T> refreshedValue) {
+        // Apply jitter to staleTime and prefetchTime unless disabled by the result, and precompute them as epoch millis
+        boolean jitterEnabled = refreshedValue.isJitterEnabled();
+        long staleTimeMillis = jitterEnabled ? jitterTime(refreshedValue.getStaleTime()) : toEpochMillis(refreshedValue.getStaleTime());
+        long prefetchTimeMillis = jitterEnabled ? jitterTime(refreshedValue.getPrefetchTime()) : toEpochMillis(refreshedValue.getPrefetchTime());
+
+        // Update cached value
+        CachedValue<T> refreshedCachedValue = new CachedValue<>(refreshedValue.getValue(), staleTimeMillis, prefetchTimeMillis);
+        cachedValue = refreshedCachedValue;
+        // Close the circuit
+        refreshFailure = null;
+
+        scheduleProactiveRefresh(Math.min(staleTimeMillis, prefetchTimeMillis));
+        return refreshedCachedValue;
+    }
 
-        if (staleTime != null) {
-            staleTime = jitterTime(staleTime);
+    /**
+     * Record a failed refresh and open the circuit until the next retry time, the backoff grows exponentially
+     * with the number of consecutive failures. Only the owner of the single in-flight refresh records failures.
+     *
+     * @param failure Failure of the refresh
+     */
+    private void recordFailure(Throwable failure) {
+        RefreshFailure previous = refreshFailure;
+        int failureCount = previous == null ? 1 : previous.failureCount + 1;
+        long backoffMillis = maxFailureBackoffMillis;
+        if (failureCount <= 31) {
+            backoffMillis = Math.min(maxFailureBackoffMillis, failureBackoffMillis << (failureCount - 1));
+        }
+        // Spread the retries of many instances between half and full backoff
+        if (backoffMillis > 1) {
+            backoffMillis = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
         }
+        refreshFailure = new RefreshFailure(failure, failureCount, clock.millis() + backoffMillis);
+    }
 
-        if (prefetchTime != null) {
-            prefetchTime = jitterTime(prefetchTime);
+    /**
+     * Schedule the next proactive refresh on the shared scheduler, replacing the previously scheduled one
+     *
+     * @param refreshTimeMillis Time of the proactive refresh in epoch millis
+     */
+    private void scheduleProactiveRefresh(long refreshTimeMillis) {
+        if (!proactiveRefreshEnabled || closed || refreshTimeMillis == Long.MAX_VALUE) {
+            return;
         }
 
-        // Update cached value
-        cachedValue = new RefreshResult<>(refreshedValue.getValue(), staleTime, prefetchTime);
+        // Scheduled strictly after the refresh time, so that the refresh is needed when it runs
+        long delayMillis = Math.max(0L, refreshTimeMillis - clock.millis()) + 1;
+        ScheduledFuture<?> scheduled = SchedulerUtil.schedule(new ProactiveRefreshTask(this), delayMillis, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduledProactiveRefresh.getAndSet(scheduled);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (closed) {
+            scheduled.cancel(false);
+        }
+    }
+
+    /**
+     * Proactive refresh, executed by the shared scheduler. The refresh itself runs on the asynchronous
+     * refresh executor, a failed refresh is retried once the circuit allows it while the cached value is still served.
+     */
+    private void proactiveRefresh() {
+        if (closed) {
+            return;
+        }
+        refreshAsync().whenComplete((refreshedValue, failure) -> {
+            if (failure != null) {
+                RefreshFailure localRefreshFailure = refreshFailure;
+                long retryTimeMillis = localRefreshFailure == null
+                        ? clock.millis() + maxFailureBackoffMillis : localRefreshFailure.nextRetryNotBeforeMillis;
+                LOGGER.warn("Failed to refresh cache proactively, retry in {} ms", Math.max(0L, retryTimeMillis - clock.millis()));
+                scheduleProactiveRefresh(retryTimeMillis);
+            }
+        });
+    }
+
+    /**
+     * Stop the proactive refresh and close the prefetch strategy
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledFuture<?> scheduled = scheduledProactiveRefresh.getAndSet(null);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        prefetchStrategy.close();
+    }
+
+    /**
+     * Handle a caller needing a refresh while the circuit is open, without logging per caller
+     *
+     * @param localRefreshFailure Failure state of the last refreshes
+     * @return The current value
+     */
+    private CachedValue<T> handleOpenCircuit(RefreshFailure localRefreshFailure) {
+        if (staleValueBehavior == StaleValueBehavior.STRICT) {
+            throw new CacheException(localRefreshFailure.lastFailure);
+        }
+        LOGGER.debug("Refresh is suspended after {} failures, using the old value", localRefreshFailure.failureCount);
+        CachedValue<T> localCachedValue = cachedValue;
+        if (localCachedValue != null) {
+            staleServed.increment();
+            EVENT_RECORDER.staleServed(name);
+        }
+        return localCachedValue;
     }
 
     /**
@@ -177,7 +574,7 @@ public class CachedResultSupplier<T> implements Supplier<T> {
      *
      * @param exception Exception
      */
-    private void handleFetchFailure(Exception exception) {
+    private void handleFetchFailure(Throwable exception) {
         switch (staleValueBehavior) {
             case STRICT:
                 throw new CacheException(exception);
@@ -189,20 +586,113 @@ public class CachedResultSupplier<T> implements Supplier<T> {
         }
     }
 
+    /**
+     * @param time Time, may be null
+     * @return Time in epoch millis, or {@link Long#MAX_VALUE} if the time is not set
+     */
+    private static long toEpochMillis(Instant time) {
+        return time == null ? Long.MAX_VALUE : time.toEpochMilli();
+    }
+
     /**
      * Apply jitter to specified time
      *
      * @param time       Original time
-     * @return Time with added jitter
+     * @return Time with added jitter in epoch millis, or {@link Long#MAX_VALUE} if the time is not set
      */
-    private Instant jitterTime(Instant time) {
+    private long jitterTime(Instant time) {
+        if (time == null) {
+            return Long.MAX_VALUE;
+        }
         long jitterMills = JITTER_RANGE.toMillis();
         if (jitterMills <= 0) {
-            return time;
+            return time.toEpochMilli();
         }
 
         long jitterAmount = Math.abs(JITTER.nextLong() % jitterMills);
-        return time.plus(JITTER_START).plusMillis(jitterAmount);
+        return time.toEpochMilli() + JITTER_START.toMillis() + jitterAmount;
+    }
+
+    /**
+     * Proactive refresh task, only weakly referencing the supplier so that an abandoned supplier
+     * can still be garbage collected while its refresh is scheduled
+     */
+    private static final class ProactiveRefreshTask implements Runnable {
+
+        private final WeakReference<CachedResultSupplier<?>> supplierReference;
+
+        private ProactiveRefreshTask(CachedResultSupplier<?> supplier) {
+            this.supplierReference = new WeakReference<>(supplier);
+        }
+
+        @Override
+        public void run() {
+            CachedResultSupplier<?> supplier = supplierReference.get();
+            if (supplier == null) {
+                return;
+            }
+            try {
+                supplier.proactiveRefresh();
+            } catch (Exception e) {
+                LOGGER.error("Failed to start proactive refresh: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Compact snapshot of the cached value, holding the deadlines as primitive epoch millis
+     * so the read path needs neither {@link Instant} allocations nor more than one clock read.
+     *
+     * @param <T> The type of the cached value
+     */
+    private static final class CachedValue<T> {
+
+        private final T value;
+
+        private final long staleTimeMillis;
+
+        private final long prefetchTimeMillis;
+
+        private CachedValue(T value, long staleTimeMillis, long prefetchTimeMillis) {
+            this.value = value;
+            this.staleTimeMillis = staleTimeMillis;
+            this.prefetchTimeMillis = prefetchTimeMillis;
+        }
+
+        private boolean isStale(long nowMillis) {
+            return nowMillis > staleTimeMillis;
+        }
+
+        private boolean shouldPrefetch(long nowMillis) {
+            return nowMillis > prefetchTimeMillis;
+        }
+
+        private boolean needsRefresh(long nowMillis) {
+            return isStale(nowMillis) || shouldPrefetch(nowMillis);
+        }
+    }
+
+    /**
+     * Failure state of consecutive failed refreshes. The circuit is open until the next retry time,
+     * afterwards it is half-open and the single in-flight refresh probes whether the value supplier recovered.
+     */
+    private static final class RefreshFailure {
+
+        private final Throwable lastFailure;
+
+        private final int failureCount;
+
+        private final long nextRetryNotBeforeMillis;
+
+        private RefreshFailure(Throwable lastFailure, int failureCount, long nextRetryNotBeforeMillis) {
+            this.lastFailure = lastFailure;
+            this.failureCount = failureCount;
+            this.nextRetryNotBeforeMillis = nextRetryNotBeforeMillis;
+        }
+
+        private boolean isOpen(long nowMillis) {
+            return nowMillis < nextRetryNotBeforeMillis;
+        }
     }
 
     /**
@@ -212,9 +702,16 @@ public class CachedResultSupplier<T> implements Supplier<T> {
      */
     public static class Builder<T> {
         private final Supplier<RefreshResult<T>> valueSupplier;
+        private Supplier<CompletableFuture<RefreshResult<T>>> asyncValueSupplier;
         private PrefetchStrategy prefetchStrategy = new OneCallerBlocksPrefetchStrategy();
         private Clock clock = Clock.systemUTC();
         private StaleValueBehavior staleValueBehavior = StaleValueBehavior.ALLOW;
+        private Executor asyncRefreshExecutor = AsyncExecutorUtil.getExecutor();
+        private Duration refreshWaitTimeout = BLOCKING_REFRESH_MAX_WAIT;
+        private boolean proactiveRefreshEnabled = false;
+        private Duration failureBackoff = DEFAULT_FAILURE_BACKOFF;
+        private Duration maxFailureBackoff = DEFAULT_MAX_FAILURE_BACKOFF;
+        private String metricsName = "default";
 
         /**
          * Constructor for Builder instance
@@ -225,6 +722,18 @@ public class CachedResultSupplier<T> implements Supplier<T> {
             this.valueSupplier = valueSupplier;
         }
 
+        /**
+         * Set asynchronous value supplier, used by asynchronous refreshes instead of the blocking value supplier
+         * so that no thread is held while the refresh is in flight
+         *
+         * @param asyncValueSupplier Asynchronous value supplier
+         * @return Builder instance
+         */
+        public Builder<T> asyncValueSupplier(Supplier<CompletableFuture<RefreshResult<T>>> asyncValueSupplier) {
+            this.asyncValueSupplier = asyncValueSupplier;
+            return this;
+        }
+
         /**
          * Set stale value behavior strategy
          *
@@ -258,6 +767,74 @@ public class CachedResultSupplier<T> implements Supplier<T> {
             return this;
         }
 
+        /**
+         * Set executor running asynchronous refreshes
+         *
+         * @param asyncRefreshExecutor Asynchronous refresh executor
+         * @return Builder instance
+         */
+        public Builder<T> asyncRefreshExecutor(Executor asyncRefreshExecutor) {
+            this.asyncRefreshExecutor = asyncRefreshExecutor;
+            return this;
+        }
+
+        /**
+         * Set maximum time a caller waits for the in-flight refresh owned by another caller
+         *
+         * @param refreshWaitTimeout Refresh wait timeout
+         * @return Builder instance
+         */
+        public Builder<T> refreshWaitTimeout(Duration refreshWaitTimeout) {
+            if (refreshWaitTimeout == null || refreshWaitTimeout.isNegative()) {
+                throw new IllegalArgumentException("refreshWaitTimeout must not be negative");
+            }
+            this.refreshWaitTimeout = refreshWaitTimeout;
+            return this;
+        }
+
+        /**
+         * Set whether the cache is refreshed at its prefetch time by the shared scheduler,
+         * whether or not anyone is calling
+         *
+         * @param proactiveRefreshEnabled Whether proactive refresh is enabled
+         * @return Builder instance
+         */
+        public Builder<T> proactiveRefreshEnabled(boolean proactiveRefreshEnabled) {
+            this.proactiveRefreshEnabled = proactiveRefreshEnabled;
+            return this;
+        }
+
+        /**
+         * Set backoff after a failed refresh, during which no further refresh is attempted.
+         * The backoff is doubled for every consecutive failure up to the maximum failure backoff.
+         *
+         * @param failureBackoff    Backoff after the first failed refresh
+         * @param maxFailureBackoff Upper bound of the backoff
+         * @return Builder instance
+         */
+        public Builder<T> failureBackoff(Duration failureBackoff, Duration maxFailureBackoff) {
+            if (failureBackoff == null || failureBackoff.isNegative() || maxFailureBackoff == null || maxFailureBackoff.compareTo(failureBackoff) < 0) {
+                throw new IllegalArgumentException("failureBackoff must not be negative nor greater than maxFailureBackoff");
+            }
+            this.failureBackoff = failureBackoff;
+            this.maxFailureBackoff = maxFailureBackoff;
+            return this;
+        }
+
+        /**
+         * Set name of the cache, reported as the cache tag of its metrics. Caches sharing a name share their meters.
+         *
+         * @param metricsName Cache name
+         * @return Builder instance
+         */
+        public Builder<T> metricsName(String metricsName) {
+            if (metricsName == null || metricsName.isEmpty()) {
+                throw new IllegalArgumentException("metricsName cannot be empty");
+            }
+            this.metricsName = metricsName;
+            return this;
+        }
+
         /**
          * Build CachedResultSupplier instance
          *
@@ -14,6 +14,7 @@ public final class RefreshResult<T> {
     private final T value;
     private final Instant staleTime;
     private final Instant prefetchTime;
+    private final boolean jitterEnabled;
 
     /**
      * Constructs a new RefreshResult instance
@@ -23,9 +24,14 @@ public final class RefreshResult<T> {
      * @param prefetchTime Prefetch time, after which prefetch operation will be triggered
      */
     public RefreshResult(T value, Instant staleTime, Instant prefetchTime) {
+        this(value, staleTime, prefetchTime, true);
+    }
+
+    private RefreshResult(T value, Instant staleTime, Instant prefetchTime, boolean jitterEnabled) {
         this.value = value;
         this.staleTime = staleTime;
         this.prefetchTime = prefetchTime;
+        this.jitterEnabled = jitterEnabled;
     }
 
     /**
@@ -55,6 +61,15 @@ public final class RefreshResult<T> {
         return prefetchTime;
     }
 
+    /**
+     * Whether the cache delays the expiration time and prefetch time by a random jitter
+     *
+     * @return False if the times are used as they are
+     */
+    public boolean isJitterEnabled() {
+        return jitterEnabled;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -66,12 +81,13 @@ public final class RefreshResult<T> {
         RefreshResult<?> that = (RefreshResult<?>) o;
         return Objects.equals(value, that.value) &&
                 Objects.equals(staleTime, that.staleTime) &&
-                Objects.equals(prefetchTime, that.prefetchTime);
+                Objects.equals(prefetchTime, that.prefetchTime) &&
+                jitterEnabled == that.jitterEnabled;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value, staleTime, prefetchTime);
+        return Objects.hash(value, staleTime, prefetchTime, jitterEnabled);
     }
 
     @Override
@@ -80,6 +96,7 @@ public final class RefreshResult<T> {
                 .add("value=" + value)
                 .add("staleTime=" + staleTime)
                 .add("prefetchTime=" + prefetchTime)
+                .add("jitterEnabled=" + jitterEnabled)
                 .toString();
     }
 
@@ -91,6 +108,7 @@ public final class RefreshResult<T> {
         private final T value;
         private Instant staleTime;
         private Instant prefetchTime;
+        private boolean jitterEnabled = true;
 
         private RefreshResultBuilder(T  value) {
             this.value = value;
@@ -106,6 +124,15 @@ public final class RefreshResult<T> {
             return this;
         }
 
-        public RefreshResult<T> build() {return new RefreshResult<>(value, staleTime, prefetchTime);}
+        /**
+         * @param jitterEnabled False to use the times as they are, for a result that must be refreshed at the given time
+         * @return Builder instance
+         */
+        public RefreshResultBuilder<T> jitterEnabled(boolean jitterEnabled) {
+            this.jitterEnabled = jitterEnabled;
+            return this;
+        }
+
+        public RefreshResult<T> build() {return new RefreshResult<>(value, staleTime, prefetchTime, jitterEnabled);}
     }
 }
\ No newline at end of file
@@ -0,0 +1,573 @@
+package com.cloud_idaas.core.cache;
+
+import com.cloud_idaas.core.credential.IDaaSCredential;
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Token cache shared by the processes of a host through a memory-mapped file.
+ * The file holds a fixed number of slots, a token is stored in one of the {@value #PROBE_LENGTH} slots following the
+ * slot chosen by the hash of its key (client id, token endpoint and scope), so that keys hashed to the same slot do not
+ * evict each other. Slots are never emptied, a lookup stops at the first empty slot; when all the slots of a key are
+ * taken, the token with the earliest stale time is evicted.
+ * Each slot is protected by a seqlock: the writer makes the sequence odd, writes the record and makes it even again,
+ * readers copy the record without locking and retry if the sequence changed, the record also carries a CRC32
+ * so that a torn or corrupted record is never returned. Writers of a slot are serialized by a short lock on the file
+ * region of the slot. The process refreshing the token of a key is elected by a lock on a byte past the end of the file
+ * derived from the key, so that refreshes of different keys never wait for each other.
+ * The file only contains bearer tokens, it is created readable by its owner only.
+ */
+public final class SharedTokenCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedTokenCache.class);
+
+    private static final int MAGIC = 0x49445443;
+
+    private static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 64;
+
+    static final int SLOT_COUNT = 256;
+
+    static final int SLOT_SIZE = 8192;
+
+    static final int PROBE_LENGTH = 8;
+
+    private static final int FILE_SIZE = HEADER_SIZE + SLOT_COUNT * SLOT_SIZE;
+
+    // Key locks are taken on single bytes past the end of the file, which are never mapped nor written
+    private static final long KEY_LOCK_MASK = (1L << 40) - 1;
+
+    // Slot layout: sequence, key hash, stale time, prefetch time, expires at, payload length, CRC32, payload
+    static final int SEQUENCE_OFFSET = 0;
+    private static final int KEY_HASH_OFFSET = 8;
+    private static final int STALE_TIME_OFFSET = 16;
+    private static final int PREFETCH_TIME_OFFSET = 24;
+    private static final int EXPIRES_AT_OFFSET = 32;
+    private static final int PAYLOAD_LENGTH_OFFSET = 40;
+    private static final int CRC_OFFSET = 44;
+    static final int PAYLOAD_OFFSET = 48;
+
+    static final int MAX_PAYLOAD_LENGTH = SLOT_SIZE - PAYLOAD_OFFSET;
+
+    private static final int MAX_READ_ATTEMPTS = 64;
+
+    private static final int MAX_WRITE_ATTEMPTS = 4;
+
+    private static final long LOCK_POLL_INTERVAL_MILLIS = 50L;
+
+    private static final long SLOT_LOCK_TIMEOUT_MILLIS = 1000L;
+
+    private static final long SLOT_LOCK_POLL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final ConcurrentMap<Path, SharedTokenCache> INSTANCES = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    // Declared as ByteBuffer, MappedByteBuffer.duplicate() does not exist before Java 17
+    private final ByteBuffer buffer;
+
+    private final ReentrantLock[] slotLocks = new ReentrantLock[SLOT_COUNT];
+
+    private final ConcurrentMap<Long, ReentrantLock> keyLocks = new ConcurrentHashMap<>();
+
+    private volatile FileChannel channel;
+
+    private SharedTokenCache(Path path) throws IOException {
+        this.path = path;
+        this.channel = openChannel(path);
+        try {
+            initialize();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            slotLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the cache backed by the file, the file is mapped once per JVM
+     *
+     * @param filePath Path of the cache file, created if absent
+     * @return Shared token cache
+     * @throws IOException If the file cannot be created or is not a token cache file
+     */
+    public static SharedTokenCache open(String filePath) throws IOException {
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        SharedTokenCache cache = INSTANCES.get(path);
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (INSTANCES) {
+            cache = INSTANCES.get(path);
+            if (cache == null) {
+                cache = new SharedTokenCache(path);
+                INSTANCES.put(path, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @param clientId      Client id
+     * @param tokenEndpoint Token endpoint
+     * @param scope         Scope
+     * @return Hash of the token key, also stored in the slot to tell apart keys probing the same slots
+     */
+    public static long hashKey(String clientId, String tokenEndpoint, String scope) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((clientId + '\n' + tokenEndpoint + '\n' + scope).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(hash).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getPath() {
+        return path.toString();
+    }
+
+    /**
+     * Read the token of the key without locking
+     *
+     * @param keyHash Hash of the token key
+     * @return Token with its stale and prefetch times, null if no slot holds a valid token of the key
+     */
+    public RefreshResult<IDaaSCredential> read(long keyHash) {
+        int homeSlot = slotIndex(keyHash);
+        for (int probe = 0; probe < PROBE_LENGTH; probe++) {
+            int slotOffset = slotOffset((homeSlot + probe) % SLOT_COUNT);
+            if (buffer.getLong(slotOffset + SEQUENCE_OFFSET) == 0L) {
+                // Slots are never emptied, the key was never stored further
+                return null;
+            }
+            if (buffer.getLong(slotOffset + KEY_HASH_OFFSET) != keyHash) {
+                continue;
+            }
+            RefreshResult<IDaaSCredential> result = readSlot(slotOffset, keyHash);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private RefreshResult<IDaaSCredential> readSlot(int slotOffset, long keyHash) {
+        byte[] record = new byte[PAYLOAD_OFFSET];
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long sequence = buffer.getLong(slotOffset + SEQUENCE_OFFSET);
+            if ((sequence & 1L) != 0) {
+                // Being written by another thread or process
+                Thread.yield();
+                continue;
+            }
+            if (sequence == 0L) {
+                return null;
+            }
+            ByteBuffer view = buffer.duplicate();
+            // Through Buffer, ByteBuffer.position(int) does not exist on Java 8
+            ((Buffer) view).position(slotOffset);
+            view.get(record);
+            ByteBuffer header = ByteBuffer.wrap(record);
+            int payloadLength = header.getInt(PAYLOAD_LENGTH_OFFSET);
+            if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+                continue;
+            }
+            byte[] payload = new byte[payloadLength];
+            view.get(payload);
+            if (buffer.getLong(slotOffset + SEQUENCE_OFFSET) != sequence) {
+                continue;
+            }
+            if (header.getInt(CRC_OFFSET) != checksum(record, payload)) {
+                // Torn read, or a record left half written by a crashed process
+                continue;
+            }
+            if (header.getLong(KEY_HASH_OFFSET) != keyHash) {
+                // Evicted by another key since the slot was probed
+                return null;
+            }
+            return decode(header, payload);
+        }
+        return null;
+    }
+
+    /**
+     * Publish the token of the key, the caller must hold the lock of the key
+     *
+     * @param keyHash Hash of the token key
+     * @param result  Token with its stale and prefetch times
+     * @return True if published, false if the token does not fit in a slot or no slot could be locked
+     */
+    public boolean write(long keyHash, RefreshResult<IDaaSCredential> result) {
+        byte[] payload = encodePayload(result.getValue());
+        if (payload.length > MAX_PAYLOAD_LENGTH) {
+            LOGGER.warn("Token of {} bytes does not fit in the shared token cache", payload.length);
+            return false;
+        }
+        byte[] record = encodeHeader(keyHash, result, payload);
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            int slot = findSlot(keyHash);
+            int slotOffset = slotOffset(slot);
+            long observedSequence = buffer.getLong(slotOffset + SEQUENCE_OFFSET);
+            if (writeSlot(slot, keyHash, observedSequence, record, payload)) {
+                return true;
+            }
+        }
+        LOGGER.warn("Failed to publish the token in the shared token cache {}, its slots are busy", path);
+        return false;
+    }
+
+    /**
+     * Choose the slot of the key: the slot already holding it, else the first empty slot,
+     * else the slot of the token with the earliest stale time
+     */
+    private int findSlot(long keyHash) {
+        int homeSlot = slotIndex(keyHash);
+        int victim = -1;
+        long victimStaleTime = Long.MAX_VALUE;
+        for (int probe = 0; probe < PROBE_LENGTH; probe++) {
+            int slot = (homeSlot + probe) % SLOT_COUNT;
+            int slotOffset = slotOffset(slot);
+            if (buffer.getLong(slotOffset + SEQUENCE_OFFSET) == 0L) {
+                return slot;
+            }
+            if (buffer.getLong(slotOffset + KEY_HASH_OFFSET) == keyHash) {
+                return slot;
+            }
+            long staleTime = buffer.getLong(slotOffset + STALE_TIME_OFFSET);
+            if (victim < 0 || staleTime < victimStaleTime) {
+                victim = slot;
+                victimStaleTime = staleTime;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Write the record in the slot, unless the slot was taken by another key since it was chosen
+     */
+    private boolean writeSlot(int slot, long keyHash, long observedSequence, byte[] record, byte[] payload) {
+        int slotOffset = slotOffset(slot);
+        ReentrantLock slotLock = slotLocks[slot];
+        slotLock.lock();
+        try (FileLock fileLock = lockSlotRegion(slotOffset)) {
+            if (fileLock == null) {
+                return false;
+            }
+            long sequence = buffer.getLong(slotOffset + SEQUENCE_OFFSET);
+            if (sequence != observedSequence && buffer.getLong(slotOffset + KEY_HASH_OFFSET) != keyHash) {
+                return false;
+            }
+            // An odd sequence left by a crashed writer is reused as is
+            sequence |= 1L;
+            buffer.putLong(slotOffset + SEQUENCE_OFFSET, sequence);
+            ByteBuffer view = buffer.duplicate();
+            ((Buffer) view).position(slotOffset + KEY_HASH_OFFSET);
+            view.put(record, KEY_HASH_OFFSET, PAYLOAD_OFFSET - KEY_HASH_OFFSET);
+            view.put(payload);
+            buffer.putLong(slotOffset + SEQUENCE_OFFSET, sequence + 1);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to lock slot {} of shared token cache {}: {}", slot, path, e.getMessage());
+            return false;
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    /**
+     * Slot locks are only held while a record is copied, wait for them by polling
+     */
+    private FileLock lockSlotRegion(int slotOffset) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SLOT_LOCK_TIMEOUT_MILLIS);
+        while (true) {
+            FileLock fileLock = tryLockRegion(slotOffset, SLOT_SIZE);
+            if (fileLock != null) {
+                return fileLock;
+            }
+            if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            LockSupport.parkNanos(SLOT_LOCK_POLL_INTERVAL_NANOS);
+        }
+    }
+
+    /**
+     * Try to become the refresher of the token of the key, without waiting
+     *
+     * @param keyHash Hash of the token key
+     * @return Lock of the key, null if another thread or process holds it
+     * @throws IOException If the file cannot be locked
+     */
+    public KeyLock tryLock(long keyHash) throws IOException {
+        ReentrantLock keyLock = keyLocks.computeIfAbsent(keyHash, key -> new ReentrantLock());
+        if (!keyLock.tryLock()) {
+            return null;
+        }
+        try {
+            FileLock fileLock = tryLockRegion(FILE_SIZE + ((keyHash >>> 1) & KEY_LOCK_MASK), 1);
+            if (fileLock == null) {
+                keyLock.unlock();
+                return null;
+            }
+            return new KeyLock(keyLock, fileLock);
+        } catch (IOException | RuntimeException e) {
+            keyLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait to become the refresher of the token of the key
+     *
+     * @param keyHash Hash of the token key
+     * @param timeout Maximum time to wait in milliseconds
+     * @return Lock of the key, null if the timeout elapsed
+     * @throws IOException          If the file cannot be locked
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public KeyLock lock(long keyHash, long timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            KeyLock lock = tryLock(keyHash);
+            if (lock != null) {
+                return lock;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            // FileChannel.lock() cannot be bounded, and would close the channel if the thread is interrupted
+            Thread.sleep(Math.min(LOCK_POLL_INTERVAL_MILLIS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        }
+    }
+
+    private FileLock tryLockRegion(long position, long size) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return currentChannel().tryLock(position, size, false);
+            } catch (ClosedChannelException e) {
+                // Closed by the interruption of a thread using it, the mapping is still valid
+                if (attempt > 0) {
+                    throw e;
+                }
+                reopenChannel();
+            } catch (OverlappingFileLockException e) {
+                // Held by this JVM through another cache instance of the same file
+                return null;
+            }
+        }
+    }
+
+    private FileChannel currentChannel() throws IOException {
+        FileChannel current = channel;
+        return current.isOpen() ? current : reopenChannel();
+    }
+
+    private synchronized FileChannel reopenChannel() throws IOException {
+        if (!channel.isOpen()) {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * Write the header of a new file, or check the header of an existing one
+     */
+    private void initialize() throws IOException {
+        try (FileLock ignored = channel.lock(0, HEADER_SIZE, false)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            if (channel.size() < HEADER_SIZE) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(SLOT_COUNT);
+                ((Buffer) header).flip();
+                channel.write(header, 0);
+                // Slots are zero filled, a zero sequence is an empty slot
+                channel.write(ByteBuffer.allocate(1), FILE_SIZE - 1);
+                return;
+            }
+            channel.read(header, 0);
+            ((Buffer) header).flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != SLOT_COUNT || channel.size() < FILE_SIZE) {
+                throw new IOException("Not a shared token cache file: " + path);
+            }
+        }
+    }
+
+    private static FileChannel openChannel(Path path) throws IOException {
+        Path directory = path.getParent();
+        if (directory != null && Files.notExists(directory)) {
+            try {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } catch (UnsupportedOperationException e) {
+                Files.createDirectories(directory);
+            }
+        }
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (FileAlreadyExistsException e) {
+            // Created by another process
+        } catch (UnsupportedOperationException e) {
+            try {
+                Files.createFile(path);
+            } catch (FileAlreadyExistsException ignored) {
+                // Created by another process
+            }
+        }
+        return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    static int slotIndex(long keyHash) {
+        return (int) ((keyHash >>> 1) % SLOT_COUNT);
+    }
+
+    static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int checksum(byte[] record, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(record, KEY_HASH_OFFSET, CRC_OFFSET - KEY_HASH_OFFSET);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static long toEpochMillis(Instant instant) {
+        return instant == null ? Long.MAX_VALUE : instant.toEpochMilli();
+    }
+
+    private static Instant fromEpochMillis(long epochMillis) {
+        return epochMillis == Long.MAX_VALUE ? null : Instant.ofEpochMilli(epochMillis);
+    }
+
+    /**
+     * Record header of the token, without its sequence
+     */
+    static byte[] encodeHeader(long keyHash, RefreshResult<IDaaSCredential> result, byte[] payload) {
+        IDaaSCredential credential = result.getValue();
+        byte[] record = new byte[PAYLOAD_OFFSET];
+        ByteBuffer header = ByteBuffer.wrap(record);
+        header.putLong(KEY_HASH_OFFSET, keyHash);
+        header.putLong(STALE_TIME_OFFSET, toEpochMillis(result.getStaleTime()));
+        header.putLong(PREFETCH_TIME_OFFSET, toEpochMillis(result.getPrefetchTime()));
+        header.putLong(EXPIRES_AT_OFFSET, credential instanceof IDaaSTokenResponse
+                ? ((IDaaSTokenResponse) credential).resolveExpiresAt() : 0L);
+        header.putInt(PAYLOAD_LENGTH_OFFSET, payload.length);
+        header.putInt(CRC_OFFSET, checksum(record, payload));
+        return record;
+    }
+
+    /**
+     * Payload: access token, token type and id token, each as its UTF-8 length followed by its bytes, -1 for null.
+     * Refresh tokens are never shared.
+     */
+    static byte[] encodePayload(IDaaSCredential credential) {
+        byte[] accessToken = toBytes(credential.getAccessToken());
+        byte[] tokenType = toBytes(credential.getTokenType());
+        byte[] idToken = toBytes(credential.getIdToken());
+        ByteBuffer payload = ByteBuffer.allocate(12 + length(accessToken) + length(tokenType) + length(idToken));
+        putBytes(payload, accessToken);
+        putBytes(payload, tokenType);
+        putBytes(payload, idToken);
+        return payload.array();
+    }
+
+    static RefreshResult<IDaaSCredential> decode(ByteBuffer header, byte[] payloadBytes) {
+        ByteBuffer payload = ByteBuffer.wrap(payloadBytes);
+        IDaaSTokenResponse tokenResponse = new IDaaSTokenResponse();
+        tokenResponse.setAccessToken(getString(payload));
+        tokenResponse.setTokenType(getString(payload));
+        tokenResponse.setIdToken(getString(payload));
+        long expiresAt = header.getLong(EXPIRES_AT_OFFSET);
+        if (expiresAt > 0L) {
+            tokenResponse.setExpiresAt(expiresAt);
+            tokenResponse.setExpiresIn(Math.max(0L, expiresAt - System.currentTimeMillis() / 1000));
+        }
+        return RefreshResult.builder((IDaaSCredential) tokenResponse)
+                .staleTime(fromEpochMillis(header.getLong(STALE_TIME_OFFSET)))
+                .prefetchTime(fromEpochMillis(header.getLong(PREFETCH_TIME_OFFSET)))
+                .build();
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer payload, byte[] bytes) {
+        if (bytes == null) {
+            payload.putInt(-1);
+        } else {
+            payload.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+        ((Buffer) payload).position(payload.position() + length);
+        return value;
+    }
+
+    /**
+     * Lock of a key, held by the thread refreshing the token of the key
+     */
+    public static final class KeyLock implements AutoCloseable {
+
+        private final ReentrantLock keyLock;
+
+        private final FileLock fileLock;
+
+        private KeyLock(ReentrantLock keyLock, FileLock fileLock) {
+            this.keyLock = keyLock;
+            this.fileLock = fileLock;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (fileLock.isValid()) {
+                    fileLock.release();
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to release shared token cache lock: {}", e.getMessage());
+            } finally {
+                keyLock.unlock();
+            }
+        }
+    }
+}
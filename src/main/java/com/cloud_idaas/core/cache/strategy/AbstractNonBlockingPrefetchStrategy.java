@@ -0,0 +1,93 @@
+package com.cloud_idaas.core.cache.strategy;
+
+import com.cloud_idaas.core.cache.PrefetchStrategy;
+import com.cloud_idaas.core.domain.constants.MetricsConstants;
+import com.cloud_idaas.core.jfr.EventRecorder;
+import com.cloud_idaas.core.jfr.EventRecorderUtil;
+import com.cloud_idaas.core.metrics.Counter;
+import com.cloud_idaas.core.metrics.MetricsRegistry;
+import com.cloud_idaas.core.metrics.MetricsUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base of the non-blocking strategies: runs at most one background cache update at a time, bounded by an optional
+ * {@link RefreshLimiter}, and records the dropped prefetches. Subclasses only decide which thread runs the update.
+ */
+public abstract class AbstractNonBlockingPrefetchStrategy implements PrefetchStrategy {
+
+    private static final EventRecorder EVENT_RECORDER = EventRecorderUtil.getRecorder();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractNonBlockingPrefetchStrategy.class);
+
+    private final String strategyName;
+
+    // Limiter shared with other providers, null if the refreshes of this strategy are not limited
+    private final RefreshLimiter refreshLimiter;
+
+    private final AtomicBoolean currentlyPrefetching = new AtomicBoolean(false);
+
+    private final Counter droppedLeasesExhausted;
+
+    private final Counter droppedInFlight;
+
+    /**
+     * @param strategyName   Name of the strategy in the metrics and events of the dropped prefetches
+     * @param refreshLimiter Limiter shared by the providers whose concurrent background refreshes are bounded together,
+     *                       null if not limited
+     */
+    protected AbstractNonBlockingPrefetchStrategy(String strategyName, RefreshLimiter refreshLimiter) {
+        this.strategyName = strategyName;
+        this.refreshLimiter = refreshLimiter;
+        MetricsRegistry metricsRegistry = MetricsUtil.getRegistry();
+        this.droppedLeasesExhausted = metricsRegistry.counter(MetricsConstants.PREFETCH_DROPPED,
+                MetricsConstants.TAG_STRATEGY, strategyName, MetricsConstants.TAG_REASON, MetricsConstants.REASON_LEASES_EXHAUSTED);
+        this.droppedInFlight = metricsRegistry.counter(MetricsConstants.PREFETCH_DROPPED,
+                MetricsConstants.TAG_STRATEGY, strategyName, MetricsConstants.TAG_REASON, MetricsConstants.REASON_IN_FLIGHT);
+    }
+
+    @Override
+    public final void prefetch(Runnable valueUpdater) {
+        if (!currentlyPrefetching.compareAndSet(false, true)) {
+            droppedInFlight.increment();
+            EVENT_RECORDER.prefetchDropped(strategyName, MetricsConstants.REASON_IN_FLIGHT);
+            return;
+        }
+
+        if (refreshLimiter != null && !refreshLimiter.tryAcquire()) {
+            currentlyPrefetching.set(false);
+            droppedLeasesExhausted.increment();
+            EVENT_RECORDER.prefetchDropped(strategyName, MetricsConstants.REASON_LEASES_EXHAUSTED);
+            LOGGER.warn("Only {} concurrent refreshes are allowed", refreshLimiter.getMaxConcurrentRefreshes());
+            return;
+        }
+
+        try {
+            execute(() -> {
+                try {
+                    valueUpdater.run();
+                } finally {
+                    release();
+                }
+            });
+        } catch (Throwable t) {
+            release();
+        }
+    }
+
+    /**
+     * Run the background cache update without blocking the calling thread
+     *
+     * @param task Cache update, releasing the prefetch once done
+     */
+    protected abstract void execute(Runnable task);
+
+    private void release() {
+        currentlyPrefetching.set(false);
+        if (refreshLimiter != null) {
+            refreshLimiter.release();
+        }
+    }
+}
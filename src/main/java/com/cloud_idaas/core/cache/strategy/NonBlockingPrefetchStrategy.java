@@ -1,11 +1,6 @@
 package com.cloud_idaas.core.cache.strategy;
 
-import com.cloud_idaas.core.cache.PrefetchStrategy;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -13,13 +8,9 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  * NonBlocking strategy implementation
  * Non-blocking strategy: Uses a background thread pool to asynchronously update the cache
  */
-public class NonBlockingPrefetchStrategy implements PrefetchStrategy {
-
-    private static final int MAX_CONCURRENT_REFRESHES = 100;
-
-    private static final Semaphore CONCURRENT_REFRESH_LEASES = new Semaphore(MAX_CONCURRENT_REFRESHES);
+public class NonBlockingPrefetchStrategy extends AbstractNonBlockingPrefetchStrategy {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(NonBlockingPrefetchStrategy.class);
+    private static final String STRATEGY_NAME = "non_blocking";
 
     /**
      * Global executor service for all NonBlocking instances
@@ -35,34 +26,19 @@ public class NonBlockingPrefetchStrategy implements PrefetchStrategy {
                 }
             });
 
-    private final AtomicBoolean currentlyPrefetching = new AtomicBoolean(false);
-
     public NonBlockingPrefetchStrategy() {
+        this(null);
     }
 
-    @Override
-    public void prefetch(Runnable valueUpdater) {
-        if (!CONCURRENT_REFRESH_LEASES.tryAcquire()) {
-            LOGGER.warn("Only 100 concurrent refreshes are allowed");
-            return;
-        }
+    /**
+     * @param refreshLimiter Limiter shared by the providers whose concurrent background refreshes are bounded together
+     */
+    public NonBlockingPrefetchStrategy(RefreshLimiter refreshLimiter) {
+        super(STRATEGY_NAME, refreshLimiter);
+    }
 
-        if (currentlyPrefetching.compareAndSet(false, true)) {
-            try {
-                EXECUTOR.submit(() -> {
-                    try {
-                        valueUpdater.run();
-                    } finally {
-                        currentlyPrefetching.set(false);
-                        CONCURRENT_REFRESH_LEASES.release();
-                    }
-                });
-            } catch (Throwable t) {
-                currentlyPrefetching.set(false);
-                CONCURRENT_REFRESH_LEASES.release();
-            }
-        } else{
-            CONCURRENT_REFRESH_LEASES.release();
-        }
+    @Override
+    protected void execute(Runnable task) {
+        EXECUTOR.submit(task);
     }
-}
\ No newline at end of file
+}
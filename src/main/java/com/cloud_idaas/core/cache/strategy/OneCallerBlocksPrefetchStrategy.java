@@ -1,6 +1,9 @@
 package com.cloud_idaas.core.cache.strategy;
 
 import com.cloud_idaas.core.cache.PrefetchStrategy;
+import com.cloud_idaas.core.domain.constants.MetricsConstants;
+import com.cloud_idaas.core.metrics.Counter;
+import com.cloud_idaas.core.metrics.MetricsUtil;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -13,6 +16,9 @@ public class OneCallerBlocksPrefetchStrategy implements PrefetchStrategy {
 
     private final AtomicBoolean currentlyRefreshing = new AtomicBoolean(false);
 
+    private final Counter droppedInFlight = MetricsUtil.getRegistry().counter(MetricsConstants.PREFETCH_DROPPED,
+            MetricsConstants.TAG_STRATEGY, "one_caller_blocks", MetricsConstants.TAG_REASON, MetricsConstants.REASON_IN_FLIGHT);
+
     @Override
     public void prefetch(Runnable valueUpdater) {
         if (currentlyRefreshing.compareAndSet(false, true)) {
@@ -21,6 +27,8 @@ public class OneCallerBlocksPrefetchStrategy implements PrefetchStrategy {
             } finally {
                 currentlyRefreshing.set(false);
             }
+        } else {
+            droppedInFlight.increment();
         }
     }
-}
\ No newline at end of file
+}
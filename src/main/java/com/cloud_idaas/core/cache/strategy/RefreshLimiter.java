@@ -0,0 +1,38 @@
+package com.cloud_idaas.core.cache.strategy;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limit of the concurrent background refreshes of a group of providers.
+ * A prefetch strategy runs at most one background refresh at a time, so a limiter only bounds anything
+ * when it is shared by the strategies of several providers.
+ */
+public final class RefreshLimiter {
+
+    private final int maxConcurrentRefreshes;
+
+    private final Semaphore leases;
+
+    /**
+     * @param maxConcurrentRefreshes Maximum number of concurrent background refreshes of the providers sharing this limiter
+     */
+    public RefreshLimiter(int maxConcurrentRefreshes) {
+        if (maxConcurrentRefreshes <= 0) {
+            throw new IllegalArgumentException("maxConcurrentRefreshes must be greater than 0");
+        }
+        this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+        this.leases = new Semaphore(maxConcurrentRefreshes);
+    }
+
+    public int getMaxConcurrentRefreshes() {
+        return maxConcurrentRefreshes;
+    }
+
+    boolean tryAcquire() {
+        return leases.tryAcquire();
+    }
+
+    void release() {
+        leases.release();
+    }
+}
@@ -0,0 +1,70 @@
+package com.cloud_idaas.core.cache.strategy;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * VirtualThread strategy implementation
+ * Non-blocking strategy: Runs every background cache update on its own virtual thread, only available on JDK 21 and later.
+ * The virtual thread API is looked up reflectively, so that the SDK still runs on JDK 8.
+ */
+public class VirtualThreadPrefetchStrategy extends AbstractNonBlockingPrefetchStrategy {
+
+    private static final String STRATEGY_NAME = "virtual_thread";
+
+    /**
+     * Virtual thread factory shared by all VirtualThread instances, null if virtual threads are not supported
+     */
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+    public VirtualThreadPrefetchStrategy() {
+        this(null);
+    }
+
+    /**
+     * @param refreshLimiter Limiter shared by the providers whose concurrent background refreshes are bounded together
+     */
+    public VirtualThreadPrefetchStrategy(RefreshLimiter refreshLimiter) {
+        super(STRATEGY_NAME, checkSupported(refreshLimiter));
+    }
+
+    private static RefreshLimiter checkSupported(RefreshLimiter refreshLimiter) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by the current JVM");
+        }
+        return refreshLimiter;
+    }
+
+    /**
+     * Check whether virtual threads are supported by the current JVM
+     *
+     * @return True if virtual threads are supported, otherwise false
+     */
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    @Override
+    protected void execute(Runnable task) {
+        VIRTUAL_THREAD_FACTORY.newThread(task).start();
+    }
+
+    /**
+     * Create the virtual thread factory via {@code Thread.ofVirtual().name(prefix, 0).factory()}
+     *
+     * @return Virtual thread factory, or null if virtual threads are not supported
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "idaas-java-core-sdk-virtual-refresh-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Throwable t) {
+            // JDK 20 and earlier, or virtual threads only available as preview
+            return null;
+        }
+    }
+}
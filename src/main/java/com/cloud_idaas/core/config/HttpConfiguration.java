@@ -10,6 +10,81 @@ public class HttpConfiguration implements Serializable {
 
     private int readTimeout = 10000;
 
+    private int writeTimeout = 10000;
+
+    /**
+     * Timeout of a complete call in milliseconds, including resolving DNS, connecting, writing the request body,
+     * server processing and reading the response body. 0 means no timeout.
+     */
+    private int callTimeout = 0;
+
+    /**
+     * Maximum number of idle connections kept in the connection pool
+     */
+    private int maxIdleConnections = 5;
+
+    /**
+     * Time in milliseconds an idle connection is kept alive in the connection pool
+     */
+    private long keepAliveDuration = 300000L;
+
+    /**
+     * Maximum number of concurrently executing asynchronous requests
+     */
+    private int maxRequests = 64;
+
+    /**
+     * Maximum number of concurrently executing asynchronous requests per host
+     */
+    private int maxRequestsPerHost = 5;
+
+    /**
+     * When enabled, a connection to the token endpoint is established in the background as soon as the http client is created,
+     * so that the first token request does not pay for the TCP and TLS handshakes.
+     */
+    private boolean connectionPrewarmEnabled;
+
+    /**
+     * When enabled, HTTP/2 is negotiated via ALPN and concurrent requests to the same host are multiplexed over one connection,
+     * otherwise only HTTP/1.1 is used.
+     */
+    private boolean http2Enabled = true;
+
+    /**
+     * Maximum number of cached TLS sessions used to resume handshakes on reconnect, 0 means no limit
+     */
+    private int tlsSessionCacheSize = 100;
+
+    /**
+     * Time in seconds a cached TLS session can be resumed, 0 means no limit
+     */
+    private int tlsSessionTimeout = 86400;
+
+    /**
+     * Maximum number of retries of a failed request, 0 disables retries
+     */
+    private int maxRetries = 2;
+
+    /**
+     * Backoff in milliseconds before the first retry, doubled for every further retry
+     */
+    private long retryInitialBackoff = 100L;
+
+    /**
+     * Upper bound of the backoff in milliseconds, the actual backoff is a random value below it
+     */
+    private long retryMaxBackoff = 2000L;
+
+    /**
+     * Timeout of a single attempt in milliseconds, 0 means the call timeout applies
+     */
+    private int attemptTimeout = 0;
+
+    /**
+     * Maximum number of retries in a burst, one retry is earned back by every ten successful requests
+     */
+    private int retryBudget = 10;
+
     private boolean unsafeIgnoreSSLCert;
 
     public HttpConfiguration() {
@@ -31,6 +106,126 @@ public class HttpConfiguration implements Serializable {
         this.readTimeout = readTimeout;
     }
 
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(int writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public int getCallTimeout() {
+        return callTimeout;
+    }
+
+    public void setCallTimeout(int callTimeout) {
+        this.callTimeout = callTimeout;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public long getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    public void setKeepAliveDuration(long keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    public boolean getConnectionPrewarmEnabled() {
+        return connectionPrewarmEnabled;
+    }
+
+    public void setConnectionPrewarmEnabled(boolean connectionPrewarmEnabled) {
+        this.connectionPrewarmEnabled = connectionPrewarmEnabled;
+    }
+
+    public boolean getHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    public void setTlsSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getRetryInitialBackoff() {
+        return retryInitialBackoff;
+    }
+
+    public void setRetryInitialBackoff(long retryInitialBackoff) {
+        this.retryInitialBackoff = retryInitialBackoff;
+    }
+
+    public long getRetryMaxBackoff() {
+        return retryMaxBackoff;
+    }
+
+    public void setRetryMaxBackoff(long retryMaxBackoff) {
+        this.retryMaxBackoff = retryMaxBackoff;
+    }
+
+    public int getAttemptTimeout() {
+        return attemptTimeout;
+    }
+
+    public void setAttemptTimeout(int attemptTimeout) {
+        this.attemptTimeout = attemptTimeout;
+    }
+
+    public int getRetryBudget() {
+        return retryBudget;
+    }
+
+    public void setRetryBudget(int retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
     public boolean getUnsafeIgnoreSSLCert() {
         return unsafeIgnoreSSLCert;
     }
@@ -46,6 +241,21 @@ public class HttpConfiguration implements Serializable {
         HttpConfiguration httpConfiguration = new HttpConfiguration();
         httpConfiguration.setConnectTimeout(source.getConnectTimeout());
         httpConfiguration.setReadTimeout(source.getReadTimeout());
+        httpConfiguration.setWriteTimeout(source.getWriteTimeout());
+        httpConfiguration.setCallTimeout(source.getCallTimeout());
+        httpConfiguration.setMaxIdleConnections(source.getMaxIdleConnections());
+        httpConfiguration.setKeepAliveDuration(source.getKeepAliveDuration());
+        httpConfiguration.setMaxRequests(source.getMaxRequests());
+        httpConfiguration.setMaxRequestsPerHost(source.getMaxRequestsPerHost());
+        httpConfiguration.setConnectionPrewarmEnabled(source.getConnectionPrewarmEnabled());
+        httpConfiguration.setHttp2Enabled(source.getHttp2Enabled());
+        httpConfiguration.setTlsSessionCacheSize(source.getTlsSessionCacheSize());
+        httpConfiguration.setTlsSessionTimeout(source.getTlsSessionTimeout());
+        httpConfiguration.setMaxRetries(source.getMaxRetries());
+        httpConfiguration.setRetryInitialBackoff(source.getRetryInitialBackoff());
+        httpConfiguration.setRetryMaxBackoff(source.getRetryMaxBackoff());
+        httpConfiguration.setAttemptTimeout(source.getAttemptTimeout());
+        httpConfiguration.setRetryBudget(source.getRetryBudget());
         httpConfiguration.setUnsafeIgnoreSSLCert(source.getUnsafeIgnoreSSLCert());
         return httpConfiguration;
     }
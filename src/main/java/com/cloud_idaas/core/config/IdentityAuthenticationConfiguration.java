@@ -33,6 +33,12 @@ public class IdentityAuthenticationConfiguration implements Serializable {
     private String oidcTokenFilePathEnvVarName;
 
     private String oidcTokenFilePath;
+
+    /**
+     * Only applicable to OIDC on Kubernetes, when enabled the token file is reloaded as soon as it is rotated,
+     * instead of being read again whenever the token is about to expire.
+     */
+    private boolean oidcTokenFileWatchEnabled;
     /**
      * Only applicable to PCA federated authentication scenarios
      */
@@ -42,6 +48,18 @@ public class IdentityAuthenticationConfiguration implements Serializable {
 
     private String humanAuthenticateClientId = "iap_developer";
 
+    /**
+     * Only applicable to private_key_jwt and PCA, when enabled client assertions are signed ahead of time
+     * on a background thread, so that the token refresh does not wait for the signature.
+     */
+    private boolean clientAssertionPreSigningEnabled;
+
+    /**
+     * Only applicable to client identities, when enabled the token is shared with the other processes of the host
+     * through a memory-mapped file, and only one of them requests a new token when it is due for refresh.
+     */
+    private boolean sharedTokenCacheEnabled;
+
     public IdentityAuthenticationConfiguration() {
     }
 
@@ -133,6 +151,30 @@ public class IdentityAuthenticationConfiguration implements Serializable {
         this.humanAuthenticateClientId = humanAuthenticateClientId;
     }
 
+    public boolean getOidcTokenFileWatchEnabled() {
+        return oidcTokenFileWatchEnabled;
+    }
+
+    public void setOidcTokenFileWatchEnabled(boolean oidcTokenFileWatchEnabled) {
+        this.oidcTokenFileWatchEnabled = oidcTokenFileWatchEnabled;
+    }
+
+    public boolean getClientAssertionPreSigningEnabled() {
+        return clientAssertionPreSigningEnabled;
+    }
+
+    public void setClientAssertionPreSigningEnabled(boolean clientAssertionPreSigningEnabled) {
+        this.clientAssertionPreSigningEnabled = clientAssertionPreSigningEnabled;
+    }
+
+    public boolean getSharedTokenCacheEnabled() {
+        return sharedTokenCacheEnabled;
+    }
+
+    public void setSharedTokenCacheEnabled(boolean sharedTokenCacheEnabled) {
+        this.sharedTokenCacheEnabled = sharedTokenCacheEnabled;
+    }
+
     public static IdentityAuthenticationConfiguration copy(IdentityAuthenticationConfiguration source) {
         if (source == null) {
             return null;
@@ -147,9 +189,12 @@ public class IdentityAuthenticationConfiguration implements Serializable {
         target.setClientDeployEnvironment(source.getClientDeployEnvironment());
         target.setOidcTokenFilePathEnvVarName(source.getOidcTokenFilePathEnvVarName());
         target.setOidcTokenFilePath(source.getOidcTokenFilePath());
+        target.setOidcTokenFileWatchEnabled(source.getOidcTokenFileWatchEnabled());
         target.setClientX509Certificate(source.getClientX509Certificate());
         target.setX509CertChains(source.getX509CertChains());
         target.setHumanAuthenticateClientId(source.getHumanAuthenticateClientId());
+        target.setClientAssertionPreSigningEnabled(source.getClientAssertionPreSigningEnabled());
+        target.setSharedTokenCacheEnabled(source.getSharedTokenCacheEnabled());
         return target;
     }
 
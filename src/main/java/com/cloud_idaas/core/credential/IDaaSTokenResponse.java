@@ -1,8 +1,11 @@
 package com.cloud_idaas.core.credential;
 
+import com.cloud_idaas.core.domain.JwtTimeClaims;
+import com.cloud_idaas.core.util.JwtUtil;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.Serializable;
+import java.time.Instant;
 
 public class IDaaSTokenResponse implements IDaaSCredential, Serializable {
     private static final long serialVersionUID = -8367812108696951221L;
@@ -37,6 +40,13 @@ public class IDaaSTokenResponse implements IDaaSCredential, Serializable {
     @SerializedName("expires_at")
     private long expiresAt;
 
+    /**
+     * Time claims read from the access token on first use, not serialized
+     */
+    private transient volatile JwtTimeClaims accessTokenClaims;
+
+    private transient volatile boolean accessTokenInspected;
+
     public IDaaSTokenResponse() {
     }
 
@@ -47,6 +57,7 @@ public class IDaaSTokenResponse implements IDaaSCredential, Serializable {
 
     public void setAccessToken(String accessToken) {
         this.accessToken = accessToken;
+        this.accessTokenInspected = false;
     }
 
     @Override
@@ -95,6 +106,81 @@ public class IDaaSTokenResponse implements IDaaSCredential, Serializable {
     public boolean willSoonExpire() {
         final long now = System.currentTimeMillis() / 1000;
         final double expireFact = 0.15;
-        return this.expiresIn * expireFact > (this.expiresAt - now);
+        return resolveExpiresIn() * expireFact > (resolveExpiresAt() - now);
+    }
+
+    /**
+     * Read the time claims of the access token itself, without verifying it
+     *
+     * @return Time claims of the access token, null if the access token is not a JWT
+     */
+    public JwtTimeClaims inspectAccessToken() {
+        if (!accessTokenInspected) {
+            JwtTimeClaims claims = null;
+            if (accessToken != null) {
+                try {
+                    claims = JwtUtil.peekTimeClaims(accessToken);
+                } catch (IllegalArgumentException e) {
+                    // Opaque access token
+                }
+            }
+            accessTokenClaims = claims;
+            accessTokenInspected = true;
+        }
+        return accessTokenClaims;
+    }
+
+    /**
+     * Expiration time, the earlier of expires_at and the exp claim of the access token if both are known
+     *
+     * @return Expiration time as Unix timestamp in seconds, 0 if unknown
+     */
+    public long resolveExpiresAt() {
+        JwtTimeClaims claims = inspectAccessToken();
+        Long expirationTime = claims == null ? null : claims.getExpirationTime();
+        if (expiresAt > 0 && expirationTime != null) {
+            return Math.min(expiresAt, expirationTime);
+        } else if (expiresAt > 0) {
+            return expiresAt;
+        } else if (expirationTime != null) {
+            return expirationTime;
+        } else if (claims != null && claims.getIssuedAt() != null && expiresIn > 0) {
+            return claims.getIssuedAt() + expiresIn;
+        }
+        return 0L;
+    }
+
+    /**
+     * Token lifetime, expires_in or the difference between the exp and iat claims of the access token
+     *
+     * @return Token lifetime in seconds
+     */
+    public long resolveExpiresIn() {
+        if (expiresIn > 0) {
+            return expiresIn;
+        }
+        JwtTimeClaims claims = inspectAccessToken();
+        if (claims != null && claims.getExpirationTime() != null && claims.getIssuedAt() != null) {
+            return claims.getExpirationTime() - claims.getIssuedAt();
+        }
+        return Math.max(0L, resolveExpiresAt() - System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * Time after which the token must be refreshed before use, 4/5 of its lifetime
+     *
+     * @return Stale time
+     */
+    public Instant resolveStaleTime() {
+        return Instant.ofEpochSecond(resolveExpiresAt() - resolveExpiresIn() / 5);
+    }
+
+    /**
+     * Time after which the token should be refreshed ahead of its stale time, 2/3 of its lifetime
+     *
+     * @return Prefetch time
+     */
+    public Instant resolvePrefetchTime() {
+        return Instant.ofEpochSecond(resolveExpiresAt() - resolveExpiresIn() / 3);
     }
 }
@@ -0,0 +1,40 @@
+package com.cloud_idaas.core.domain;
+
+/**
+ * Time claims of a JWT, as NumericDate values in seconds since the epoch, null if the claim is absent
+ */
+public final class JwtTimeClaims {
+
+    private final Long expirationTime;
+
+    private final Long issuedAt;
+
+    private final Long notBefore;
+
+    public JwtTimeClaims(Long expirationTime, Long issuedAt, Long notBefore) {
+        this.expirationTime = expirationTime;
+        this.issuedAt = issuedAt;
+        this.notBefore = notBefore;
+    }
+
+    /**
+     * @return exp claim
+     */
+    public Long getExpirationTime() {
+        return expirationTime;
+    }
+
+    /**
+     * @return iat claim
+     */
+    public Long getIssuedAt() {
+        return issuedAt;
+    }
+
+    /**
+     * @return nbf claim
+     */
+    public Long getNotBefore() {
+        return notBefore;
+    }
+}
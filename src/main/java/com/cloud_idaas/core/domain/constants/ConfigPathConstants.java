@@ -27,4 +27,14 @@ public interface ConfigPathConstants {
      */
     String DEFAULT_HUMAN_CREDENTIAL_CACHE_PATH_TEMPLATE = System.getProperty("user.home") + "/.cloud_idaas/human_credential_%s_%s.json";
 
+    /**
+     * Environment variable name for the shared token cache file path
+     */
+    String ENV_SHARED_TOKEN_CACHE_PATH_KEY = "CLOUD_IDAAS_SHARED_TOKEN_CACHE_PATH";
+
+    /**
+     * Default shared token cache file path
+     */
+    String DEFAULT_SHARED_TOKEN_CACHE_PATH = System.getProperty("user.home") + "/.cloud_idaas/shared_token_cache";
+
 }
@@ -39,6 +39,18 @@ public enum ErrorCode {
 
     READ_TIMEOUT_NOT_VALID("ReadTimeoutNotValid"),
 
+    WRITE_TIMEOUT_NOT_VALID("WriteTimeoutNotValid"),
+
+    CALL_TIMEOUT_NOT_VALID("CallTimeoutNotValid"),
+
+    CONNECTION_POOL_NOT_VALID("ConnectionPoolNotValid"),
+
+    MAX_REQUESTS_NOT_VALID("MaxRequestsNotValid"),
+
+    TLS_SESSION_CACHE_NOT_VALID("TlsSessionCacheNotValid"),
+
+    RETRY_POLICY_NOT_VALID("RetryPolicyNotValid"),
+
     IDAAS_CREDENTIAL_PROVIDER_FACTORY_NOT_INIT("IDaaSCredentialProviderFactoryNotInit"),
 
     NOT_SUPPORTED_WEB_KEY("NotSupportedWebKey"),
@@ -67,6 +79,10 @@ public enum ErrorCode {
 
     REFRESH_TOKEN_NOT_FOUND("RefreshTokenNotFound"),
 
+    DEVICE_CODE_EXPIRED("DeviceCodeExpired"),
+
+    DEVICE_CODE_NOT_FOUND("DeviceCodeNotFound"),
+
     ;
     private final String code;
 
@@ -26,4 +26,6 @@ public interface HttpConstants {
 
     String SPACE = " ";
 
+    String COMMA = ",";
+
 }
@@ -0,0 +1,57 @@
+package com.cloud_idaas.core.domain.constants;
+
+public interface MetricsConstants {
+
+    String CACHE_HITS = "idaas.cache.hits";
+
+    String CACHE_MISSES = "idaas.cache.misses";
+
+    String CACHE_PREFETCHES = "idaas.cache.prefetches";
+
+    String CACHE_REFRESH = "idaas.cache.refresh";
+
+    String CACHE_REFRESH_WAIT = "idaas.cache.refresh.wait";
+
+    String CACHE_STALE_SERVED = "idaas.cache.stale.served";
+
+    String PREFETCH_DROPPED = "idaas.prefetch.dropped";
+
+    String HTTP_CLIENT_REQUESTS = "idaas.http.client.requests";
+
+    String HTTP_CLIENT_RETRIES = "idaas.http.client.retries";
+
+    String TOKEN_REQUESTS = "idaas.token.requests";
+
+    String TOKEN_TIME_TO_EXPIRY = "idaas.token.time_to_expiry";
+
+    String TAG_CACHE = "cache";
+
+    String TAG_STRATEGY = "strategy";
+
+    String TAG_REASON = "reason";
+
+    String TAG_METHOD = "method";
+
+    String TAG_STATUS = "status";
+
+    String TAG_OUTCOME = "outcome";
+
+    String TAG_GRANT_TYPE = "grant_type";
+
+    String TAG_CLIENT_ID = "client_id";
+
+    String TAG_SCOPE = "scope";
+
+    String OUTCOME_SUCCESS = "success";
+
+    String OUTCOME_FAILURE = "failure";
+
+    String OUTCOME_PENDING = "pending";
+
+    String REASON_LEASES_EXHAUSTED = "leases_exhausted";
+
+    String REASON_IN_FLIGHT = "in_flight";
+
+    String STATUS_IO_ERROR = "IO_ERROR";
+
+}
@@ -43,4 +43,14 @@ public interface OAuth2Constants {
     String REQUESTED_TOKEN_TYPE_VALUE = "urn:ietf:params:oauth:token-type:access_token";
 
     String AUDIENCE = "audience";
+
+    /**
+     * Error of the device access token request while the user has not authorized the device yet
+     */
+    String AUTHORIZATION_PENDING_ERROR = "authorization_pending";
+
+    /**
+     * Error of the device access token request asking the client to poll less often
+     */
+    String SLOW_DOWN_ERROR = "slow_down";
 }
@@ -9,6 +9,8 @@ import com.cloud_idaas.core.domain.constants.ClientDeployEnvironmentEnum;
 import com.cloud_idaas.core.domain.constants.ErrorCode;
 import com.cloud_idaas.core.exception.ConfigException;
 import com.cloud_idaas.core.implementation.IDaaSMachineCredentialProvider;
+import com.cloud_idaas.core.implementation.SharedCacheCredentialProvider;
+import com.cloud_idaas.core.implementation.authentication.jwt.PreSignedClientAssertionProvider;
 import com.cloud_idaas.core.implementation.authentication.jwt.StaticClientSecretAssertionProvider;
 import com.cloud_idaas.core.implementation.authentication.jwt.StaticPrivateKeyAssertionProvider;
 import com.cloud_idaas.core.implementation.authentication.oidc.FileOidcTokenProvider;
@@ -142,7 +144,7 @@ public class IDaaSCredentialProviderFactory {
             case PRIVATE_KEY_JWT:
                 privateKeyEnvVarName = authnConfig.getPrivateKeyEnvVarName();
                 privateKeyString = System.getenv(privateKeyEnvVarName);
-                clientAssertionProvider = new StaticPrivateKeyAssertionProvider(privateKeyString);
+                clientAssertionProvider = createPrivateKeyAssertionProvider(privateKeyString, authnConfig);
                 credentialProvider.setClientAssertionProvider(clientAssertionProvider);
                 break;
             case PKCS7:
@@ -165,7 +167,8 @@ public class IDaaSCredentialProviderFactory {
                     if (StringUtil.isEmpty(oidcTokenFilePath)) {
                         oidcTokenFilePath = AuthenticationConstants.KUBERNETES_SERVICE_ACCOUNT_TOKEN_PATH;
                     }
-                    OidcTokenProvider oidcTokenProvider = new FileOidcTokenProvider(oidcTokenFilePath);
+                    OidcTokenProvider oidcTokenProvider = new FileOidcTokenProvider(oidcTokenFilePath,
+                            authnConfig.getOidcTokenFileWatchEnabled(), FileOidcTokenProvider.DEFAULT_WATCH_INTERVAL);
                     credentialProvider.setOidcTokenProvider(oidcTokenProvider);
                 } else if (authnConfig.getClientDeployEnvironment() == ClientDeployEnvironmentEnum.COMPUTER) {
                     credentialProvider.setOidcTokenProvider(HUMAN_FEDERATE_CREDENTIAL_OIDC_TOKEN_PROVIDER);
@@ -180,16 +183,37 @@ public class IDaaSCredentialProviderFactory {
                 credentialProvider.setX509CertChains(authnConfig.getX509CertChains());
                 privateKeyEnvVarName = authnConfig.getPrivateKeyEnvVarName();
                 privateKeyString = System.getenv(privateKeyEnvVarName);
-                clientAssertionProvider = new StaticPrivateKeyAssertionProvider(privateKeyString);
+                clientAssertionProvider = createPrivateKeyAssertionProvider(privateKeyString, authnConfig);
                 credentialProvider.setClientAssertionProvider(clientAssertionProvider);
                 break;
             default:
                 throw new ConfigException(ErrorCode.UNSUPPORTED_AUTHENTICATION_METHOD.getCode(), "Unsupported authentication method:" + authnMethod);
         }
+        if (authnConfig.getSharedTokenCacheEnabled()) {
+            SharedCacheCredentialProvider sharedCacheCredentialProvider = SharedCacheCredentialProvider.builder()
+                    .delegate(credentialProvider)
+                    .clientId(IDAAS_CLIENT_CONFIG.getClientId())
+                    .tokenEndpoint(IDAAS_CLIENT_CONFIG.getTokenEndpoint())
+                    .scope(scope)
+                    .build();
+            sharedCacheCredentialProvider.getCredential();
+            return sharedCacheCredentialProvider;
+        }
         credentialProvider.getCredential();
         return credentialProvider;
     }
 
+    private static JwtClientAssertionProvider createPrivateKeyAssertionProvider(String privateKeyString,
+                                                                               IdentityAuthenticationConfiguration authnConfig) {
+        JwtClientAssertionProvider clientAssertionProvider = new StaticPrivateKeyAssertionProvider(privateKeyString);
+        if (authnConfig.getClientAssertionPreSigningEnabled()) {
+            clientAssertionProvider = PreSignedClientAssertionProvider.builder()
+                    .delegate(clientAssertionProvider)
+                    .build();
+        }
+        return clientAssertionProvider;
+    }
+
     public static String getDeveloperApiEndpoint() {
         if (!INITIALIZED.get()) {
             throw new ConfigException(ErrorCode.IDAAS_CREDENTIAL_PROVIDER_FACTORY_NOT_INIT.getCode(), "IDaaS Credential Provider Factory has not been initialized.");
@@ -197,6 +221,13 @@ public class IDaaSCredentialProviderFactory {
         return IDAAS_CLIENT_CONFIG.getDeveloperApiEndpoint();
     }
 
+    public static String getTokenEndpoint() {
+        if (!INITIALIZED.get()) {
+            throw new ConfigException(ErrorCode.IDAAS_CREDENTIAL_PROVIDER_FACTORY_NOT_INIT.getCode(), "IDaaS Credential Provider Factory has not been initialized.");
+        }
+        return IDAAS_CLIENT_CONFIG.getTokenEndpoint();
+    }
+
     public static String getIDaasInstanceId() {
         if (!INITIALIZED.get()) {
             throw new ConfigException(ErrorCode.IDAAS_CREDENTIAL_PROVIDER_FACTORY_NOT_INIT.getCode(), "IDaaS Credential Provider Factory has not been initialized.");
@@ -4,24 +4,44 @@ import com.cloud_idaas.core.config.UserAgentConfig;
 import com.cloud_idaas.core.domain.ErrResponse;
 import com.cloud_idaas.core.domain.constants.ErrorCode;
 import com.cloud_idaas.core.domain.constants.HttpConstants;
+import com.cloud_idaas.core.domain.constants.MetricsConstants;
 import com.cloud_idaas.core.exception.ClientException;
 import com.cloud_idaas.core.exception.HttpException;
 import com.cloud_idaas.core.exception.ServerException;
+import com.cloud_idaas.core.jfr.EventRecorder;
+import com.cloud_idaas.core.jfr.EventRecorderUtil;
+import com.cloud_idaas.core.metrics.Counter;
+import com.cloud_idaas.core.metrics.MetricsRegistry;
+import com.cloud_idaas.core.metrics.MetricsUtil;
+import com.cloud_idaas.core.metrics.Timer;
 import com.cloud_idaas.core.util.ExceptionAnalyzer;
 import com.cloud_idaas.core.util.JSONUtil;
+import com.cloud_idaas.core.util.SchedulerUtil;
 import com.cloud_idaas.core.util.StringUtil;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.ConnectException;
+import java.net.NoRouteToHostException;
 import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 public class DefaultOKHttpClientImp implements HttpClient{
@@ -30,27 +50,200 @@ public class DefaultOKHttpClientImp implements HttpClient{
 
     private int readTimeout;
 
+    private int writeTimeout;
+
+    private int callTimeout;
+
+    private final RetryPolicy retryPolicy;
+
     private final OkHttpClient okHttpClient;
 
+    private final MetricsRegistry metricsRegistry;
+
+    private final Counter retries;
+
+    // Attempt timers by request method, indexed by response status, index 0 for I/O errors, resolved once per tag set
+    private final ConcurrentMap<String, AtomicReferenceArray<Timer>> attemptTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Executor of the asynchronous calls, daemon threads so that idle dispatcher threads never keep the JVM alive
+     */
+    private static final ExecutorService DISPATCHER_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setName("idaas-java-core-sdk-http-dispatcher");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    private static final int MAX_STATUS_CODE = 599;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultOKHttpClientImp.class);
 
+    private static final EventRecorder EVENT_RECORDER = EventRecorderUtil.getRecorder();
+
+    /**
+     * Marks the attempt of a request as sent once its headers start being written, a failed attempt which was never sent
+     * cannot have reached the server
+     */
+    private static final EventListener REQUEST_SENT_LISTENER = new EventListener() {
+        @Override
+        public void requestHeadersStart(Call call) {
+            AttemptProgress progress = call.request().tag(AttemptProgress.class);
+            if (progress != null) {
+                progress.requestSent = true;
+            }
+        }
+    };
+
     public DefaultOKHttpClientImp(Builder builder){
         this.connectTimeout = builder.connectTimeout == null ? 5000 : builder.connectTimeout;
         this.readTimeout = builder.readTimeout == null ? 10000 : builder.readTimeout;
+        this.writeTimeout = builder.writeTimeout == null ? 10000 : builder.writeTimeout;
+        this.callTimeout = builder.callTimeout == null ? 0 : builder.callTimeout;
+        this.retryPolicy = builder.retryPolicy == null ? RetryPolicy.none() : builder.retryPolicy;
+        this.metricsRegistry = MetricsUtil.getRegistry();
+        this.retries = metricsRegistry.counter(MetricsConstants.HTTP_CLIENT_RETRIES);
+        ConnectionPool connectionPool = new ConnectionPool(
+                builder.maxIdleConnections == null ? 5 : builder.maxIdleConnections,
+                builder.keepAliveDuration == null ? 300000L : builder.keepAliveDuration, TimeUnit.MILLISECONDS);
+        Dispatcher dispatcher = new Dispatcher(DISPATCHER_EXECUTOR);
+        dispatcher.setMaxRequests(builder.maxRequests == null ? 64 : builder.maxRequests);
+        dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost == null ? 5 : builder.maxRequestsPerHost);
+        boolean unsafeIgnoreSSLCert = builder.unsafeIgnoreSSLCert != null && builder.unsafeIgnoreSSLCert;
+        // One SSLContext per client, its session cache allows reconnects to resume the previous TLS session
+        X509TrustManager trustManager = SSLSocketFactoryProvider.getX509TrustManager(unsafeIgnoreSSLCert);
+        SSLContext sslContext = SSLSocketFactoryProvider.getSSLContext(trustManager,
+                builder.tlsSessionCacheSize == null ? SSLSocketFactoryProvider.DEFAULT_SESSION_CACHE_SIZE : builder.tlsSessionCacheSize,
+                builder.tlsSessionTimeout == null ? SSLSocketFactoryProvider.DEFAULT_SESSION_TIMEOUT : builder.tlsSessionTimeout);
+        // With HTTP/2 concurrent token requests of all scopes are multiplexed over a single connection.
+        // HTTP_2 and HTTP_1_1 are already the OkHttp default, the protocols only change when HTTP/2 is disabled
+        List<Protocol> protocols = builder.http2Enabled == null || builder.http2Enabled
+                ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : Collections.singletonList(Protocol.HTTP_1_1);
         this.okHttpClient = new OkHttpClient.Builder()
                 .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
                 .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
+                .callTimeout(callTimeout, TimeUnit.MILLISECONDS)
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .protocols(protocols)
+                .sslSocketFactory(sslContext.getSocketFactory(), trustManager)
+                .hostnameVerifier(SSLSocketFactoryProvider.getHostnameVerifier(unsafeIgnoreSSLCert))
                 .followRedirects(true)
+                .eventListener(REQUEST_SENT_LISTENER)
                 .build();
+        if (builder.prewarmUrls != null) {
+            for (String prewarmUrl : builder.prewarmUrls) {
+                prewarm(prewarmUrl);
+            }
+        }
     }
 
     public static Builder builder(){
         return new Builder();
     }
 
+    @Override
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     @Override
     public HttpResponse send(HttpRequest httpRequest) {
-        Request.Builder requestBuilder = new Request.Builder();
+        return executeRequest(buildRequest(httpRequest), httpRequest.isIdempotent());
+    }
+
+    /**
+     * Send HTTP request asynchronously via {@link Call#enqueue(Callback)}, no thread is held while the request is in flight
+     * or waiting for a retry. The returned future is completed on an OkHttp dispatcher thread, cancelling it cancels the call.
+     *
+     * @param httpRequest HTTP request
+     * @return Future of the HTTP response
+     */
+    @Override
+    public CompletableFuture<HttpResponse> sendAsync(HttpRequest httpRequest) {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        final Request request;
+        try {
+            request = buildRequest(httpRequest);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        AtomicReference<Call> inFlightCall = new AtomicReference<>();
+        future.whenComplete((response, failure) -> {
+            Call call = inFlightCall.get();
+            if (future.isCancelled() && call != null) {
+                call.cancel();
+            }
+        });
+        enqueueAttempt(request, httpRequest.isIdempotent(), 0, future, inFlightCall);
+        return future;
+    }
+
+    private void enqueueAttempt(Request request, boolean idempotent, int attempt,
+                                CompletableFuture<HttpResponse> future, AtomicReference<Call> inFlightCall) {
+        if (future.isDone()) {
+            return;
+        }
+        Call call = newCall(request);
+        inFlightCall.set(call);
+        if (future.isCancelled()) {
+            call.cancel();
+            return;
+        }
+        long attemptStart = System.nanoTime();
+        Object httpCallEvent = EVENT_RECORDER.beginHttpCall();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                recordAttempt(request, null, attemptStart, httpCallEvent);
+                if (!call.isCanceled() && isRetryable(e, request, idempotent) && retryPolicy.tryAcquireRetry(attempt)) {
+                    LOGGER.warn("Request to {} failed: {}, retry attempt {}", request.url(), e.getMessage(), attempt + 1);
+                    scheduleRetry(request, idempotent, attempt, future, inFlightCall);
+                    return;
+                }
+                future.completeExceptionally(convertIOException(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                recordAttempt(request, response, attemptStart, httpCallEvent);
+                try (Response closeableResponse = response) {
+                    if (retryPolicy.isRetryableStatus(closeableResponse.code(), idempotent) && retryPolicy.tryAcquireRetry(attempt)) {
+                        LOGGER.warn("Request to {} failed with status {}, retry attempt {}", request.url(), closeableResponse.code(), attempt + 1);
+                        scheduleRetry(request, idempotent, attempt, future, inFlightCall);
+                        return;
+                    }
+                    if (closeableResponse.isSuccessful()) {
+                        retryPolicy.onSuccess();
+                    }
+                    future.complete(convertResponse(closeableResponse));
+                } catch (IOException e) {
+                    future.completeExceptionally(convertIOException(e));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private void scheduleRetry(Request request, boolean idempotent, int attempt,
+                               CompletableFuture<HttpResponse> future, AtomicReference<Call> inFlightCall) {
+        retries.increment();
+        // The backoff is waited on the shared scheduler, enqueueing the next attempt does not block it
+        SchedulerUtil.schedule(() -> enqueueAttempt(request, idempotent, attempt + 1, future, inFlightCall),
+                retryPolicy.computeBackoff(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    private Request buildRequest(HttpRequest httpRequest) {
+        Request.Builder requestBuilder = new Request.Builder().tag(AttemptProgress.class, new AttemptProgress());
         addHeaderToRequest(requestBuilder, httpRequest);
         HttpMethod method = httpRequest.getMethod();
         Request request;
@@ -63,7 +256,39 @@ public class DefaultOKHttpClientImp implements HttpClient{
             RequestBody requestBody = buildRequestBody(httpRequest);
             request = requestBuilder.url(httpRequest.getUrl()).put(requestBody).build();
         }
-        return executeRequest(request);
+        return request;
+    }
+
+    /**
+     * Establish a connection to the given url in the background and keep it in the connection pool,
+     * so that the next request to the same host does not pay for the TCP and TLS handshakes.
+     *
+     * @param url Url of the host to connect to
+     */
+    public void prewarm(String url) {
+        final Request request;
+        try {
+            request = new Request.Builder()
+                    .url(url)
+                    .head()
+                    .addHeader(HttpConstants.USER_AGENT, UserAgentConfig.getUserAgentMessage())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Skip prewarming connection, invalid url: {}", url);
+            return;
+        }
+        okHttpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                LOGGER.warn("Prewarming connection to {} failed: {}", url, e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // Only the pooled connection is of interest, the response itself is discarded
+                response.close();
+            }
+        });
     }
 
     private void addHeaderToRequest(Request.Builder requestBuilder, HttpRequest httpRequest) {
@@ -80,6 +305,9 @@ public class DefaultOKHttpClientImp implements HttpClient{
     private RequestBody buildRequestBody(HttpRequest httpRequest){
         if (httpRequest.getContentType() == null){
                 return RequestBody.create(new byte[]{}, null);
+        } else if (httpRequest.getBodyBytes() != null){
+            // Pre-encoded body, e.g. from a TokenRequestTemplate, sent without copying
+            return RequestBody.create(httpRequest.getBodyBytes(), MediaType.parse(httpRequest.getContentType().getType()));
         } else if (httpRequest.getContentType() == ContentType.FORM){
             Map<String, List<String>> formBodyParams = httpRequest.getFormBody();
             if (formBodyParams == null || formBodyParams.isEmpty()){
@@ -100,56 +328,239 @@ public class DefaultOKHttpClientImp implements HttpClient{
         }
     }
 
-    private HttpResponse executeRequest(Request request) {
-        try (Response response = okHttpClient.newCall(request).execute()) {
-            final int responseCode = response.code();
-            final String responseBody = Objects.requireNonNull(response.body()).string();
-            if (response.isSuccessful()){
-                return new HttpResponse(responseCode, responseBody);
-            } else if (responseCode >= 300 && responseCode < 400) {
-                String redirectLocation = response.header(HttpConstants.LOCATION);
-                String redirectMessage = redirectLocation != null ? HttpConstants.REDIRECT_TO + redirectLocation : null;
-                String errorMessage = responseBody + HttpConstants.SPACE + redirectMessage;
-                LOGGER.error("Redirect Code: {}", responseCode);
-                LOGGER.error("Redirect Message: {}", errorMessage);
-                throw new ClientException(String.valueOf(responseCode), errorMessage);
-            } else if (responseCode >= 400 && responseCode < 500) {
-                ErrResponse errResponse;
-                try {
-                    errResponse = convertResponseBodyToErrResponse(responseBody);
-                } catch (JsonSyntaxException e){
-                    throw new ClientException(String.valueOf(responseCode), responseBody);
+    private HttpResponse executeRequest(Request request, boolean idempotent) {
+        int attempt = 0;
+        while (true) {
+            long attemptStart = System.nanoTime();
+            Object httpCallEvent = EVENT_RECORDER.beginHttpCall();
+            try (Response response = newCall(request).execute()) {
+                recordAttempt(request, response, attemptStart, httpCallEvent);
+                if (!retryPolicy.isRetryableStatus(response.code(), idempotent) || !retryPolicy.tryAcquireRetry(attempt)) {
+                    if (response.isSuccessful()) {
+                        retryPolicy.onSuccess();
+                    }
+                    return convertResponse(response);
                 }
-                LOGGER.error("Client Error: {}", errResponse.getError());
-                LOGGER.error("Client Error Detail: {}", errResponse.getErrorDescription());
-                LOGGER.error("Client Error RequestId: {}", errResponse.getRequestId());
-                throw new ClientException(errResponse.getError(), errResponse.getErrorDescription(), errResponse.getRequestId());
-            } else {
-                ErrResponse errResponse;
-                try {
-                    errResponse = convertResponseBodyToErrResponse(responseBody);
-                } catch (JsonSyntaxException e){
-                    throw new ServerException(String.valueOf(responseCode), responseBody);
+                LOGGER.warn("Request to {} failed with status {}, retry attempt {}", request.url(), response.code(), attempt + 1);
+            } catch (IOException e) {
+                recordAttempt(request, null, attemptStart, httpCallEvent);
+                if (!isRetryable(e, request, idempotent) || !retryPolicy.tryAcquireRetry(attempt)) {
+                    throw convertIOException(e);
                 }
-                LOGGER.error("Server Error: {}", errResponse.getError());
-                LOGGER.error("Server Error Detail: {}", errResponse.getErrorDescription());
-                LOGGER.error("Server Error RequestId: {}", errResponse.getRequestId());
-                throw new ServerException(errResponse.getError(), errResponse.getErrorDescription(), errResponse.getRequestId());
+                LOGGER.warn("Request to {} failed: {}, retry attempt {}", request.url(), e.getMessage(), attempt + 1);
+            }
+            retries.increment();
+            try {
+                Thread.sleep(retryPolicy.computeBackoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpException("Interrupted while waiting to retry request", e);
+            }
+            attempt++;
+        }
+    }
+
+    /**
+     * Record the latency of a single attempt, tagged with the request method and the response status,
+     * and commit its flight recorder event
+     *
+     * @param request       Request of the attempt
+     * @param response      Response of the attempt, null if no response was received
+     * @param attemptStart  Start of the attempt in nanos
+     * @param httpCallEvent Flight recorder event of the attempt, null if disabled
+     */
+    private void recordAttempt(Request request, Response response, long attemptStart, Object httpCallEvent) {
+        attemptTimer(request.method(), response == null ? 0 : response.code())
+                .record(System.nanoTime() - attemptStart, TimeUnit.NANOSECONDS);
+        if (httpCallEvent != null) {
+            long responseBytes = response == null || response.body() == null ? -1L : response.body().contentLength();
+            EVENT_RECORDER.commitHttpCall(httpCallEvent, request.method(), request.url().toString(),
+                    response == null ? -1 : response.code(), responseBytes);
+        }
+    }
+
+    /**
+     * @param method     Request method
+     * @param statusCode Response status, 0 for an I/O error
+     * @return Timer of the attempts with the given method and status
+     */
+    private Timer attemptTimer(String method, int statusCode) {
+        AtomicReferenceArray<Timer> timers = attemptTimers.get(method);
+        if (timers == null) {
+            timers = attemptTimers.computeIfAbsent(method, key -> new AtomicReferenceArray<>(MAX_STATUS_CODE + 1));
+        }
+        if (statusCode < 0 || statusCode > MAX_STATUS_CODE) {
+            return newAttemptTimer(method, statusCode);
+        }
+        Timer timer = timers.get(statusCode);
+        if (timer == null) {
+            // The registry returns the same timer for the same tags, a lost race only resolves it twice
+            timer = newAttemptTimer(method, statusCode);
+            timers.set(statusCode, timer);
+        }
+        return timer;
+    }
+
+    private Timer newAttemptTimer(String method, int statusCode) {
+        String status = statusCode == 0 ? MetricsConstants.STATUS_IO_ERROR : String.valueOf(statusCode);
+        return metricsRegistry.timer(MetricsConstants.HTTP_CLIENT_REQUESTS,
+                MetricsConstants.TAG_METHOD, method, MetricsConstants.TAG_STATUS, status);
+    }
+
+    private Call newCall(Request request) {
+        AttemptProgress progress = request.tag(AttemptProgress.class);
+        if (progress != null) {
+            progress.requestSent = false;
+        }
+        Call call = okHttpClient.newCall(request);
+        if (retryPolicy.getAttemptTimeout() > 0) {
+            call.timeout().timeout(retryPolicy.getAttemptTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * Check whether a failed attempt can be retried. A request that failed to connect before it was sent has never
+     * reached the server and can always be retried, other failures only if the request is idempotent.
+     *
+     * @param e          Failure of the attempt
+     * @param request    Request of the attempt
+     * @param idempotent Whether the request is idempotent
+     * @return True if the attempt can be retried
+     */
+    private boolean isRetryable(IOException e, Request request, boolean idempotent) {
+        AttemptProgress progress = request.tag(AttemptProgress.class);
+        return isRetryable(e, progress == null || progress.requestSent, idempotent);
+    }
+
+    /**
+     * @param e           Failure of the attempt
+     * @param requestSent Whether the request may have been sent, true if unknown
+     * @param idempotent  Whether the request is idempotent
+     * @return True if the attempt can be retried
+     */
+    static boolean isRetryable(IOException e, boolean requestSent, boolean idempotent) {
+        if (idempotent) {
+            return true;
+        }
+        if (requestSent) {
+            return false;
+        }
+        Throwable cause = e;
+        for (int depth = 0; cause != null && depth < 5; depth++) {
+            if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+                    || cause instanceof UnknownHostException || cause instanceof SocketTimeoutException) {
+                return true;
             }
-        } catch (IOException e) {
-            if (ExceptionAnalyzer.isTargetCauseExist(e, ConnectException.class, ErrorCode.CONNECT_TIME_OUT.getCode())){
-                throw new ClientException("Connect Timeout", e.getMessage());
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Convert the OkHttp response, mapping unsuccessful status codes to {@link ClientException} and {@link ServerException}
+     *
+     * @param response OkHttp response
+     * @return HTTP response
+     * @throws IOException If the response body cannot be read
+     */
+    private HttpResponse convertResponse(Response response) throws IOException {
+        final int responseCode = response.code();
+        final ResponseBody body = Objects.requireNonNull(response.body());
+        if (response.isSuccessful()){
+            // Keep the body as bytes, parsers decode it without an intermediate String
+            return new HttpResponse(responseCode, body.bytes(), toHeaderMap(response.headers()));
+        } else if (responseCode >= 300 && responseCode < 400) {
+            String redirectLocation = response.header(HttpConstants.LOCATION);
+            String redirectMessage = redirectLocation != null ? HttpConstants.REDIRECT_TO + redirectLocation : null;
+            String errorMessage = body.string() + HttpConstants.SPACE + redirectMessage;
+            LOGGER.error("Redirect Code: {}", responseCode);
+            LOGGER.error("Redirect Message: {}", errorMessage);
+            throw new ClientException(String.valueOf(responseCode), errorMessage);
+        } else if (responseCode >= 400 && responseCode < 500) {
+            ErrResponse errResponse = readErrResponse(body);
+            if (errResponse == null) {
+                throw new ClientException(String.valueOf(responseCode), body.source().readUtf8());
             }
-            if (ExceptionAnalyzer.isTargetCauseExist(e, SocketTimeoutException.class, ErrorCode.READ_TIME_OUT.getCode())){
-                throw new ServerException("Read Timeout", e.getMessage());
+            LOGGER.error("Client Error: {}", errResponse.getError());
+            LOGGER.error("Client Error Detail: {}", errResponse.getErrorDescription());
+            LOGGER.error("Client Error RequestId: {}", errResponse.getRequestId());
+            throw new ClientException(errResponse.getError(), errResponse.getErrorDescription(), errResponse.getRequestId());
+        } else {
+            ErrResponse errResponse = readErrResponse(body);
+            if (errResponse == null) {
+                throw new ServerException(String.valueOf(responseCode), body.source().readUtf8());
             }
-            throw new HttpException(String.format("Connect Failed: %s.", e.getMessage()));
+            LOGGER.error("Server Error: {}", errResponse.getError());
+            LOGGER.error("Server Error Detail: {}", errResponse.getErrorDescription());
+            LOGGER.error("Server Error RequestId: {}", errResponse.getRequestId());
+            throw new ServerException(errResponse.getError(), errResponse.getErrorDescription(), errResponse.getRequestId());
+        }
+    }
+
+    /**
+     * @return Case insensitive map of the headers, values of repeated headers joined with commas
+     */
+    private static Map<String, String> toHeaderMap(Headers headers) {
+        Map<String, String> headerMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < headers.size(); i++) {
+            headerMap.merge(headers.name(i), headers.value(i), (previous, value) -> previous + HttpConstants.COMMA + value);
         }
+        return headerMap;
+    }
+
+    /**
+     * Parse the error response straight from the body source. The body is buffered and parsed through a peek,
+     * so that it can still be read as text if it is not a JSON object
+     *
+     * @param body Response body
+     * @return Error response, null if the body is not a JSON object
+     * @throws IOException If the response body cannot be read
+     */
+    private ErrResponse readErrResponse(ResponseBody body) throws IOException {
+        BufferedSource source = body.source();
+        source.request(Long.MAX_VALUE);
+        try {
+            return JSONUtil.parseObject(new InputStreamReader(source.peek().inputStream(), StandardCharsets.UTF_8), ErrResponse.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private RuntimeException convertIOException(IOException e) {
+        if (ExceptionAnalyzer.isTargetCauseExist(e, ConnectException.class, ErrorCode.CONNECT_TIME_OUT.getCode())){
+            return new ClientException("Connect Timeout", e.getMessage());
+        }
+        if (ExceptionAnalyzer.isTargetCauseExist(e, SocketTimeoutException.class, ErrorCode.READ_TIME_OUT.getCode())){
+            return new ServerException("Read Timeout", e.getMessage());
+        }
+        return new HttpException(String.format("Connect Failed: %s.", e.getMessage()));
+    }
+
+    /**
+     * Progress of the current attempt of a request, attached to the request as a tag. The attempts of a request are
+     * sequential, so that a single instance is reset by each attempt.
+     */
+    private static final class AttemptProgress {
+
+        private volatile boolean requestSent;
     }
 
     public static final class Builder {
         private Integer connectTimeout;
         private Integer readTimeout;
+        private Integer writeTimeout;
+        private Integer callTimeout;
+        private Integer maxIdleConnections;
+        private Long keepAliveDuration;
+        private Integer maxRequests;
+        private Integer maxRequestsPerHost;
+        private List<String> prewarmUrls;
+        private Boolean http2Enabled;
+        private Integer tlsSessionCacheSize;
+        private Integer tlsSessionTimeout;
+        private Boolean unsafeIgnoreSSLCert;
+        private RetryPolicy retryPolicy;
 
         public Builder connectTimeout(Integer connectTimeout) {
             this.connectTimeout = connectTimeout;
@@ -161,16 +572,73 @@ public class DefaultOKHttpClientImp implements HttpClient{
             return this;
         }
 
+        public Builder writeTimeout(Integer writeTimeout) {
+            this.writeTimeout = writeTimeout;
+            return this;
+        }
+
+        public Builder callTimeout(Integer callTimeout) {
+            this.callTimeout = callTimeout;
+            return this;
+        }
+
+        public Builder maxIdleConnections(Integer maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        public Builder keepAliveDuration(Long keepAliveDuration) {
+            this.keepAliveDuration = keepAliveDuration;
+            return this;
+        }
+
+        public Builder maxRequests(Integer maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        public Builder maxRequestsPerHost(Integer maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        public Builder prewarmUrls(List<String> prewarmUrls) {
+            this.prewarmUrls = prewarmUrls;
+            return this;
+        }
+
+        /**
+         * @param http2Enabled False to only use HTTP/1.1. HTTP/2, negotiated via ALPN with a fallback to HTTP/1.1,
+         *                     is already the OkHttp default, so that only false changes the behavior
+         * @return Builder instance
+         */
+        public Builder http2Enabled(Boolean http2Enabled) {
+            this.http2Enabled = http2Enabled;
+            return this;
+        }
+
+        public Builder tlsSessionCacheSize(Integer tlsSessionCacheSize) {
+            this.tlsSessionCacheSize = tlsSessionCacheSize;
+            return this;
+        }
+
+        public Builder tlsSessionTimeout(Integer tlsSessionTimeout) {
+            this.tlsSessionTimeout = tlsSessionTimeout;
+            return this;
+        }
+
+        public Builder unsafeIgnoreSSLCert(Boolean unsafeIgnoreSSLCert) {
+            this.unsafeIgnoreSSLCert = unsafeIgnoreSSLCert;
+            return this;
+        }
+
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         public DefaultOKHttpClientImp build(){
             return new DefaultOKHttpClientImp(this);
         }
     }
-
-    private ErrResponse convertResponseBodyToErrResponse(String responseBody){
-        Map<String, String> map = JSONUtil.parseObject(responseBody, Map.class);
-        String error = map.containsKey("error") ? map.get("error") : map.get("Code");
-        String errorDescription = map.containsKey("error_description") ? map.get("error_description") : map.get("Message");
-        String requestId = map.containsKey("request_id") ? map.get("request_id") : map.get("RequestId");
-        return new ErrResponse(error, errorDescription, requestId);
-    }
 }
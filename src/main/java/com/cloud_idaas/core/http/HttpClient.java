@@ -1,5 +1,9 @@
 package com.cloud_idaas.core.http;
 
+import com.cloud_idaas.core.util.AsyncExecutorUtil;
+
+import java.util.concurrent.CompletableFuture;
+
 public interface HttpClient {
 
     /**
@@ -9,4 +13,25 @@ public interface HttpClient {
      * @return HttpResponse HTTP response
      */
     HttpResponse send(HttpRequest request);
+
+    /**
+     * Send HTTP request asynchronously. The default implementation runs {@link #send(HttpRequest)} on the shared executor of the SDK,
+     * implementations should override it with a non-blocking transport.
+     *
+     * @param request HTTP request
+     * @return Future of the HTTP response, completed exceptionally with the same exceptions {@link #send(HttpRequest)} throws
+     */
+    default CompletableFuture<HttpResponse> sendAsync(HttpRequest request) {
+        return CompletableFuture.supplyAsync(() -> send(request), AsyncExecutorUtil.getExecutor());
+    }
+
+    /**
+     * Retry policy of the client. Callers resending a request on their own, e.g. with a fresh one-shot credential,
+     * pay their retries from the budget of this policy, so that the client and its callers are bounded together.
+     *
+     * @return Retry policy of the client, {@link RetryPolicy#none()} by default
+     */
+    default RetryPolicy getRetryPolicy() {
+        return RetryPolicy.none();
+    }
 }
@@ -2,6 +2,9 @@ package com.cloud_idaas.core.http;
 
 import com.cloud_idaas.core.config.HttpConfiguration;
 import com.cloud_idaas.core.factory.IDaaSCredentialProviderFactory;
+import com.cloud_idaas.core.util.StringUtil;
+
+import java.util.Collections;
 
 public class HttpClientFactory {
 
@@ -15,10 +18,33 @@ public class HttpClientFactory {
         if (singletonOKHttpClient == null) {
             synchronized (LOCK) {
                 if (singletonOKHttpClient == null) {
-                    singletonOKHttpClient = DefaultOKHttpClientImp.builder()
+                    DefaultOKHttpClientImp.Builder builder = DefaultOKHttpClientImp.builder()
                             .connectTimeout(httpConfiguration.getConnectTimeout())
                             .readTimeout(httpConfiguration.getReadTimeout())
-                            .build();
+                            .writeTimeout(httpConfiguration.getWriteTimeout())
+                            .callTimeout(httpConfiguration.getCallTimeout())
+                            .maxIdleConnections(httpConfiguration.getMaxIdleConnections())
+                            .keepAliveDuration(httpConfiguration.getKeepAliveDuration())
+                            .maxRequests(httpConfiguration.getMaxRequests())
+                            .maxRequestsPerHost(httpConfiguration.getMaxRequestsPerHost())
+                            .http2Enabled(httpConfiguration.getHttp2Enabled())
+                            .tlsSessionCacheSize(httpConfiguration.getTlsSessionCacheSize())
+                            .tlsSessionTimeout(httpConfiguration.getTlsSessionTimeout())
+                            .unsafeIgnoreSSLCert(httpConfiguration.getUnsafeIgnoreSSLCert())
+                            .retryPolicy(RetryPolicy.builder()
+                                    .maxRetries(httpConfiguration.getMaxRetries())
+                                    .initialBackoff(httpConfiguration.getRetryInitialBackoff())
+                                    .maxBackoff(httpConfiguration.getRetryMaxBackoff())
+                                    .attemptTimeout(httpConfiguration.getAttemptTimeout())
+                                    .retryBudget(httpConfiguration.getRetryBudget())
+                                    .build());
+                    if (httpConfiguration.getConnectionPrewarmEnabled()) {
+                        String tokenEndpoint = IDaaSCredentialProviderFactory.getTokenEndpoint();
+                        if (StringUtil.isNotBlank(tokenEndpoint)) {
+                            builder.prewarmUrls(Collections.singletonList(tokenEndpoint));
+                        }
+                    }
+                    singletonOKHttpClient = builder.build();
                 }
             }
         }
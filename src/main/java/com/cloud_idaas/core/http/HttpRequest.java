@@ -18,8 +18,18 @@ public class HttpRequest implements Serializable {
 
     private Map<String, List<String>> formBody;
 
+    /**
+     * Body already encoded for the content type, sent as is instead of body or formBody
+     */
+    private byte[] bodyBytes;
+
     private ContentType contentType;
 
+    /**
+     * Whether the request can be sent more than once without side effects, null to derive it from the method
+     */
+    private Boolean idempotent;
+
     public HttpRequest() {
     }
 
@@ -29,7 +39,9 @@ public class HttpRequest implements Serializable {
         this.headers = builder.headers;
         this.body = builder.body;
         this.formBody = builder.formBody;
+        this.bodyBytes = builder.bodyBytes;
         this.contentType = builder.contentType;
+        this.idempotent = builder.idempotent;
     }
 
     public HttpMethod getMethod() {
@@ -72,6 +84,14 @@ public class HttpRequest implements Serializable {
         this.formBody = formBody;
     }
 
+    public byte[] getBodyBytes() {
+        return bodyBytes;
+    }
+
+    public void setBodyBytes(byte[] bodyBytes) {
+        this.bodyBytes = bodyBytes;
+    }
+
     public ContentType getContentType() {
         return contentType;
     }
@@ -80,13 +100,36 @@ public class HttpRequest implements Serializable {
         this.contentType = contentType;
     }
 
+    public Boolean getIdempotent() {
+        return idempotent;
+    }
+
+    public void setIdempotent(Boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Check whether the request can be retried after the server may have processed it,
+     * GET and PUT requests are idempotent unless stated otherwise
+     *
+     * @return True if the request is idempotent
+     */
+    public boolean isIdempotent() {
+        if (idempotent != null) {
+            return idempotent;
+        }
+        return method == HttpMethod.GET || method == HttpMethod.PUT;
+    }
+
     public static final class Builder {
         private HttpMethod method;
         private String url;
         private Map<String, List<String>> headers;
         private String body;
         private Map<String, List<String>> formBody;
+        private byte[] bodyBytes;
         private ContentType contentType;
+        private Boolean idempotent;
 
         public Builder httpMethod(HttpMethod method){
             this.method = method;
@@ -113,11 +156,21 @@ public class HttpRequest implements Serializable {
             return this;
         }
 
+        public Builder bodyBytes(byte[] bodyBytes){
+            this.bodyBytes = bodyBytes;
+            return this;
+        }
+
         public Builder contentType(ContentType contentType){
             this.contentType = contentType;
             return this;
         }
 
+        public Builder idempotent(boolean idempotent){
+            this.idempotent = idempotent;
+            return this;
+        }
+
         public HttpRequest build(){
             return new HttpRequest(this);
         }
@@ -1,8 +1,18 @@
 package com.cloud_idaas.core.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
+/**
+ * HTTP response. The body is kept as the bytes read from the connection, parsers can read them through
+ * {@link #getBodyStream()} or {@link #getBodyReader()}, the String body is only decoded on the first {@link #getBody()}.
+ */
 public class HttpResponse implements Serializable {
 
     private static final long serialVersionUID = 452235848368513340L;
@@ -13,6 +23,8 @@ public class HttpResponse implements Serializable {
 
     private String body;
 
+    private byte[] bodyBytes;
+
     private HttpResponse() {
     }
 
@@ -21,6 +33,17 @@ public class HttpResponse implements Serializable {
         this.body = body;
     }
 
+    /**
+     * @param statusCode Status code
+     * @param bodyBytes  Body as read from the connection, UTF-8 encoded, not copied
+     * @param headers    Response headers, values of repeated headers joined with commas
+     */
+    public HttpResponse(int statusCode, byte[] bodyBytes, Map<String, String> headers) {
+        this.statusCode = statusCode;
+        this.bodyBytes = bodyBytes;
+        this.headers = headers;
+    }
+
     public int getStatusCode() {
         return this.statusCode;
     }
@@ -37,15 +60,62 @@ public class HttpResponse implements Serializable {
         this.headers = headers;
     }
 
+    /**
+     * @param name Header name, case insensitive if the headers were set by the SDK http client
+     * @return Header value, null if absent
+     */
+    public String getHeader(String name) {
+        return this.headers == null ? null : this.headers.get(name);
+    }
+
     public String getBody() {
+        if (this.body == null && this.bodyBytes != null) {
+            this.body = new String(this.bodyBytes, StandardCharsets.UTF_8);
+        }
         return this.body;
     }
 
     public void setBody(String body) {
         this.body = body;
+        this.bodyBytes = null;
+    }
+
+    /**
+     * @return Read-only view of the body bytes, empty if there is no body
+     */
+    public ByteBuffer getBodyBuffer() {
+        return ByteBuffer.wrap(getBodyBytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return Stream of the body bytes, without decoding the body as a String
+     */
+    public InputStream getBodyStream() {
+        return new ByteArrayInputStream(getBodyBytes());
+    }
+
+    /**
+     * @return UTF-8 reader of the body, for streaming parsers
+     */
+    public Reader getBodyReader() {
+        return new InputStreamReader(getBodyStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Length of the body in bytes
+     */
+    public int getBodyLength() {
+        return getBodyBytes().length;
     }
 
     public boolean isSuccess() {
         return this.statusCode >= 200 && this.statusCode < 300;
     }
+
+    private byte[] getBodyBytes() {
+        if (this.bodyBytes == null) {
+            this.bodyBytes = this.body == null ? new byte[0] : this.body.getBytes(StandardCharsets.UTF_8);
+        }
+        return this.bodyBytes;
+    }
 }
@@ -4,24 +4,67 @@ import com.cloud_idaas.core.credential.IDaaSTokenResponse;
 import com.cloud_idaas.core.domain.DeviceCodeResponse;
 import com.cloud_idaas.core.domain.constants.ClientAssertionType;
 import com.cloud_idaas.core.domain.constants.HttpConstants;
+import com.cloud_idaas.core.domain.constants.MetricsConstants;
 import com.cloud_idaas.core.domain.constants.OAuth2Constants;
 import com.cloud_idaas.core.exception.ClientException;
+import com.cloud_idaas.core.exception.HttpException;
+import com.cloud_idaas.core.exception.ServerException;
+import com.cloud_idaas.core.metrics.MetricsRegistry;
+import com.cloud_idaas.core.metrics.MetricsUtil;
+import com.cloud_idaas.core.metrics.Timer;
+import com.cloud_idaas.core.util.AsyncExecutorUtil;
 import com.cloud_idaas.core.util.JSONUtil;
+import com.cloud_idaas.core.util.SchedulerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class OAuth2TokenUtil {
 
     private static final String DEFAULT_GRANT_TYPE = OAuth2Constants.CLIENT_CREDENTIALS_GRANT_TYPE_VALUE;
 
-    private static final String AUTHORIZATION_PENDING = "authorization_pending";
+    private static final HttpClient HTTP_CLIENT = HttpClientFactory.getDefaultHttpClient();
 
-    private static final String SLOW_DOWN = "slow_down";
+    // Retries of the requests carrying one-shot credentials, resent with a fresh credential, share the budget of the client
+    private static final RetryPolicy RETRY_POLICY = HTTP_CLIENT.getRetryPolicy();
 
-    private static final HttpClient HTTP_CLIENT = HttpClientFactory.getDefaultHttpClient();
+    private static final Logger LOGGER = LoggerFactory.getLogger(OAuth2TokenUtil.class);
+
+    private static volatile TokenRequestTimers tokenRequestTimers = new TokenRequestTimers(MetricsUtil.getRegistry());
 
     public static IDaaSTokenResponse getTokenWithClientSecretBasic(String clientId, String clientSecret,
                                                                    String tokenEndpoint, String scope) {
+        long start = System.nanoTime();
+        HttpResponse response;
+        try {
+            response = HTTP_CLIENT.send(buildClientSecretBasicRequest(clientId, clientSecret, tokenEndpoint, scope));
+        } catch (RuntimeException e) {
+            recordTokenRequest(DEFAULT_GRANT_TYPE, MetricsConstants.OUTCOME_FAILURE, start);
+            throw e;
+        }
+        recordTokenRequest(DEFAULT_GRANT_TYPE, MetricsConstants.OUTCOME_SUCCESS, start);
+        IDaaSTokenResponse oidcTokenCredential = JSONUtil.parseObject(response.getBodyReader(), IDaaSTokenResponse.class);
+        return oidcTokenCredential;
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> getTokenWithClientSecretBasicAsync(String clientId, String clientSecret,
+                                                                                           String tokenEndpoint, String scope) {
+        long start = System.nanoTime();
+        return HTTP_CLIENT.sendAsync(buildClientSecretBasicRequest(clientId, clientSecret, tokenEndpoint, scope))
+                .whenComplete((response, failure) -> recordTokenRequest(DEFAULT_GRANT_TYPE,
+                        failure == null ? MetricsConstants.OUTCOME_SUCCESS : MetricsConstants.OUTCOME_FAILURE, start))
+                .thenApply(response -> JSONUtil.parseObject(response.getBodyReader(), IDaaSTokenResponse.class));
+    }
+
+    private static HttpRequest buildClientSecretBasicRequest(String clientId, String clientSecret,
+                                                             String tokenEndpoint, String scope) {
         Map<String, List<String>> headers = new HashMap<>();
         headers.put(HttpConstants.CONTENT_TYPE_HEADER, Collections.singletonList(ContentType.FORM.getType()));
         String credential = clientId + HttpConstants.COLON + clientSecret;
@@ -30,66 +73,270 @@ public class OAuth2TokenUtil {
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(DEFAULT_GRANT_TYPE));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        HttpRequest request = new HttpRequest.Builder()
+        return new HttpRequest.Builder()
                 .url(tokenEndpoint)
                 .httpMethod(HttpMethod.POST)
                 .headers(headers)
                 .formBody(formBody)
                 .contentType(ContentType.FORM)
+                .idempotent(true)
                 .build();
-        HttpResponse response = HTTP_CLIENT.send(request);
-        IDaaSTokenResponse oidcTokenCredential = JSONUtil.parseObject(response.getBody(), IDaaSTokenResponse.class);
-        return oidcTokenCredential;
     }
 
     public static IDaaSTokenResponse getTokenWithClientSecretPost(String clientId, String clientSecret,
                                                                   String tokenEndpoint, String scope) {
+        return postTokenEndpoint(buildTokenWithClientSecretPostFormBody(clientId, clientSecret, scope), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> getTokenWithClientSecretPostAsync(String clientId, String clientSecret,
+                                                                                          String tokenEndpoint, String scope) {
+        return postTokenEndpointAsync(buildTokenWithClientSecretPostFormBody(clientId, clientSecret, scope), tokenEndpoint);
+    }
+
+    private static Map<String, List<String>> buildTokenWithClientSecretPostFormBody(String clientId, String clientSecret, String scope) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.CLIENT_SECRET, Collections.singletonList(clientSecret));
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(DEFAULT_GRANT_TYPE));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
     }
 
     public static IDaaSTokenResponse postTokenEndpoint(Map<String, List<String>> formBody, String tokenEndpoint) {
+        return sendTokenRequest(buildTokenEndpointRequest(formBody, tokenEndpoint), getGrantType(formBody));
+    }
+
+    /**
+     * Post the token endpoint asynchronously, no thread is held while the request is in flight
+     *
+     * @param formBody      Form body of the token request
+     * @param tokenEndpoint Token endpoint
+     * @return Future of the token response, completed with null if the device authorization is still pending
+     */
+    public static CompletableFuture<IDaaSTokenResponse> postTokenEndpointAsync(Map<String, List<String>> formBody, String tokenEndpoint) {
+        return sendTokenRequestAsync(buildTokenEndpointRequest(formBody, tokenEndpoint), getGrantType(formBody));
+    }
+
+    /**
+     * Request a token with a precompiled request, only the dynamic parameter is encoded.
+     * A request that is not idempotent, e.g. carrying a client assertion with a single-use jti, is never resent as is,
+     * it is retried after a transient failure with a new value of the dynamic parameter.
+     *
+     * @param template             Token request template of the provider
+     * @param dynamicValueSupplier Supplier of the value of the dynamic parameter, e.g. the client assertion
+     * @return Token response
+     */
+    public static IDaaSTokenResponse getToken(TokenRequestTemplate template, Supplier<String> dynamicValueSupplier) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return sendTokenRequest(template.toHttpRequest(dynamicValueSupplier.get()), template.getGrantType());
+            } catch (RuntimeException e) {
+                if (template.isIdempotent() || !isTransientFailure(e) || !RETRY_POLICY.tryAcquireRetry(attempt)) {
+                    throw e;
+                }
+                LOGGER.warn("Token request to {} failed: {}, retry attempt {} with a new credential",
+                        template.getTokenEndpoint(), e.getMessage(), attempt + 1);
+            }
+            try {
+                Thread.sleep(RETRY_POLICY.computeBackoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpException("Interrupted while waiting to retry request", e);
+            }
+        }
+    }
+
+    /**
+     * Request a token asynchronously with a precompiled request, only the dynamic parameter is encoded.
+     * A request that is not idempotent is retried after a transient failure with a new value of the dynamic parameter,
+     * resolved on the shared executor of the SDK.
+     *
+     * @param template             Token request template of the provider
+     * @param dynamicValueSupplier Supplier of the value of the dynamic parameter, e.g. the client assertion
+     * @return Future of the token response
+     */
+    public static CompletableFuture<IDaaSTokenResponse> getTokenAsync(TokenRequestTemplate template, Supplier<String> dynamicValueSupplier) {
+        CompletableFuture<IDaaSTokenResponse> result = new CompletableFuture<>();
+        sendTemplateAttemptAsync(template, dynamicValueSupplier, 0, result);
+        return result;
+    }
+
+    private static void sendTemplateAttemptAsync(TokenRequestTemplate template, Supplier<String> dynamicValueSupplier, int attempt,
+                                                 CompletableFuture<IDaaSTokenResponse> result) {
+        if (result.isDone()) {
+            return;
+        }
+        final HttpRequest request;
+        try {
+            request = template.toHttpRequest(dynamicValueSupplier.get());
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        sendTokenRequestAsync(request, template.getGrantType()).whenComplete((token, failure) -> {
+            if (failure == null) {
+                result.complete(token);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (!template.isIdempotent() && isTransientFailure(cause) && !result.isDone() && RETRY_POLICY.tryAcquireRetry(attempt)) {
+                LOGGER.warn("Token request to {} failed: {}, retry attempt {} with a new credential",
+                        template.getTokenEndpoint(), cause.getMessage(), attempt + 1);
+                // Resolving the credential may block, e.g. to fetch an attested document, so it does not run on the scheduler
+                SchedulerUtil.schedule(() -> AsyncExecutorUtil.getExecutor().execute(
+                                () -> sendTemplateAttemptAsync(template, dynamicValueSupplier, attempt + 1, result)),
+                        RETRY_POLICY.computeBackoff(attempt), TimeUnit.MILLISECONDS);
+                return;
+            }
+            result.completeExceptionally(cause);
+        });
+    }
+
+    /**
+     * A server error, a read timeout or a failed connection may be transient, client errors are not
+     */
+    private static boolean isTransientFailure(Throwable failure) {
+        return failure instanceof ServerException || failure instanceof HttpException;
+    }
+
+    private static IDaaSTokenResponse sendTokenRequest(HttpRequest request, String grantType) {
+        long start = System.nanoTime();
+        HttpResponse response;
+        try {
+            response = HTTP_CLIENT.send(request);
+        } catch (ClientException e){
+            if (!isPendingError(e, true)) {
+                recordTokenRequest(grantType, MetricsConstants.OUTCOME_FAILURE, start);
+                throw e;
+            }
+            recordTokenRequest(grantType, MetricsConstants.OUTCOME_PENDING, start);
+            return null;
+        } catch (RuntimeException e) {
+            recordTokenRequest(grantType, MetricsConstants.OUTCOME_FAILURE, start);
+            throw e;
+        }
+        recordTokenRequest(grantType, MetricsConstants.OUTCOME_SUCCESS, start);
+        IDaaSTokenResponse oidcTokenCredential = JSONUtil.parseObject(response.getBodyReader(), IDaaSTokenResponse.class);
+        return oidcTokenCredential;
+    }
+
+    private static CompletableFuture<IDaaSTokenResponse> sendTokenRequestAsync(HttpRequest request, String grantType) {
+        return sendTokenRequestAsync(request, grantType, true);
+    }
+
+    private static CompletableFuture<IDaaSTokenResponse> sendTokenRequestAsync(HttpRequest request, String grantType,
+                                                                               boolean slowDownPending) {
+        long start = System.nanoTime();
+        return HTTP_CLIENT.sendAsync(request)
+                .handle((response, failure) -> {
+                    if (failure != null) {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                        if (cause instanceof ClientException && isPendingError((ClientException) cause, slowDownPending)) {
+                            recordTokenRequest(grantType, MetricsConstants.OUTCOME_PENDING, start);
+                            return null;
+                        }
+                        recordTokenRequest(grantType, MetricsConstants.OUTCOME_FAILURE, start);
+                        throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+                    }
+                    recordTokenRequest(grantType, MetricsConstants.OUTCOME_SUCCESS, start);
+                    return JSONUtil.parseObject(response.getBodyReader(), IDaaSTokenResponse.class);
+                });
+    }
+
+    private static HttpRequest buildTokenEndpointRequest(Map<String, List<String>> formBody, String tokenEndpoint) {
         Map<String, List<String>> headers = new HashMap<>();
         headers.put(HttpConstants.CONTENT_TYPE_HEADER, Collections.singletonList(ContentType.FORM.getType()));
-        HttpRequest httpRequest = new HttpRequest.Builder()
+        return new HttpRequest.Builder()
                 .url(tokenEndpoint)
                 .httpMethod(HttpMethod.POST)
                 .headers(headers)
                 .formBody(formBody)
                 .contentType(ContentType.FORM)
+                .idempotent(isIdempotentGrant(formBody))
                 .build();
-        HttpResponse response;
-        try {
-            response = HTTP_CLIENT.send(httpRequest);
-        } catch (ClientException e){
-            if (!AUTHORIZATION_PENDING.equals(e.getErrorCode()) && !SLOW_DOWN.equals(e.getErrorCode())) {
-                throw e;
-            }
-            return null;
+    }
+
+    /**
+     * Requesting a token with client credentials or token exchange has no side effect and can be retried,
+     * refresh tokens and device codes may be consumed by the first attempt, and so may client assertions
+     * whose single-use jti makes a resent request a replay.
+     */
+    private static boolean isIdempotentGrant(Map<String, List<String>> formBody) {
+        if (formBody.containsKey(OAuth2Constants.CLIENT_ASSERTION)) {
+            return false;
         }
-        String responseBody = response.getBody();
-        IDaaSTokenResponse oidcTokenCredential = JSONUtil.parseObject(responseBody, IDaaSTokenResponse.class);
-        return oidcTokenCredential;
+        List<String> grantType = formBody.get(OAuth2Constants.GRANT_TYPE);
+        return grantType != null && (grantType.contains(OAuth2Constants.CLIENT_CREDENTIALS_GRANT_TYPE_VALUE)
+                || grantType.contains(OAuth2Constants.TOKEN_EXCHANGE_GRANT_TYPE_VALUE));
+    }
+
+    private static String getGrantType(Map<String, List<String>> formBody) {
+        List<String> grantType = formBody.get(OAuth2Constants.GRANT_TYPE);
+        return grantType == null || grantType.isEmpty() ? "unknown" : grantType.get(0);
+    }
+
+    /**
+     * Record the latency of a token request, tagged with its grant type and outcome
+     */
+    private static void recordTokenRequest(String grantType, String outcome, long start) {
+        tokenRequestTimer(grantType, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Timers are resolved once per grant type and outcome, and again if another registry is set
+     */
+    private static Timer tokenRequestTimer(String grantType, String outcome) {
+        TokenRequestTimers timers = tokenRequestTimers;
+        MetricsRegistry registry = MetricsUtil.getRegistry();
+        if (timers.registry != registry) {
+            timers = new TokenRequestTimers(registry);
+            tokenRequestTimers = timers;
+        }
+        return timers.get(grantType, outcome);
+    }
+
+    private static boolean isPendingError(ClientException e, boolean slowDownPending) {
+        return OAuth2Constants.AUTHORIZATION_PENDING_ERROR.equals(e.getErrorCode())
+                || (slowDownPending && OAuth2Constants.SLOW_DOWN_ERROR.equals(e.getErrorCode()));
     }
 
     public static IDaaSTokenResponse getTokenWithClientAssertion(String clientId, String clientAssertion,
                                                                  String tokenEndpoint, String scope) {
+        return postTokenEndpoint(buildTokenWithClientAssertionFormBody(clientId, clientAssertion, scope), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> getTokenWithClientAssertionAsync(String clientId, String clientAssertion,
+                                                                                         String tokenEndpoint, String scope) {
+        return postTokenEndpointAsync(buildTokenWithClientAssertionFormBody(clientId, clientAssertion, scope), tokenEndpoint);
+    }
+
+    private static Map<String, List<String>> buildTokenWithClientAssertionFormBody(String clientId, String clientAssertion, String scope) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.CLIENT_ASSERTION_TYPE, Collections.singletonList(ClientAssertionType.OAUTH_JWT_BEARER));
         formBody.put(OAuth2Constants.CLIENT_ASSERTION, Collections.singletonList(clientAssertion));
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(DEFAULT_GRANT_TYPE));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
     }
 
     public static IDaaSTokenResponse getTokenWithPCA(String clientId, String applicationFederatedCredentialName,
                                                      String clientX509Certificate, String x509CertChains, String clientAssertion,
                                                      String tokenEndpoint, String scope) {
+        return postTokenEndpoint(
+                buildTokenWithPCAFormBody(clientId, applicationFederatedCredentialName, clientX509Certificate, x509CertChains, clientAssertion, scope), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> getTokenWithPCAAsync(String clientId, String applicationFederatedCredentialName,
+                                                                             String clientX509Certificate, String x509CertChains, String clientAssertion,
+                                                                             String tokenEndpoint, String scope) {
+        return postTokenEndpointAsync(
+                buildTokenWithPCAFormBody(clientId, applicationFederatedCredentialName, clientX509Certificate, x509CertChains, clientAssertion, scope), tokenEndpoint);
+    }
+
+    private static Map<String, List<String>> buildTokenWithPCAFormBody(String clientId, String applicationFederatedCredentialName,
+                                                                       String clientX509Certificate, String x509CertChains,
+                                                                       String clientAssertion, String scope) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.APPLICATION_FEDERATED_CREDENTIAL_NAME, Collections.singletonList(applicationFederatedCredentialName));
@@ -99,12 +346,25 @@ public class OAuth2TokenUtil {
         formBody.put(OAuth2Constants.X509_CERT_CHAINS, Collections.singletonList(x509CertChains));
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(DEFAULT_GRANT_TYPE));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
     }
 
     public static IDaaSTokenResponse getTokenWithPKCS7AttestedDocument(String clientId, String applicationFederatedCredentialName,
                                                                        String pkcs7AttestedDocument,
                                                                        String tokenEndpoint, String scope) {
+        return postTokenEndpoint(
+                buildTokenWithPKCS7AttestedDocumentFormBody(clientId, applicationFederatedCredentialName, pkcs7AttestedDocument, scope), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> getTokenWithPKCS7AttestedDocumentAsync(String clientId, String applicationFederatedCredentialName,
+                                                                                               String pkcs7AttestedDocument,
+                                                                                               String tokenEndpoint, String scope) {
+        return postTokenEndpointAsync(
+                buildTokenWithPKCS7AttestedDocumentFormBody(clientId, applicationFederatedCredentialName, pkcs7AttestedDocument, scope), tokenEndpoint);
+    }
+
+    private static Map<String, List<String>> buildTokenWithPKCS7AttestedDocumentFormBody(String clientId, String applicationFederatedCredentialName,
+                                                                                         String pkcs7AttestedDocument, String scope) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.APPLICATION_FEDERATED_CREDENTIAL_NAME, Collections.singletonList(applicationFederatedCredentialName));
@@ -112,12 +372,25 @@ public class OAuth2TokenUtil {
         formBody.put(OAuth2Constants.CLIENT_ASSERTION, Collections.singletonList(pkcs7AttestedDocument));
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(DEFAULT_GRANT_TYPE));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
     }
 
     public static IDaaSTokenResponse getTokenWithOIDCFederatedCredential(String clientId, String applicationFederatedCredentialName,
                                                                          String oidcToken,
                                                                          String tokenEndpoint, String scope) {
+        return postTokenEndpoint(
+                buildTokenWithOIDCFederatedCredentialFormBody(clientId, applicationFederatedCredentialName, oidcToken, scope), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> getTokenWithOIDCFederatedCredentialAsync(String clientId, String applicationFederatedCredentialName,
+                                                                                                 String oidcToken,
+                                                                                                 String tokenEndpoint, String scope) {
+        return postTokenEndpointAsync(
+                buildTokenWithOIDCFederatedCredentialFormBody(clientId, applicationFederatedCredentialName, oidcToken, scope), tokenEndpoint);
+    }
+
+    private static Map<String, List<String>> buildTokenWithOIDCFederatedCredentialFormBody(String clientId, String applicationFederatedCredentialName,
+                                                                                           String oidcToken, String scope) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.APPLICATION_FEDERATED_CREDENTIAL_NAME, Collections.singletonList(applicationFederatedCredentialName));
@@ -125,11 +398,95 @@ public class OAuth2TokenUtil {
         formBody.put(OAuth2Constants.CLIENT_ASSERTION, Collections.singletonList(oidcToken));
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(DEFAULT_GRANT_TYPE));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
+    }
+
+    /**
+     * Template of the client_secret_post request, the client secret is the dynamic parameter
+     */
+    public static TokenRequestTemplate buildClientSecretPostTemplate(String clientId, String tokenEndpoint, String scope) {
+        return clientCredentialsTemplate(tokenEndpoint, OAuth2Constants.CLIENT_SECRET)
+                .staticParameter(OAuth2Constants.CLIENT_ID, clientId)
+                .staticParameter(OAuth2Constants.SCOPE, scope)
+                .build();
+    }
+
+    /**
+     * Template of the client assertion request, the signed assertion is the dynamic parameter
+     */
+    public static TokenRequestTemplate buildClientAssertionTemplate(String clientId, String tokenEndpoint, String scope) {
+        return clientCredentialsTemplate(tokenEndpoint, OAuth2Constants.CLIENT_ASSERTION)
+                .staticParameter(OAuth2Constants.CLIENT_ID, clientId)
+                .staticParameter(OAuth2Constants.CLIENT_ASSERTION_TYPE, ClientAssertionType.OAUTH_JWT_BEARER)
+                .staticParameter(OAuth2Constants.SCOPE, scope)
+                .build();
+    }
+
+    /**
+     * Template of the PCA request, the certificate and its chains are encoded once, the signed assertion is the dynamic parameter
+     */
+    public static TokenRequestTemplate buildPCATemplate(String clientId, String applicationFederatedCredentialName,
+                                                        String clientX509Certificate, String x509CertChains,
+                                                        String tokenEndpoint, String scope) {
+        return clientCredentialsTemplate(tokenEndpoint, OAuth2Constants.CLIENT_ASSERTION)
+                .staticParameter(OAuth2Constants.CLIENT_ID, clientId)
+                .staticParameter(OAuth2Constants.APPLICATION_FEDERATED_CREDENTIAL_NAME, applicationFederatedCredentialName)
+                .staticParameter(OAuth2Constants.CLIENT_ASSERTION_TYPE, ClientAssertionType.PRIVATE_CA_JWT_BEARER)
+                .staticParameter(OAuth2Constants.CLIENT_X509_CERTIFICATE, clientX509Certificate)
+                .staticParameter(OAuth2Constants.X509_CERT_CHAINS, x509CertChains)
+                .staticParameter(OAuth2Constants.SCOPE, scope)
+                .build();
+    }
+
+    /**
+     * Template of the PKCS7 attested document request, the attested document is the dynamic parameter
+     */
+    public static TokenRequestTemplate buildPKCS7AttestedDocumentTemplate(String clientId, String applicationFederatedCredentialName,
+                                                                          String tokenEndpoint, String scope) {
+        return clientCredentialsTemplate(tokenEndpoint, OAuth2Constants.CLIENT_ASSERTION)
+                .staticParameter(OAuth2Constants.CLIENT_ID, clientId)
+                .staticParameter(OAuth2Constants.APPLICATION_FEDERATED_CREDENTIAL_NAME, applicationFederatedCredentialName)
+                .staticParameter(OAuth2Constants.CLIENT_ASSERTION_TYPE, ClientAssertionType.PKCS7_BEARER)
+                .staticParameter(OAuth2Constants.SCOPE, scope)
+                .build();
+    }
+
+    /**
+     * Template of the OIDC federated credential request, the OIDC token is the dynamic parameter
+     */
+    public static TokenRequestTemplate buildOIDCFederatedCredentialTemplate(String clientId, String applicationFederatedCredentialName,
+                                                                            String tokenEndpoint, String scope) {
+        return clientCredentialsTemplate(tokenEndpoint, OAuth2Constants.CLIENT_ASSERTION)
+                .staticParameter(OAuth2Constants.CLIENT_ID, clientId)
+                .staticParameter(OAuth2Constants.APPLICATION_FEDERATED_CREDENTIAL_NAME, applicationFederatedCredentialName)
+                .staticParameter(OAuth2Constants.CLIENT_ASSERTION_TYPE, ClientAssertionType.OIDC_BEARER)
+                .staticParameter(OAuth2Constants.SCOPE, scope)
+                .build();
+    }
+
+    /**
+     * Client credentials template, only a client secret can be resent as is, an assertion or attested document is single use
+     */
+    private static TokenRequestTemplate.Builder clientCredentialsTemplate(String tokenEndpoint, String dynamicParameter) {
+        return TokenRequestTemplate.builder()
+                .tokenEndpoint(tokenEndpoint)
+                .grantType(DEFAULT_GRANT_TYPE)
+                .idempotent(!OAuth2Constants.CLIENT_ASSERTION.equals(dynamicParameter))
+                .staticParameter(OAuth2Constants.GRANT_TYPE, DEFAULT_GRANT_TYPE)
+                .dynamicParameter(dynamicParameter);
     }
 
     public static IDaaSTokenResponse tokenExchange(String audience, String subjectToken,
                                                    String tokenEndpoint, String scope) {
+        return postTokenEndpoint(buildTokenExchangeFormBody(audience, subjectToken, scope), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> tokenExchangeAsync(String audience, String subjectToken,
+                                                                           String tokenEndpoint, String scope) {
+        return postTokenEndpointAsync(buildTokenExchangeFormBody(audience, subjectToken, scope), tokenEndpoint);
+    }
+
+    private static Map<String, List<String>> buildTokenExchangeFormBody(String audience, String subjectToken, String scope) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(OAuth2Constants.TOKEN_EXCHANGE_GRANT_TYPE_VALUE));
         formBody.put(OAuth2Constants.AUDIENCE, Collections.singletonList(audience));
@@ -137,40 +494,104 @@ public class OAuth2TokenUtil {
         formBody.put(OAuth2Constants.SUBJECT_TOKEN_TYPE, Collections.singletonList(OAuth2Constants.SUBJECT_TOKEN_TYPE_VALUE));
         formBody.put(OAuth2Constants.REQUESTED_TOKEN_TYPE, Collections.singletonList(OAuth2Constants.REQUESTED_TOKEN_TYPE_VALUE));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
     }
 
     public static DeviceCodeResponse getDeviceCode(String clientId, String scope, String deviceAuthorization){
+        HttpResponse httpResponse = HTTP_CLIENT.send(buildDeviceCodeRequest(clientId, scope, deviceAuthorization));
+        return JSONUtil.parseObject(httpResponse.getBodyReader(), DeviceCodeResponse.class);
+    }
+
+    public static CompletableFuture<DeviceCodeResponse> getDeviceCodeAsync(String clientId, String scope, String deviceAuthorization){
+        return HTTP_CLIENT.sendAsync(buildDeviceCodeRequest(clientId, scope, deviceAuthorization))
+                .thenApply(httpResponse -> JSONUtil.parseObject(httpResponse.getBodyReader(), DeviceCodeResponse.class));
+    }
+
+    private static HttpRequest buildDeviceCodeRequest(String clientId, String scope, String deviceAuthorization){
         Map<String, List<String>> headers = new HashMap<>();
         headers.put(HttpConstants.CONTENT_TYPE_HEADER, Collections.singletonList(ContentType.FORM.getType()));
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.SCOPE, Collections.singletonList(scope));
-        HttpRequest request = new HttpRequest.Builder()
+        return new HttpRequest.Builder()
                 .url(deviceAuthorization)
                 .httpMethod(HttpMethod.POST)
                 .headers(headers)
                 .formBody(formBody)
                 .contentType(ContentType.FORM)
                 .build();
-        HttpResponse httpResponse = HTTP_CLIENT.send(request);
-        return JSONUtil.parseObject(httpResponse.getBody(), DeviceCodeResponse.class);
     }
 
     public static IDaaSTokenResponse getTokenByDeviceCode(String clientId, String deviceCode, String tokenEndpoint) {
+        return postTokenEndpoint(buildTokenByDeviceCodeFormBody(clientId, deviceCode), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> getTokenByDeviceCodeAsync(String clientId, String deviceCode, String tokenEndpoint) {
+        return postTokenEndpointAsync(buildTokenByDeviceCodeFormBody(clientId, deviceCode), tokenEndpoint);
+    }
+
+    /**
+     * Poll the token endpoint once with a device code, telling a slow down request apart from a pending authorization
+     *
+     * @param clientId      Client ID
+     * @param deviceCode    Device code
+     * @param tokenEndpoint Token endpoint
+     * @return Future of the token response, completed with null if the authorization is still pending, or exceptionally
+     * with a {@link ClientException} of error code slow_down if the client must increase its polling interval
+     */
+    public static CompletableFuture<IDaaSTokenResponse> pollTokenByDeviceCodeAsync(String clientId, String deviceCode, String tokenEndpoint) {
+        Map<String, List<String>> formBody = buildTokenByDeviceCodeFormBody(clientId, deviceCode);
+        return sendTokenRequestAsync(buildTokenEndpointRequest(formBody, tokenEndpoint), getGrantType(formBody), false);
+    }
+
+    private static Map<String, List<String>> buildTokenByDeviceCodeFormBody(String clientId, String deviceCode) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(OAuth2Constants.DEVICE_CODE_GRANT_TYPE_VALUE));
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.DEVICE_CODE, Collections.singletonList(deviceCode));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
     }
 
     public static IDaaSTokenResponse refreshToken(String clientId, String refreshToken, String tokenEndpoint) {
+        return postTokenEndpoint(buildRefreshTokenFormBody(clientId, refreshToken), tokenEndpoint);
+    }
+
+    public static CompletableFuture<IDaaSTokenResponse> refreshTokenAsync(String clientId, String refreshToken, String tokenEndpoint) {
+        return postTokenEndpointAsync(buildRefreshTokenFormBody(clientId, refreshToken), tokenEndpoint);
+    }
+
+    private static Map<String, List<String>> buildRefreshTokenFormBody(String clientId, String refreshToken) {
         Map<String, List<String>> formBody = new HashMap<>();
         formBody.put(OAuth2Constants.GRANT_TYPE, Collections.singletonList(OAuth2Constants.REFRESH_TOKEN_GRANT_TYPE_VALUE));
         formBody.put(OAuth2Constants.CLIENT_ID, Collections.singletonList(clientId));
         formBody.put(OAuth2Constants.REFRESH_TOKEN_PARAMETER, Collections.singletonList(refreshToken));
-        return postTokenEndpoint(formBody, tokenEndpoint);
+        return formBody;
     }
 
+    /**
+     * Token request timers of a registry by grant type and outcome
+     */
+    private static final class TokenRequestTimers {
+
+        private final MetricsRegistry registry;
+
+        private final ConcurrentMap<String, ConcurrentMap<String, Timer>> timers = new ConcurrentHashMap<>();
+
+        private TokenRequestTimers(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        private Timer get(String grantType, String outcome) {
+            ConcurrentMap<String, Timer> outcomeTimers = timers.get(grantType);
+            if (outcomeTimers == null) {
+                outcomeTimers = timers.computeIfAbsent(grantType, key -> new ConcurrentHashMap<>());
+            }
+            Timer timer = outcomeTimers.get(outcome);
+            if (timer == null) {
+                timer = outcomeTimers.computeIfAbsent(outcome, key -> registry.timer(MetricsConstants.TOKEN_REQUESTS,
+                        MetricsConstants.TAG_GRANT_TYPE, grantType, MetricsConstants.TAG_OUTCOME, outcome));
+            }
+            return timer;
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package com.cloud_idaas.core.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry policy of a http client
+ * Failed attempts are retried with capped exponential backoff and full jitter. Every retry is paid from a retry budget
+ * shared by all requests of the client, which is slowly refilled by successful requests, so that retries cannot amplify an outage.
+ * A retry policy instance holds the budget of one client: callers resending requests of that client on their own share it
+ * through {@link HttpClient#getRetryPolicy()}, but it must not be configured on several clients.
+ */
+public class RetryPolicy {
+
+    // Cost of a single retry in budget units, a success refills a tenth of it
+    private static final long RETRY_COST = 10L;
+
+    private static final long SUCCESS_REFILL = 1L;
+
+    private final int maxRetries;
+
+    private final long initialBackoff;
+
+    private final long maxBackoff;
+
+    private final long attemptTimeout;
+
+    private final long budgetCapacity;
+
+    private final AtomicLong budget;
+
+    private RetryPolicy(Builder builder) {
+        this.maxRetries = builder.maxRetries;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.attemptTimeout = builder.attemptTimeout;
+        this.budgetCapacity = builder.retryBudget * RETRY_COST;
+        this.budget = new AtomicLong(budgetCapacity);
+    }
+
+    /**
+     * Retry policy never retrying
+     *
+     * @return Retry policy
+     */
+    public static RetryPolicy none() {
+        return builder().maxRetries(0).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @return Timeout of a single attempt in milliseconds, 0 means the call timeout of the client applies
+     */
+    public long getAttemptTimeout() {
+        return attemptTimeout;
+    }
+
+    /**
+     * Check whether a failed response status can be retried
+     *
+     * @param statusCode Response status code
+     * @param idempotent Whether the request is idempotent
+     * @return True if the status can be retried
+     */
+    public boolean isRetryableStatus(int statusCode, boolean idempotent) {
+        if (!idempotent) {
+            return false;
+        }
+        return statusCode == 408 || statusCode == 429 || statusCode == 500
+                || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * Acquire the permission to retry the given attempt, paid from the retry budget
+     *
+     * @param attempt Number of the failed attempt, starting from 0
+     * @return True if the attempt may be retried
+     */
+    public boolean tryAcquireRetry(int attempt) {
+        if (attempt >= maxRetries) {
+            return false;
+        }
+        while (true) {
+            long current = budget.get();
+            if (current < RETRY_COST) {
+                return false;
+            }
+            if (budget.compareAndSet(current, current - RETRY_COST)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Refill the retry budget after a successful request
+     */
+    public void onSuccess() {
+        while (true) {
+            long current = budget.get();
+            if (current >= budgetCapacity || budget.compareAndSet(current, Math.min(budgetCapacity, current + SUCCESS_REFILL))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compute the backoff before retrying the given attempt, a random value between 0 and the capped exponential backoff
+     *
+     * @param attempt Number of the failed attempt, starting from 0
+     * @return Backoff in milliseconds
+     */
+    public long computeBackoff(int attempt) {
+        long exponentialBackoff = initialBackoff << Math.min(attempt, 30);
+        long cappedBackoff = exponentialBackoff <= 0 ? maxBackoff : Math.min(maxBackoff, exponentialBackoff);
+        return cappedBackoff <= 0 ? 0L : ThreadLocalRandom.current().nextLong(cappedBackoff + 1);
+    }
+
+    public static final class Builder {
+        private int maxRetries = 2;
+        private long initialBackoff = 100L;
+        private long maxBackoff = 2000L;
+        private long attemptTimeout = 0L;
+        private int retryBudget = 10;
+
+        public Builder maxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder initialBackoff(long initialBackoff) {
+            if (initialBackoff < 0) {
+                throw new IllegalArgumentException("initialBackoff must not be negative");
+            }
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        public Builder maxBackoff(long maxBackoff) {
+            if (maxBackoff < 0) {
+                throw new IllegalArgumentException("maxBackoff must not be negative");
+            }
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        public Builder attemptTimeout(long attemptTimeout) {
+            if (attemptTimeout < 0) {
+                throw new IllegalArgumentException("attemptTimeout must not be negative");
+            }
+            this.attemptTimeout = attemptTimeout;
+            return this;
+        }
+
+        /**
+         * @param retryBudget Maximum number of retries in a burst, refilled by one retry every ten successful requests
+         * @return Builder instance
+         */
+        public Builder retryBudget(int retryBudget) {
+            if (retryBudget < 0) {
+                throw new IllegalArgumentException("retryBudget must not be negative");
+            }
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -11,13 +11,38 @@ import java.util.List;
 
 public class SSLSocketFactoryProvider {
 
+    // Default size of the client session cache
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 100;
+
+    // Default timeout of cached client sessions in seconds
+    public static final int DEFAULT_SESSION_TIMEOUT = 86400;
+
     // Get SSLSocketFactory
     public static SSLSocketFactory getSSLSocketFactory(boolean unsafeIgnoreSSLCert) {
+        return getSSLContext(getX509TrustManager(unsafeIgnoreSSLCert), DEFAULT_SESSION_CACHE_SIZE, DEFAULT_SESSION_TIMEOUT)
+                .getSocketFactory();
+    }
+
+    /**
+     * Create a SSLContext trusting the given trust manager.
+     * TLS sessions are cached per SSLContext, so the returned context must be reused for all connections
+     * to resume sessions on reconnect instead of performing a full handshake.
+     *
+     * @param trustManager       Trust manager of the context
+     * @param sessionCacheSize   Size of the client session cache, 0 means no limit
+     * @param sessionTimeout     Timeout of cached client sessions in seconds, 0 means no limit
+     * @return SSLContext
+     */
+    public static SSLContext getSSLContext(X509TrustManager trustManager, int sessionCacheSize, int sessionTimeout) {
         try {
-            X509TrustManager compositeX509TrustManager = getX509TrustManager(unsafeIgnoreSSLCert);
             SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init((KeyManager[])null, new TrustManager[] {compositeX509TrustManager}, new SecureRandom());
-            return sslContext.getSocketFactory();
+            sslContext.init((KeyManager[])null, new TrustManager[] {trustManager}, new SecureRandom());
+            SSLSessionContext clientSessionContext = sslContext.getClientSessionContext();
+            if (clientSessionContext != null) {
+                clientSessionContext.setSessionCacheSize(sessionCacheSize);
+                clientSessionContext.setSessionTimeout(sessionTimeout);
+            }
+            return sslContext;
         } catch (Exception e) {
             throw new HttpException(e.getMessage(), e);
         }
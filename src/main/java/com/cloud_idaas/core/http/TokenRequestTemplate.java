@@ -0,0 +1,230 @@
+package com.cloud_idaas.core.http;
+
+import com.cloud_idaas.core.domain.constants.HttpConstants;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable token request of a credential provider. The parameters which never change for the provider, such as
+ * client_id, scope or the PCA certificate chains, are form encoded once, and every refresh only encodes the
+ * single dynamic parameter, e.g. the client assertion, into one contiguous body.
+ */
+public final class TokenRequestTemplate {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String tokenEndpoint;
+
+    private final String grantType;
+
+    private final boolean idempotent;
+
+    private final Map<String, List<String>> headers;
+
+    // Encoded static parameters followed by the separator and the name of the dynamic parameter: "a=1&b=2&name="
+    private final byte[] encodedPrefix;
+
+    private TokenRequestTemplate(Builder builder) {
+        if (builder.tokenEndpoint == null) {
+            throw new IllegalArgumentException("tokenEndpoint cannot be null");
+        }
+        if (builder.dynamicParameterName == null) {
+            throw new IllegalArgumentException("dynamicParameterName cannot be null");
+        }
+        this.tokenEndpoint = builder.tokenEndpoint;
+        this.grantType = builder.grantType;
+        this.idempotent = builder.idempotent;
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put(HttpConstants.CONTENT_TYPE_HEADER, Collections.singletonList(ContentType.FORM.getType()));
+        this.headers = Collections.unmodifiableMap(headers);
+
+        StringBuilder prefix = new StringBuilder();
+        for (String[] parameter : builder.staticParameters) {
+            prefix.append(formEncode(parameter[0])).append('=').append(formEncode(parameter[1])).append('&');
+        }
+        prefix.append(formEncode(builder.dynamicParameterName)).append('=');
+        this.encodedPrefix = prefix.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getTokenEndpoint() {
+        return tokenEndpoint;
+    }
+
+    public String getGrantType() {
+        return grantType;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * Encode the form body with the dynamic parameter
+     *
+     * @param dynamicValue Value of the dynamic parameter
+     * @return Form encoded body
+     */
+    public byte[] encodeBody(String dynamicValue) {
+        int valueLength = encodedLength(dynamicValue);
+        byte[] body = new byte[encodedPrefix.length + valueLength];
+        System.arraycopy(encodedPrefix, 0, body, 0, encodedPrefix.length);
+        writeEncoded(dynamicValue, body, encodedPrefix.length);
+        return body;
+    }
+
+    /**
+     * @param dynamicValue Value of the dynamic parameter
+     * @return Token request
+     */
+    public HttpRequest toHttpRequest(String dynamicValue) {
+        return new HttpRequest.Builder()
+                .url(tokenEndpoint)
+                .httpMethod(HttpMethod.POST)
+                .headers(headers)
+                .bodyBytes(encodeBody(dynamicValue))
+                .contentType(ContentType.FORM)
+                .idempotent(idempotent)
+                .build();
+    }
+
+    private static String formEncode(String value) {
+        byte[] encoded = new byte[encodedLength(value)];
+        writeEncoded(value, encoded, 0);
+        return new String(encoded, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * application/x-www-form-urlencoded: unreserved characters are kept, the space becomes '+',
+     * every other UTF-8 byte is percent encoded
+     */
+    private static boolean isUnreserved(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '-' || b == '.' || b == '_' || b == '*';
+    }
+
+    private static int encodedLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = codePointAt(value, i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                length += isUnreserved(codePoint) || codePoint == ' ' ? 1 : 3;
+            } else {
+                length += 3 * utf8Length(codePoint);
+            }
+        }
+        return length;
+    }
+
+    private static void writeEncoded(String value, byte[] target, int offset) {
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = codePointAt(value, i);
+            i += Character.charCount(codePoint);
+            if (isUnreserved(codePoint)) {
+                target[offset++] = (byte) codePoint;
+            } else if (codePoint == ' ') {
+                target[offset++] = '+';
+            } else if (codePoint < 0x80) {
+                offset = writePercentEncoded(codePoint, target, offset);
+            } else if (codePoint < 0x800) {
+                offset = writePercentEncoded(0xc0 | (codePoint >> 6), target, offset);
+                offset = writePercentEncoded(0x80 | (codePoint & 0x3f), target, offset);
+            } else if (codePoint < 0x10000) {
+                offset = writePercentEncoded(0xe0 | (codePoint >> 12), target, offset);
+                offset = writePercentEncoded(0x80 | ((codePoint >> 6) & 0x3f), target, offset);
+                offset = writePercentEncoded(0x80 | (codePoint & 0x3f), target, offset);
+            } else {
+                offset = writePercentEncoded(0xf0 | (codePoint >> 18), target, offset);
+                offset = writePercentEncoded(0x80 | ((codePoint >> 12) & 0x3f), target, offset);
+                offset = writePercentEncoded(0x80 | ((codePoint >> 6) & 0x3f), target, offset);
+                offset = writePercentEncoded(0x80 | (codePoint & 0x3f), target, offset);
+            }
+        }
+    }
+
+    /**
+     * Code point at the index, unpaired surrogates are replaced by '?' as String.getBytes does
+     */
+    private static int codePointAt(String value, int index) {
+        int codePoint = value.codePointAt(index);
+        return Character.isSurrogate((char) codePoint) && codePoint < 0x10000 ? '?' : codePoint;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static int writePercentEncoded(int b, byte[] target, int offset) {
+        target[offset++] = '%';
+        target[offset++] = (byte) HEX_DIGITS[b >> 4];
+        target[offset++] = (byte) HEX_DIGITS[b & 0xf];
+        return offset;
+    }
+
+    public static final class Builder {
+        private String tokenEndpoint;
+        private String grantType;
+        private boolean idempotent;
+        private final List<String[]> staticParameters = new ArrayList<>();
+        private String dynamicParameterName;
+
+        private Builder() {
+        }
+
+        public Builder tokenEndpoint(String tokenEndpoint) {
+            this.tokenEndpoint = tokenEndpoint;
+            return this;
+        }
+
+        /**
+         * @param grantType Grant type, only used to tag the token request metrics, the grant_type parameter is added as a static parameter
+         * @return Builder instance
+         */
+        public Builder grantType(String grantType) {
+            this.grantType = grantType;
+            return this;
+        }
+
+        public Builder idempotent(boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+
+        /**
+         * @param name  Parameter name
+         * @param value Parameter value, the parameter is left out if null
+         * @return Builder instance
+         */
+        public Builder staticParameter(String name, String value) {
+            if (value != null) {
+                this.staticParameters.add(new String[]{name, value});
+            }
+            return this;
+        }
+
+        /**
+         * @param dynamicParameterName Name of the parameter whose value changes on every request, e.g. client_assertion
+         * @return Builder instance
+         */
+        public Builder dynamicParameter(String dynamicParameterName) {
+            this.dynamicParameterName = dynamicParameterName;
+            return this;
+        }
+
+        public TokenRequestTemplate build() {
+            return new TokenRequestTemplate(this);
+        }
+    }
+}
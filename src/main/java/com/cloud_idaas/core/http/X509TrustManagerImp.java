@@ -1,7 +1,5 @@
 package com.cloud_idaas.core.http;
 
-import com.cloud_idaas.core.exception.HttpException;
-
 import javax.net.ssl.X509TrustManager;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
@@ -32,17 +30,20 @@ public class X509TrustManagerImp implements X509TrustManager{
     }
 
     @Override
-    public void checkServerTrusted(X509Certificate[] chain, String authType){
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
         if (!this.unsafeIgnoreSSLCert) {
+            CertificateException lastException = null;
             for(X509TrustManager trustManager : this.trustManagers) {
                 try {
                     trustManager.checkServerTrusted(chain, authType);
                     return;
                 } catch (CertificateException e) {
+                    lastException = e;
                 }
             }
 
-            throw new HttpException("None of the TrustManagers trust this certificate chain");
+            // A CertificateException lets the TLS handshake fail with a proper alert
+            throw new CertificateException("None of the TrustManagers trust this certificate chain", lastException);
         }
     }
 
@@ -6,11 +6,15 @@ import com.cloud_idaas.core.cache.RefreshResult;
 import com.cloud_idaas.core.cache.StaleValueBehavior;
 import com.cloud_idaas.core.cache.strategy.NonBlockingPrefetchStrategy;
 import com.cloud_idaas.core.cache.strategy.OneCallerBlocksPrefetchStrategy;
+import com.cloud_idaas.core.cache.strategy.RefreshLimiter;
+import com.cloud_idaas.core.cache.strategy.VirtualThreadPrefetchStrategy;
+import com.cloud_idaas.core.provider.AsyncRefreshCredentialProvider;
 import com.cloud_idaas.core.provider.RefreshCredentialProvider;
 
+import java.time.Duration;
 import java.util.function.Supplier;
 
-public abstract class AbstractRefreshedCredentialProvider<T> implements RefreshCredentialProvider<T> {
+public abstract class AbstractRefreshedCredentialProvider<T> implements RefreshCredentialProvider<T>, AutoCloseable {
 
     protected transient final CachedResultSupplier<T> cachedResultSupplier;
 
@@ -18,12 +22,36 @@ public abstract class AbstractRefreshedCredentialProvider<T> implements RefreshC
 
     protected AbstractRefreshedCredentialProvider(BuilderImpl<?, ?> builder) {
         this.asyncCredentialUpdateEnabled = builder.asyncCredentialUpdateEnabled;
-        PrefetchStrategy prefetchStrategy = this.asyncCredentialUpdateEnabled ? new NonBlockingPrefetchStrategy() : new OneCallerBlocksPrefetchStrategy();
+        PrefetchStrategy prefetchStrategy = this.asyncCredentialUpdateEnabled
+                ? createNonBlockingPrefetchStrategy(builder.refreshLimiter) : new OneCallerBlocksPrefetchStrategy();
         Supplier<RefreshResult<T>> refreshTokenCallable = this::refreshCredential;
-        this.cachedResultSupplier = new CachedResultSupplier.Builder<>(refreshTokenCallable)
+        CachedResultSupplier.Builder<T> cachedResultSupplierBuilder = new CachedResultSupplier.Builder<>(refreshTokenCallable)
                 .staleValueBehavior(builder.staleValueBehavior)
                 .prefetchStrategy(prefetchStrategy)
-                .build();
+                .proactiveRefreshEnabled(builder.proactiveRefreshEnabled)
+                .metricsName(getClass().getSimpleName());
+        if (this instanceof AsyncRefreshCredentialProvider) {
+            // Asynchronous refreshes release their thread while the request is in flight
+            AsyncRefreshCredentialProvider<T> asyncRefreshCredentialProvider = (AsyncRefreshCredentialProvider<T>) this;
+            cachedResultSupplierBuilder.asyncValueSupplier(asyncRefreshCredentialProvider::refreshCredentialAsync);
+        }
+        if (builder.refreshWaitTimeout != null) {
+            cachedResultSupplierBuilder.refreshWaitTimeout(builder.refreshWaitTimeout);
+        }
+        this.cachedResultSupplier = cachedResultSupplierBuilder.build();
+    }
+
+    /**
+     * Create the non-blocking prefetch strategy, running background refreshes on virtual threads when the JVM supports them
+     *
+     * @param refreshLimiter Limiter shared with other providers, null if the background refreshes are not limited
+     * @return Non-blocking prefetch strategy
+     */
+    private static PrefetchStrategy createNonBlockingPrefetchStrategy(RefreshLimiter refreshLimiter) {
+        if (VirtualThreadPrefetchStrategy.isSupported()) {
+            return new VirtualThreadPrefetchStrategy(refreshLimiter);
+        }
+        return new NonBlockingPrefetchStrategy(refreshLimiter);
     }
 
     public boolean isAsyncCredentialUpdateEnabled() {
@@ -34,10 +62,33 @@ public abstract class AbstractRefreshedCredentialProvider<T> implements RefreshC
         return cachedResultSupplier;
     }
 
+    /**
+     * Stop the proactive refresh of the credential
+     */
+    @Override
+    public void close() {
+        cachedResultSupplier.close();
+    }
+
     public interface Builder<ProviderT extends AbstractRefreshedCredentialProvider, BuilderT extends Builder<ProviderT, BuilderT>> {
 
         BuilderT asyncCredentialUpdateEnabled(boolean asyncCredentialUpdateEnabled);
 
+        /**
+         * Bound the concurrent background refreshes of all providers built with the same limiter.
+         * Without a limiter, the default, background refreshes are not bounded: the former cap of
+         * 100 concurrent refreshes shared by all providers no longer applies.
+         */
+        BuilderT refreshLimiter(RefreshLimiter refreshLimiter);
+
+        BuilderT refreshWaitTimeout(Duration refreshWaitTimeout);
+
+        /**
+         * Refresh the credential at its prefetch time on the shared scheduler, whether or not anyone is calling.
+         * Disabled by default, a failed proactive refresh is retried once the failure backoff has elapsed.
+         */
+        BuilderT proactiveRefreshEnabled(boolean proactiveRefreshEnabled);
+
         ProviderT build();
     }
 
@@ -46,6 +97,9 @@ public abstract class AbstractRefreshedCredentialProvider<T> implements RefreshC
 
         boolean asyncCredentialUpdateEnabled = false;
         StaleValueBehavior staleValueBehavior = StaleValueBehavior.STRICT;
+        RefreshLimiter refreshLimiter;
+        Duration refreshWaitTimeout;
+        boolean proactiveRefreshEnabled = false;
 
         protected BuilderImpl() {
         }
@@ -56,6 +110,24 @@ public abstract class AbstractRefreshedCredentialProvider<T> implements RefreshC
             return (BuilderT) this;
         }
 
+        @Override
+        public BuilderT refreshLimiter(RefreshLimiter refreshLimiter) {
+            this.refreshLimiter = refreshLimiter;
+            return (BuilderT) this;
+        }
+
+        @Override
+        public BuilderT refreshWaitTimeout(Duration refreshWaitTimeout) {
+            this.refreshWaitTimeout = refreshWaitTimeout;
+            return (BuilderT) this;
+        }
+
+        @Override
+        public BuilderT proactiveRefreshEnabled(boolean proactiveRefreshEnabled) {
+            this.proactiveRefreshEnabled = proactiveRefreshEnabled;
+            return (BuilderT) this;
+        }
+
         BuilderT staleValueBehavior(StaleValueBehavior staleValueBehavior) {
             this.staleValueBehavior = staleValueBehavior;
             return (BuilderT) this;
@@ -3,7 +3,11 @@ package com.cloud_idaas.core.implementation;
 import com.cloud_idaas.core.cache.RefreshResult;
 import com.cloud_idaas.core.credential.IDaaSCredential;
 import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import com.cloud_idaas.core.domain.constants.MetricsConstants;
 import com.cloud_idaas.core.http.OAuth2TokenUtil;
+import com.cloud_idaas.core.http.TokenRequestTemplate;
+import com.cloud_idaas.core.metrics.MetricsUtil;
+import com.cloud_idaas.core.provider.AsyncRefreshCredentialProvider;
 import com.cloud_idaas.core.provider.IDaaSCredentialProvider;
 import com.cloud_idaas.core.provider.JwtClientAssertionProvider;
 import com.cloud_idaas.core.provider.OidcTokenProvider;
@@ -13,13 +17,15 @@ import com.cloud_idaas.core.util.TokenAuthnMethod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.time.Instant;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
-public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialProvider<IDaaSCredential> implements IDaaSCredentialProvider {
+public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialProvider<IDaaSCredential> implements IDaaSCredentialProvider,
+        AsyncRefreshCredentialProvider<IDaaSCredential> {
 
-    private TokenAuthnMethod authnMethod = TokenAuthnMethod.CLIENT_SECRET_POST;
+    private volatile TokenAuthnMethod authnMethod = TokenAuthnMethod.CLIENT_SECRET_POST;
     private final String clientId;
     private final String scope;
     private final String tokenEndpoint;
@@ -45,6 +51,14 @@ public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialP
     private String clientX509Certificate;
     private String x509CertChains;
 
+    private final Object templateLock = new Object();
+
+    // Pre-encoded token request with the authn method it was built for, built on the first refresh
+    private volatile AuthnMethodTemplate tokenRequestTemplate;
+
+    // Expiry of the last issued token in epoch seconds, 0 before the first token is issued
+    private volatile long expiresAt;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(IDaaSMachineCredentialProvider.class);
 
     private IDaaSMachineCredentialProvider(IDaaSMachineCredentialProviderBuilder builder) {
@@ -72,6 +86,13 @@ public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialP
         this.oidcTokenProvider = builder.oidcTokenProvider;
         this.clientX509Certificate = builder.clientX509Certificate;
         this.x509CertChains = builder.x509CertChains;
+        // Only weakly referenced by the gauge, so that a discarded provider can still be garbage collected
+        WeakReference<IDaaSMachineCredentialProvider> providerReference = new WeakReference<>(this);
+        MetricsUtil.getRegistry().gauge(MetricsConstants.TOKEN_TIME_TO_EXPIRY, () -> {
+            IDaaSMachineCredentialProvider provider = providerReference.get();
+            return provider == null || provider.expiresAt == 0L
+                    ? Double.NaN : provider.expiresAt - System.currentTimeMillis() / 1000D;
+        }, MetricsConstants.TAG_CLIENT_ID, this.clientId, MetricsConstants.TAG_SCOPE, this.scope);
     }
 
     @Override
@@ -79,12 +100,18 @@ public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialP
         return this.getCachedResultSupplier().get();
     }
 
+    @Override
+    public CompletableFuture<IDaaSCredential> getCredentialAsync() {
+        return this.getCachedResultSupplier().getAsync();
+    }
+
     public TokenAuthnMethod getAuthnMethod() {
         return authnMethod;
     }
 
     public void setAuthnMethod(TokenAuthnMethod authnMethod) {
         this.authnMethod = authnMethod;
+        discardTokenRequestTemplate();
     }
 
     public String getClientId() {
@@ -121,6 +148,7 @@ public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialP
 
     public void setApplicationFederatedCredentialName(String applicationFederatedCredentialName) {
         this.applicationFederatedCredentialName = applicationFederatedCredentialName;
+        discardTokenRequestTemplate();
     }
 
     public Pkcs7AttestedDocumentProvider getAttestedDocumentProvider() {
@@ -145,6 +173,7 @@ public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialP
 
     public void setClientX509Certificate(String clientX509Certificate) {
         this.clientX509Certificate = clientX509Certificate;
+        discardTokenRequestTemplate();
     }
 
     public String getX509CertChains() {
@@ -153,82 +182,183 @@ public class IDaaSMachineCredentialProvider extends AbstractRefreshedCredentialP
 
     public void setX509CertChains(String x509CertChains) {
         this.x509CertChains = x509CertChains;
+        discardTokenRequestTemplate();
     }
 
     private IDaaSTokenResponse getTokenFromIDaaS() {
-        switch (authnMethod) {
-            case CLIENT_SECRET_BASIC:
-                if (clientSecretSupplier == null) {
-                    clientSecretSupplier = () -> System.getenv("ALIBABA_CLOUD_EIAM_APP_CLIENT_SECRET");
-                    if (StringUtil.isBlank(clientSecretSupplier.get())) {
-                        throw new IllegalArgumentException("clientSecret is blank");
-                    }
-                }
-                return OAuth2TokenUtil.getTokenWithClientSecretBasic(clientId, clientSecretSupplier.get(), tokenEndpoint, scope);
+        // Read once, so that the template and the credential of the request match even if the method is changed meanwhile
+        TokenAuthnMethod method = authnMethod;
+        if (method == TokenAuthnMethod.CLIENT_SECRET_BASIC) {
+            return OAuth2TokenUtil.getTokenWithClientSecretBasic(clientId, resolveClientSecret(), tokenEndpoint, scope);
+        }
+        return OAuth2TokenUtil.getToken(getTokenRequestTemplate(method), () -> resolveRequestCredential(method));
+    }
+
+    private CompletableFuture<IDaaSTokenResponse> getTokenFromIDaaSAsync() {
+        TokenAuthnMethod method = authnMethod;
+        if (method == TokenAuthnMethod.CLIENT_SECRET_BASIC) {
+            return OAuth2TokenUtil.getTokenWithClientSecretBasicAsync(clientId, resolveClientSecret(), tokenEndpoint, scope);
+        }
+        return OAuth2TokenUtil.getTokenAsync(getTokenRequestTemplate(method), () -> resolveRequestCredential(method));
+    }
+
+    /**
+     * @param method Authn method of the request
+     * @return Value of the dynamic parameter of the token request: the client secret, the client assertion,
+     * the attested document or the OIDC token depending on the authn method
+     */
+    private String resolveRequestCredential(TokenAuthnMethod method) {
+        switch (method) {
             case CLIENT_SECRET_POST:
-                if (clientSecretSupplier == null) {
-                    clientSecretSupplier = () -> System.getenv("ALIBABA_CLOUD_EIAM_APP_CLIENT_SECRET");
-                    if (StringUtil.isBlank(clientSecretSupplier.get())) {
-                        throw new IllegalArgumentException("clientSecret is blank");
-                    }
-                }
-                return OAuth2TokenUtil.getTokenWithClientSecretPost(clientId, clientSecretSupplier.get(), tokenEndpoint, scope);
+                return resolveClientSecret();
             case CLIENT_SECRET_JWT:
             case PRIVATE_KEY_JWT:
-                if (clientAssertionProvider == null) {
-                    throw new IllegalArgumentException("clientAssertionProvider is null.");
-                }
-                return OAuth2TokenUtil.getTokenWithClientAssertion(clientId, clientAssertionProvider.getClientAssertion(), tokenEndpoint, scope);
+                return resolveClientAssertion();
             case PKCS7:
-                if (StringUtil.isBlank(applicationFederatedCredentialName)) {
-                    throw new IllegalArgumentException("applicationFederatedCredentialName is blank");
-                }
-                if (attestedDocumentProvider == null) {
-                    throw new IllegalArgumentException("attestedDocumentProvider is null");
-                }
-                String pkcs7AttestedDocument = attestedDocumentProvider.getAttestedDocument();
-                return OAuth2TokenUtil.getTokenWithPKCS7AttestedDocument(clientId, applicationFederatedCredentialName, pkcs7AttestedDocument, tokenEndpoint,
-                        scope);
+                return resolveAttestedDocument();
             case OIDC:
-                if (StringUtil.isBlank(applicationFederatedCredentialName)) {
-                    throw new IllegalArgumentException("applicationFederatedCredentialName is blank");
-                }
-                if (oidcTokenProvider == null) {
-                    throw new IllegalArgumentException("oidcTokenProvider is null");
-                }
-                String oidcToken = oidcTokenProvider.getOidcToken();
-                return OAuth2TokenUtil.getTokenWithOIDCFederatedCredential(clientId, applicationFederatedCredentialName, oidcToken, tokenEndpoint, scope);
+                return resolveOidcToken();
             case PCA:
-                if (StringUtil.isBlank(applicationFederatedCredentialName)) {
-                    throw new IllegalArgumentException("applicationFederatedCredentialName is blank");
-                }
-                if (StringUtil.isBlank(clientX509Certificate)) {
-                    throw new IllegalArgumentException("clientX509Certificate is blank");
-                }
-                if (StringUtil.isBlank(x509CertChains)) {
-                    throw new IllegalArgumentException("x509CertChains is blank");
-                }
-                return OAuth2TokenUtil.getTokenWithPCA(clientId, applicationFederatedCredentialName, clientX509Certificate, x509CertChains,
-                        clientAssertionProvider.getClientAssertion(), tokenEndpoint, scope);
+                validatePcaParameters();
+                return clientAssertionProvider.getClientAssertion();
         }
         throw new UnsupportedOperationException("authn method is unsupported.");
     }
 
+    /**
+     * The static part of the token request is encoded once per configuration, e.g. the PCA certificate chains,
+     * the setters of the request parameters discard the template, and a template built for another authn method is rebuilt
+     *
+     * @param method Authn method of the request
+     * @return Template of the token request
+     */
+    private TokenRequestTemplate getTokenRequestTemplate(TokenAuthnMethod method) {
+        AuthnMethodTemplate template = tokenRequestTemplate;
+        if (template != null && template.authnMethod == method) {
+            return template.template;
+        }
+        synchronized (templateLock) {
+            template = tokenRequestTemplate;
+            if (template == null || template.authnMethod != method) {
+                template = new AuthnMethodTemplate(method, buildTokenRequestTemplate(method));
+                tokenRequestTemplate = template;
+            }
+            return template.template;
+        }
+    }
+
+    private TokenRequestTemplate buildTokenRequestTemplate(TokenAuthnMethod method) {
+        switch (method) {
+            case CLIENT_SECRET_POST:
+                return OAuth2TokenUtil.buildClientSecretPostTemplate(clientId, tokenEndpoint, scope);
+            case CLIENT_SECRET_JWT:
+            case PRIVATE_KEY_JWT:
+                return OAuth2TokenUtil.buildClientAssertionTemplate(clientId, tokenEndpoint, scope);
+            case PKCS7:
+                return OAuth2TokenUtil.buildPKCS7AttestedDocumentTemplate(clientId, applicationFederatedCredentialName, tokenEndpoint, scope);
+            case OIDC:
+                return OAuth2TokenUtil.buildOIDCFederatedCredentialTemplate(clientId, applicationFederatedCredentialName, tokenEndpoint, scope);
+            case PCA:
+                return OAuth2TokenUtil.buildPCATemplate(clientId, applicationFederatedCredentialName, clientX509Certificate, x509CertChains,
+                        tokenEndpoint, scope);
+        }
+        throw new UnsupportedOperationException("authn method is unsupported.");
+    }
+
+    private void discardTokenRequestTemplate() {
+        synchronized (templateLock) {
+            tokenRequestTemplate = null;
+        }
+    }
+
+    private String resolveClientSecret() {
+        if (clientSecretSupplier == null) {
+            clientSecretSupplier = () -> System.getenv("ALIBABA_CLOUD_EIAM_APP_CLIENT_SECRET");
+            if (StringUtil.isBlank(clientSecretSupplier.get())) {
+                throw new IllegalArgumentException("clientSecret is blank");
+            }
+        }
+        return clientSecretSupplier.get();
+    }
+
+    private String resolveClientAssertion() {
+        if (clientAssertionProvider == null) {
+            throw new IllegalArgumentException("clientAssertionProvider is null.");
+        }
+        return clientAssertionProvider.getClientAssertion();
+    }
+
+    private String resolveAttestedDocument() {
+        if (StringUtil.isBlank(applicationFederatedCredentialName)) {
+            throw new IllegalArgumentException("applicationFederatedCredentialName is blank");
+        }
+        if (attestedDocumentProvider == null) {
+            throw new IllegalArgumentException("attestedDocumentProvider is null");
+        }
+        return attestedDocumentProvider.getAttestedDocument();
+    }
+
+    private String resolveOidcToken() {
+        if (StringUtil.isBlank(applicationFederatedCredentialName)) {
+            throw new IllegalArgumentException("applicationFederatedCredentialName is blank");
+        }
+        if (oidcTokenProvider == null) {
+            throw new IllegalArgumentException("oidcTokenProvider is null");
+        }
+        return oidcTokenProvider.getOidcToken();
+    }
+
+    private void validatePcaParameters() {
+        if (StringUtil.isBlank(applicationFederatedCredentialName)) {
+            throw new IllegalArgumentException("applicationFederatedCredentialName is blank");
+        }
+        if (StringUtil.isBlank(clientX509Certificate)) {
+            throw new IllegalArgumentException("clientX509Certificate is blank");
+        }
+        if (StringUtil.isBlank(x509CertChains)) {
+            throw new IllegalArgumentException("x509CertChains is blank");
+        }
+    }
+
     public static IDaaSMachineCredentialProviderBuilder builder() {return new IDaaSMachineCredentialProviderBuilder();}
 
     @Override
     public RefreshResult<IDaaSCredential> refreshCredential() {
-        IDaaSTokenResponse tokenResponse = getTokenFromIDaaS();
+        return toRefreshResult(getTokenFromIDaaS());
+    }
+
+    @Override
+    public CompletableFuture<RefreshResult<IDaaSCredential>> refreshCredentialAsync() {
+        return getTokenFromIDaaSAsync().thenApply(this::toRefreshResult);
+    }
+
+    private RefreshResult<IDaaSCredential> toRefreshResult(IDaaSTokenResponse tokenResponse) {
         LOGGER.info("Machine Credential refresh, time: {}", Instant.now());
+        this.expiresAt = tokenResponse.resolveExpiresAt();
         // staleTime: 4/5 of expiresIn, prefetchTime: 2/3 of expiresIn
-        Instant staleTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 5));
-        Instant prefetchTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 3));
+        Instant staleTime = tokenResponse.resolveStaleTime();
+        Instant prefetchTime = tokenResponse.resolvePrefetchTime();
         return RefreshResult.builder((IDaaSCredential)tokenResponse)
                 .staleTime(staleTime)
                 .prefetchTime(prefetchTime)
                 .build();
     }
 
+    /**
+     * Token request template with the authn method it was built for
+     */
+    private static final class AuthnMethodTemplate {
+
+        private final TokenAuthnMethod authnMethod;
+
+        private final TokenRequestTemplate template;
+
+        private AuthnMethodTemplate(TokenAuthnMethod authnMethod, TokenRequestTemplate template) {
+            this.authnMethod = authnMethod;
+            this.template = template;
+        }
+    }
+
     public static final class IDaaSMachineCredentialProviderBuilder
             extends AbstractRefreshedCredentialProvider.BuilderImpl<IDaaSMachineCredentialProvider, IDaaSMachineCredentialProviderBuilder> {
         private String x509CertChains;
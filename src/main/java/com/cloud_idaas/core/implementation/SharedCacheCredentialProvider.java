@@ -0,0 +1,234 @@
+package com.cloud_idaas.core.implementation;
+
+import com.cloud_idaas.core.cache.RefreshResult;
+import com.cloud_idaas.core.cache.SharedTokenCache;
+import com.cloud_idaas.core.credential.IDaaSCredential;
+import com.cloud_idaas.core.domain.constants.ConfigPathConstants;
+import com.cloud_idaas.core.provider.IDaaSCredentialProvider;
+import com.cloud_idaas.core.provider.RefreshCredentialProvider;
+import com.cloud_idaas.core.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Credential provider sharing the token of a delegate with the other processes of the host, through a
+ * {@link SharedTokenCache}. When the shared token is due for refresh, the process locking its key first refreshes it
+ * with the delegate and publishes it, the other processes keep using the shared token and read the new one once published,
+ * so that processes with the same client configuration request a token once per host instead of once per process.
+ * If the cache file cannot be used, the delegate is called directly.
+ */
+public class SharedCacheCredentialProvider extends AbstractRefreshedCredentialProvider<IDaaSCredential> implements IDaaSCredentialProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedCacheCredentialProvider.class);
+
+    public static final Duration DEFAULT_LOCK_TIMEOUT = Duration.ofSeconds(10);
+
+    // While another process refreshes, the shared token is checked again after this delay
+    private static final long REFRESH_POLL_INTERVAL_MILLIS = 1000L;
+
+    private final RefreshCredentialProvider<IDaaSCredential> delegate;
+
+    private final String cacheFilePath;
+
+    private final long keyHash;
+
+    private final long lockTimeoutMillis;
+
+    private volatile SharedTokenCache sharedTokenCache;
+
+    private volatile boolean sharedTokenCacheUnavailable;
+
+    private SharedCacheCredentialProvider(SharedCacheCredentialProviderBuilder builder) {
+        super(builder);
+        if (builder.delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        if (StringUtil.isBlank(builder.clientId)) {
+            throw new IllegalArgumentException("clientId is blank");
+        }
+        if (StringUtil.isBlank(builder.scope)) {
+            throw new IllegalArgumentException("scope is blank");
+        }
+        this.delegate = builder.delegate;
+        this.cacheFilePath = StringUtil.isBlank(builder.cacheFilePath) ? defaultCacheFilePath() : builder.cacheFilePath;
+        this.keyHash = SharedTokenCache.hashKey(builder.clientId, builder.tokenEndpoint, builder.scope);
+        this.lockTimeoutMillis = builder.lockTimeout.toMillis();
+    }
+
+    public static SharedCacheCredentialProviderBuilder builder() {
+        return new SharedCacheCredentialProviderBuilder();
+    }
+
+    /**
+     * @return Cache file path from the CLOUD_IDAAS_SHARED_TOKEN_CACHE_PATH environment variable, or ~/.cloud_idaas/shared_token_cache
+     */
+    public static String defaultCacheFilePath() {
+        String envPath = System.getenv(ConfigPathConstants.ENV_SHARED_TOKEN_CACHE_PATH_KEY);
+        return StringUtil.isBlank(envPath) ? ConfigPathConstants.DEFAULT_SHARED_TOKEN_CACHE_PATH : envPath;
+    }
+
+    @Override
+    public IDaaSCredential getCredential() {
+        return this.getCachedResultSupplier().get();
+    }
+
+    @Override
+    public CompletableFuture<IDaaSCredential> getCredentialAsync() {
+        return this.getCachedResultSupplier().getAsync();
+    }
+
+    public RefreshCredentialProvider<IDaaSCredential> getDelegate() {
+        return delegate;
+    }
+
+    public String getCacheFilePath() {
+        return cacheFilePath;
+    }
+
+    @Override
+    public RefreshResult<IDaaSCredential> refreshCredential() {
+        SharedTokenCache cache = getSharedTokenCache();
+        if (cache == null) {
+            return delegate.refreshCredential();
+        }
+        RefreshResult<IDaaSCredential> shared = cache.read(keyHash);
+        long now = System.currentTimeMillis();
+        if (isFresh(shared, now)) {
+            return shared;
+        }
+        SharedTokenCache.KeyLock lock;
+        try {
+            lock = cache.tryLock(keyHash);
+            if (lock == null) {
+                if (isUsable(shared, now)) {
+                    // Another process is refreshing, keep the shared token and look for the new one shortly
+                    return deferPrefetch(shared, now);
+                }
+                lock = cache.lock(keyHash, lockTimeoutMillis);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to lock shared token cache {}, refresh without it: {}", cacheFilePath, e.getMessage());
+            return delegate.refreshCredential();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return delegate.refreshCredential();
+        }
+        if (lock == null) {
+            LOGGER.warn("Timed out waiting for another process to refresh the shared token, refresh without it");
+            return delegate.refreshCredential();
+        }
+        try (SharedTokenCache.KeyLock ignored = lock) {
+            // The previous holder of the lock may have just published a new token
+            shared = cache.read(keyHash);
+            if (isFresh(shared, System.currentTimeMillis())) {
+                return shared;
+            }
+            RefreshResult<IDaaSCredential> refreshed = delegate.refreshCredential();
+            cache.write(keyHash, refreshed);
+            return refreshed;
+        }
+    }
+
+    private SharedTokenCache getSharedTokenCache() {
+        SharedTokenCache cache = sharedTokenCache;
+        if (cache != null || sharedTokenCacheUnavailable) {
+            return cache;
+        }
+        try {
+            cache = SharedTokenCache.open(cacheFilePath);
+            sharedTokenCache = cache;
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Shared token cache {} is unavailable, tokens are not shared: {}", cacheFilePath, e.getMessage());
+            sharedTokenCacheUnavailable = true;
+            return null;
+        }
+    }
+
+    private static boolean isFresh(RefreshResult<IDaaSCredential> result, long now) {
+        return isUsable(result, now) && (result.getPrefetchTime() == null || now < result.getPrefetchTime().toEpochMilli());
+    }
+
+    private static boolean isUsable(RefreshResult<IDaaSCredential> result, long now) {
+        return result != null && (result.getStaleTime() == null || now < result.getStaleTime().toEpochMilli());
+    }
+
+    private static RefreshResult<IDaaSCredential> deferPrefetch(RefreshResult<IDaaSCredential> result, long now) {
+        long prefetchTime = now + REFRESH_POLL_INTERVAL_MILLIS;
+        if (result.getStaleTime() != null) {
+            prefetchTime = Math.min(prefetchTime, result.getStaleTime().toEpochMilli());
+        }
+        return RefreshResult.builder(result.getValue())
+                .staleTime(result.getStaleTime())
+                .prefetchTime(Instant.ofEpochMilli(prefetchTime))
+                // A jittered prefetch time would be minutes away instead of one poll interval
+                .jitterEnabled(false)
+                .build();
+    }
+
+    public static final class SharedCacheCredentialProviderBuilder
+            extends AbstractRefreshedCredentialProvider.BuilderImpl<SharedCacheCredentialProvider, SharedCacheCredentialProviderBuilder> {
+        private RefreshCredentialProvider<IDaaSCredential> delegate;
+        private String clientId;
+        private String tokenEndpoint;
+        private String scope;
+        private String cacheFilePath;
+        private Duration lockTimeout = DEFAULT_LOCK_TIMEOUT;
+
+        private SharedCacheCredentialProviderBuilder() {}
+
+        /**
+         * @param delegate Provider requesting the token when the shared one is due for refresh, its own cache is bypassed
+         * @return Builder instance
+         */
+        public SharedCacheCredentialProviderBuilder delegate(RefreshCredentialProvider<IDaaSCredential> delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        public SharedCacheCredentialProviderBuilder clientId(String clientId) {
+            this.clientId = clientId;
+            return this;
+        }
+
+        public SharedCacheCredentialProviderBuilder tokenEndpoint(String tokenEndpoint) {
+            this.tokenEndpoint = tokenEndpoint;
+            return this;
+        }
+
+        public SharedCacheCredentialProviderBuilder scope(String scope) {
+            this.scope = scope;
+            return this;
+        }
+
+        /**
+         * @param cacheFilePath Path of the cache file, {@link #defaultCacheFilePath()} if not set
+         * @return Builder instance
+         */
+        public SharedCacheCredentialProviderBuilder cacheFilePath(String cacheFilePath) {
+            this.cacheFilePath = cacheFilePath;
+            return this;
+        }
+
+        /**
+         * @param lockTimeout Maximum time to wait for another process refreshing an expired token, before refreshing it too
+         * @return Builder instance
+         */
+        public SharedCacheCredentialProviderBuilder lockTimeout(Duration lockTimeout) {
+            if (lockTimeout == null || lockTimeout.isNegative()) {
+                throw new IllegalArgumentException("lockTimeout must not be negative");
+            }
+            this.lockTimeout = lockTimeout;
+            return this;
+        }
+
+        public SharedCacheCredentialProvider build() {
+            return new SharedCacheCredentialProvider(this);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.cloud_idaas.core.implementation.authentication.jwt;
+
+import com.cloud_idaas.core.domain.constants.ErrorCode;
+import com.cloud_idaas.core.exception.CredentialException;
+import com.cloud_idaas.core.jfr.EventRecorder;
+import com.cloud_idaas.core.jfr.EventRecorderUtil;
+import com.cloud_idaas.core.util.PkiUtil;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Base64;
+
+/**
+ * Signer producing compact serialized JWS for a fixed algorithm and key.
+ * The Base64URL encoded header is computed once, and each thread reuses its own initialized Signature or Mac instance,
+ * so that signing only costs the encoding of the payload and the signature itself.
+ * The default JCA provider is used unless BouncyCastle is preferred, or the JDK does not support the algorithm
+ * (EdDSA before Java 15, RSASSA-PSS on older Java 8 updates).
+ */
+public final class CompactJwsSigner {
+
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final EventRecorder EVENT_RECORDER = EventRecorderUtil.getRecorder();
+
+    private static final PSSParameterSpec PS256_PARAMETER_SPEC =
+            new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1);
+
+    // Minimum HMAC key length, the size of the hash output as required by RFC 7518
+    private static final int MIN_HMAC_KEY_LENGTH = 32;
+
+    private final JwsAlgorithm algorithm;
+
+    private final Key key;
+
+    // Null for the default JCA provider
+    private final Provider provider;
+
+    // ASCII bytes of the encoded header followed by the '.' separator
+    private final byte[] encodedHeader;
+
+    private final ThreadLocal<Signature> signatures;
+
+    private final ThreadLocal<Mac> macs;
+
+    private CompactJwsSigner(CompactJwsSignerBuilder builder) {
+        if (builder.key == null) {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+        this.algorithm = builder.algorithm != null ? builder.algorithm : JwsAlgorithm.fromPrivateKey(builder.key);
+        this.provider = resolveProvider(algorithm, builder.preferBouncyCastle);
+        this.key = provider == null ? builder.key : translateKey(builder.key, provider);
+        if (algorithm.isHmac()) {
+            byte[] encodedKey = key instanceof PrivateKey ? null : key.getEncoded();
+            if (encodedKey == null || encodedKey.length < MIN_HMAC_KEY_LENGTH) {
+                throw new CredentialException(ErrorCode.NOT_SUPPORTED_WEB_KEY.getCode(),
+                        "A key of at least 256 bits must be used for " + algorithm.getHeaderValue());
+            }
+            this.macs = ThreadLocal.withInitial(this::newMac);
+            this.signatures = null;
+        } else {
+            if (!(key instanceof PrivateKey)) {
+                throw new CredentialException(ErrorCode.NOT_SUPPORTED_WEB_KEY.getCode(), "Not supported web key: " + key);
+            }
+            this.signatures = ThreadLocal.withInitial(this::newSignature);
+            this.macs = null;
+        }
+        String header = "{\"alg\":\"" + algorithm.getHeaderValue() + "\"}";
+        this.encodedHeader = (BASE64_URL_ENCODER.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + ".")
+                .getBytes(StandardCharsets.US_ASCII);
+        // Fail fast if the key does not fit the algorithm
+        if (signatures != null) {
+            signatures.get();
+        } else {
+            macs.get();
+        }
+    }
+
+    public static CompactJwsSignerBuilder builder() {
+        return new CompactJwsSignerBuilder();
+    }
+
+    public JwsAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return Name of the JCA provider signing, e.g. SunEC or BC
+     */
+    public String getProviderName() {
+        if (provider != null) {
+            return provider.getName();
+        }
+        return algorithm.isHmac() ? macs.get().getProvider().getName() : signatures.get().getProvider().getName();
+    }
+
+    /**
+     * Sign the payload
+     *
+     * @param payload JSON payload, e.g. the JWT claims
+     * @return Compact serialized JWS
+     */
+    public String sign(String payload) {
+        byte[] encodedPayload = BASE64_URL_ENCODER.encode(payload.getBytes(StandardCharsets.UTF_8));
+        byte[] signingInput = new byte[encodedHeader.length + encodedPayload.length];
+        System.arraycopy(encodedHeader, 0, signingInput, 0, encodedHeader.length);
+        System.arraycopy(encodedPayload, 0, signingInput, encodedHeader.length, encodedPayload.length);
+
+        Object signingEvent = EVENT_RECORDER.beginJwtSigning();
+        try {
+            byte[] encodedSignature = BASE64_URL_ENCODER.encode(signBytes(signingInput));
+            byte[] jws = new byte[signingInput.length + 1 + encodedSignature.length];
+            System.arraycopy(signingInput, 0, jws, 0, signingInput.length);
+            jws[signingInput.length] = '.';
+            System.arraycopy(encodedSignature, 0, jws, signingInput.length + 1, encodedSignature.length);
+            return new String(jws, StandardCharsets.US_ASCII);
+        } finally {
+            EVENT_RECORDER.commitJwtSigning(signingEvent, algorithm.getHeaderValue());
+        }
+    }
+
+    private byte[] signBytes(byte[] signingInput) {
+        if (macs != null) {
+            // doFinal resets the Mac for the next use
+            return macs.get().doFinal(signingInput);
+        }
+        Signature signature = signatures.get();
+        try {
+            signature.update(signingInput);
+            // sign resets the Signature to the state right after initSign
+            byte[] signatureBytes = signature.sign();
+            return algorithm.isEcdsa()
+                    ? derToConcatenated(signatureBytes, algorithm.getEcCoordinateLength())
+                    : signatureBytes;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // Do not reuse a Signature left in an unknown state
+            signatures.remove();
+            throw new CredentialException(e.getMessage(), e);
+        }
+    }
+
+    private Signature newSignature() {
+        try {
+            Signature signature;
+            if (provider == null) {
+                signature = Signature.getInstance(algorithm.getJcaName());
+                if (algorithm == JwsAlgorithm.PS256) {
+                    signature.setParameter(PS256_PARAMETER_SPEC);
+                }
+            } else {
+                signature = Signature.getInstance(algorithm.getBouncyCastleName(), provider);
+            }
+            signature.initSign((PrivateKey) key);
+            return signature;
+        } catch (GeneralSecurityException e) {
+            throw new CredentialException(ErrorCode.NOT_SUPPORTED_WEB_KEY.getCode(),
+                    "Failed to initialize " + algorithm.getHeaderValue() + " signature: " + e.getMessage());
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(algorithm.getJcaName());
+            mac.init(new SecretKeySpec(key.getEncoded(), algorithm.getJcaName()));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new CredentialException(ErrorCode.NOT_SUPPORTED_WEB_KEY.getCode(),
+                    "Failed to initialize " + algorithm.getHeaderValue() + " mac: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return BouncyCastle if preferred or if the default providers lack the algorithm, null for the default providers
+     */
+    private static Provider resolveProvider(JwsAlgorithm algorithm, boolean preferBouncyCastle) {
+        if (algorithm.getBouncyCastleName() == null) {
+            return null;
+        }
+        if (preferBouncyCastle) {
+            return PkiUtil.getBouncyCastleProvider();
+        }
+        try {
+            Signature.getInstance(algorithm.getJcaName());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            return PkiUtil.getBouncyCastleProvider();
+        }
+    }
+
+    /**
+     * Re-create the key with the KeyFactory of the provider, BouncyCastle does not accept every JDK key implementation
+     */
+    private static Key translateKey(Key key, Provider provider) {
+        if (!(key instanceof PrivateKey) || key.getEncoded() == null) {
+            return key;
+        }
+        try {
+            return KeyFactory.getInstance(key.getAlgorithm(), provider).generatePrivate(new PKCS8EncodedKeySpec(key.getEncoded()));
+        } catch (GeneralSecurityException e) {
+            return key;
+        }
+    }
+
+    /**
+     * Convert a DER encoded ECDSA signature, SEQUENCE { INTEGER r, INTEGER s }, to the R || S concatenation used by JWS
+     *
+     * @param der              DER encoded signature
+     * @param coordinateLength Length of R and S, 32 for P-256 and 48 for P-384
+     * @return Concatenated signature
+     */
+    static byte[] derToConcatenated(byte[] der, int coordinateLength) throws GeneralSecurityException {
+        if (der.length < 8 || der[0] != 0x30) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        // The sequence length takes a second byte above 127 bytes
+        int offset = (der[1] & 0xff) == 0x81 ? 3 : 2;
+        byte[] concatenated = new byte[2 * coordinateLength];
+        offset = copyInteger(der, offset, concatenated, 0, coordinateLength);
+        copyInteger(der, offset, concatenated, coordinateLength, coordinateLength);
+        return concatenated;
+    }
+
+    /**
+     * Copy the DER INTEGER at the offset, without its sign byte, left padded to the coordinate length
+     *
+     * @return Offset of the next DER element
+     */
+    private static int copyInteger(byte[] der, int offset, byte[] target, int targetOffset, int coordinateLength)
+            throws GeneralSecurityException {
+        if (offset + 2 > der.length || der[offset] != 0x02) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        int length = der[offset + 1] & 0xff;
+        int start = offset + 2;
+        int next = start + length;
+        if (next > der.length) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        while (length > coordinateLength && der[start] == 0) {
+            start++;
+            length--;
+        }
+        if (length > coordinateLength) {
+            throw new GeneralSecurityException("Invalid ECDSA signature format");
+        }
+        System.arraycopy(der, start, target, targetOffset + coordinateLength - length, length);
+        return next;
+    }
+
+    public static final class CompactJwsSignerBuilder {
+        private JwsAlgorithm algorithm;
+        private Key key;
+        private boolean preferBouncyCastle = false;
+
+        private CompactJwsSignerBuilder() {
+        }
+
+        /**
+         * @param algorithm JWS algorithm, derived from the private key if not set
+         * @return Builder instance
+         */
+        public CompactJwsSignerBuilder algorithm(JwsAlgorithm algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * @param key Private key, or secret key for HS256
+         * @return Builder instance
+         */
+        public CompactJwsSignerBuilder key(Key key) {
+            this.key = key;
+            return this;
+        }
+
+        /**
+         * @param secret Secret for HS256
+         * @return Builder instance
+         */
+        public CompactJwsSignerBuilder secret(byte[] secret) {
+            this.key = new SecretKeySpec(secret, JwsAlgorithm.HS256.getJcaName());
+            if (this.algorithm == null) {
+                this.algorithm = JwsAlgorithm.HS256;
+            }
+            return this;
+        }
+
+        /**
+         * @param preferBouncyCastle Sign with BouncyCastle instead of the default JCA provider, for the algorithms it
+         *                           implements faster on the running JDK, e.g. Ed25519 or ECDSA on Java 8
+         * @return Builder instance
+         */
+        public CompactJwsSignerBuilder preferBouncyCastle(boolean preferBouncyCastle) {
+            this.preferBouncyCastle = preferBouncyCastle;
+            return this;
+        }
+
+        public CompactJwsSigner build() {
+            return new CompactJwsSigner(this);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.cloud_idaas.core.implementation.authentication.jwt;
+
+import com.cloud_idaas.core.domain.constants.ErrorCode;
+import com.cloud_idaas.core.exception.CredentialException;
+
+import java.security.Key;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+
+/**
+ * JWS algorithms supported by the CompactJwsSigner, with the JCA algorithm names used to sign
+ */
+public enum JwsAlgorithm {
+
+    HS256("HS256", "HmacSHA256", null, 0),
+    RS256("RS256", "SHA256withRSA", "SHA256withRSA", 0),
+    /**
+     * RSASSA-PSS with SHA-256, MGF1 with SHA-256 and a 32 bytes salt
+     */
+    PS256("PS256", "RSASSA-PSS", "SHA256withRSAandMGF1", 0),
+    ES256("ES256", "SHA256withECDSA", "SHA256withECDSA", 32),
+    ES384("ES384", "SHA384withECDSA", "SHA384withECDSA", 48),
+    /**
+     * EdDSA over Ed25519, the JDK supports it from Java 15, BouncyCastle is used on earlier versions
+     */
+    EdDSA("EdDSA", "Ed25519", "Ed25519", 0),
+
+    ;
+
+    private final String headerValue;
+
+    private final String jcaName;
+
+    private final String bouncyCastleName;
+
+    // Length of R and S in the JWS signature, 0 for non ECDSA algorithms
+    private final int ecCoordinateLength;
+
+    JwsAlgorithm(String headerValue, String jcaName, String bouncyCastleName, int ecCoordinateLength) {
+        this.headerValue = headerValue;
+        this.jcaName = jcaName;
+        this.bouncyCastleName = bouncyCastleName;
+        this.ecCoordinateLength = ecCoordinateLength;
+    }
+
+    /**
+     * @return Value of the alg header
+     */
+    public String getHeaderValue() {
+        return headerValue;
+    }
+
+    public String getJcaName() {
+        return jcaName;
+    }
+
+    public String getBouncyCastleName() {
+        return bouncyCastleName;
+    }
+
+    public int getEcCoordinateLength() {
+        return ecCoordinateLength;
+    }
+
+    public boolean isHmac() {
+        return this == HS256;
+    }
+
+    public boolean isEcdsa() {
+        return ecCoordinateLength > 0;
+    }
+
+    /**
+     * Default algorithm for a private key: RS256 for RSA, ES256 or ES384 depending on the curve for EC, EdDSA for Ed25519
+     *
+     * @param key Private key
+     * @return JWS algorithm
+     */
+    public static JwsAlgorithm fromPrivateKey(Key key) {
+        if (key instanceof ECPrivateKey) {
+            int fieldSize = ((ECPrivateKey) key).getParams().getCurve().getField().getFieldSize();
+            if (fieldSize == 256) {
+                return ES256;
+            } else if (fieldSize == 384) {
+                return ES384;
+            }
+        } else if (key instanceof RSAPrivateKey) {
+            return RS256;
+        } else if (key != null && ("EdDSA".equals(key.getAlgorithm()) || "Ed25519".equals(key.getAlgorithm()))) {
+            return EdDSA;
+        }
+        throw new CredentialException(ErrorCode.NOT_SUPPORTED_WEB_KEY.getCode(), "Not supported web key: " + key);
+    }
+}
@@ -0,0 +1,279 @@
+package com.cloud_idaas.core.implementation.authentication.jwt;
+
+import com.cloud_idaas.core.provider.JwtClientAssertionProvider;
+import com.cloud_idaas.core.util.JwtUtil;
+import com.cloud_idaas.core.util.SchedulerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Client assertion provider handing out assertions signed ahead of time by a delegate provider.
+ * A small pool of assertions, each with its own jti, is minted on a background thread and replenished as assertions
+ * are consumed or come close to their expiry, so that the token refresh does not wait for the signature.
+ * If the pool is empty, the assertion is signed by the calling thread.
+ */
+public class PreSignedClientAssertionProvider implements JwtClientAssertionProvider, AutoCloseable {
+
+    private static final int DEFAULT_POOL_SIZE = 2;
+
+    // Lifetime of the assertions of the static assertion providers, used if the exp claim cannot be read
+    private static final Duration DEFAULT_ASSERTION_LIFETIME = Duration.ofMinutes(10);
+
+    private static final Duration DEFAULT_MIN_REMAINING_LIFETIME = Duration.ofMinutes(5);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreSignedClientAssertionProvider.class);
+
+    /**
+     * Global executor signing the assertions of all PreSigned instances, off the shared scheduler thread
+     */
+    private static final ExecutorService SIGNER_EXECUTOR = new ThreadPoolExecutor(1, 1,
+            0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setName("idaas-java-core-sdk-assertion-signer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    private final JwtClientAssertionProvider delegate;
+
+    private final int poolSize;
+
+    private final long minRemainingLifetimeMillis;
+
+    private final Queue<PreSignedAssertion> pool = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean replenishing = new AtomicBoolean(false);
+
+    // The next scheduled check for assertions close to their expiry
+    private final AtomicReference<ScheduledFuture<?>> scheduledMaintenance = new AtomicReference<>();
+
+    private volatile boolean closed;
+
+    private PreSignedClientAssertionProvider(PreSignedClientAssertionProviderBuilder builder) {
+        if (builder.delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        this.delegate = builder.delegate;
+        this.poolSize = builder.poolSize;
+        this.minRemainingLifetimeMillis = builder.minRemainingLifetime.toMillis();
+        replenish();
+    }
+
+    public static PreSignedClientAssertionProviderBuilder builder() {
+        return new PreSignedClientAssertionProviderBuilder();
+    }
+
+    public JwtClientAssertionProvider getDelegate() {
+        return delegate;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Take a pre-signed assertion with enough remaining lifetime, or sign one on the calling thread if none is ready
+     *
+     * @return Client assertion, never handed out twice
+     */
+    @Override
+    public String getClientAssertion() {
+        long now = System.currentTimeMillis();
+        String clientAssertion = null;
+        PreSignedAssertion preSignedAssertion;
+        while ((preSignedAssertion = pool.poll()) != null) {
+            if (preSignedAssertion.isUsable(now, minRemainingLifetimeMillis)) {
+                clientAssertion = preSignedAssertion.clientAssertion;
+                break;
+            }
+        }
+        if (clientAssertion == null) {
+            LOGGER.debug("No pre-signed client assertion ready, signing on the calling thread");
+            clientAssertion = delegate.getClientAssertion();
+        }
+        replenish();
+        return clientAssertion;
+    }
+
+    /**
+     * Stop replenishing the pool and drop the pre-signed assertions
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledFuture<?> scheduled = scheduledMaintenance.getAndSet(null);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        pool.clear();
+    }
+
+    /**
+     * Refill the pool on the signer thread, a replenishment already in progress is not started twice
+     */
+    private void replenish() {
+        if (closed || !replenishing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            SIGNER_EXECUTOR.execute(() -> {
+                try {
+                    fillPool();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Failed to pre-sign client assertion: {}", e.getMessage());
+                } finally {
+                    replenishing.set(false);
+                    scheduleMaintenance();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            replenishing.set(false);
+        }
+    }
+
+    private void fillPool() {
+        long now = System.currentTimeMillis();
+        // Drop the assertions too close to their expiry
+        pool.removeIf(preSignedAssertion -> !preSignedAssertion.isUsable(now, minRemainingLifetimeMillis));
+        while (!closed && pool.size() < poolSize) {
+            String clientAssertion = delegate.getClientAssertion();
+            pool.offer(new PreSignedAssertion(clientAssertion, readExpirationMillis(clientAssertion)));
+        }
+    }
+
+    /**
+     * Schedule the next check at the time the oldest pre-signed assertion becomes unusable
+     */
+    private void scheduleMaintenance() {
+        if (closed) {
+            return;
+        }
+        long nextUnusableMillis = Long.MAX_VALUE;
+        for (PreSignedAssertion preSignedAssertion : pool) {
+            nextUnusableMillis = Math.min(nextUnusableMillis, preSignedAssertion.expirationMillis - minRemainingLifetimeMillis);
+        }
+        long delayMillis = nextUnusableMillis == Long.MAX_VALUE
+                ? DEFAULT_MIN_REMAINING_LIFETIME.toMillis()
+                : Math.max(0L, nextUnusableMillis - System.currentTimeMillis()) + 1;
+        ScheduledFuture<?> scheduled = SchedulerUtil.schedule(new MaintenanceTask(this), delayMillis, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduledMaintenance.getAndSet(scheduled);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (closed) {
+            scheduled.cancel(false);
+        }
+    }
+
+    /**
+     * Read the exp claim of the assertion without verifying it, the assertion was just signed by the delegate
+     *
+     * @param clientAssertion Compact serialized assertion
+     * @return Expiration time in epoch millis
+     */
+    private static long readExpirationMillis(String clientAssertion) {
+        try {
+            Long expiration = JwtUtil.peekExpirationTime(clientAssertion);
+            if (expiration != null) {
+                return TimeUnit.SECONDS.toMillis(expiration);
+            }
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Failed to read the exp claim of the client assertion: {}", e.getMessage());
+        }
+        return System.currentTimeMillis() + DEFAULT_ASSERTION_LIFETIME.toMillis();
+    }
+
+    /**
+     * Maintenance task, only weakly referencing the provider so that an abandoned provider can still be garbage collected
+     */
+    private static final class MaintenanceTask implements Runnable {
+
+        private final WeakReference<PreSignedClientAssertionProvider> providerReference;
+
+        private MaintenanceTask(PreSignedClientAssertionProvider provider) {
+            this.providerReference = new WeakReference<>(provider);
+        }
+
+        @Override
+        public void run() {
+            PreSignedClientAssertionProvider provider = providerReference.get();
+            if (provider != null) {
+                provider.replenish();
+            }
+        }
+    }
+
+    private static final class PreSignedAssertion {
+
+        private final String clientAssertion;
+
+        private final long expirationMillis;
+
+        private PreSignedAssertion(String clientAssertion, long expirationMillis) {
+            this.clientAssertion = clientAssertion;
+            this.expirationMillis = expirationMillis;
+        }
+
+        private boolean isUsable(long nowMillis, long minRemainingLifetimeMillis) {
+            return nowMillis + minRemainingLifetimeMillis < expirationMillis;
+        }
+    }
+
+    public static final class PreSignedClientAssertionProviderBuilder {
+        private JwtClientAssertionProvider delegate;
+        private int poolSize = DEFAULT_POOL_SIZE;
+        private Duration minRemainingLifetime = DEFAULT_MIN_REMAINING_LIFETIME;
+
+        private PreSignedClientAssertionProviderBuilder() {
+        }
+
+        /**
+         * @param delegate Provider signing the assertions, must mint a new jti for every assertion
+         * @return Builder instance
+         */
+        public PreSignedClientAssertionProviderBuilder delegate(JwtClientAssertionProvider delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * @param poolSize Number of assertions kept signed ahead of time
+         * @return Builder instance
+         */
+        public PreSignedClientAssertionProviderBuilder poolSize(int poolSize) {
+            if (poolSize <= 0) {
+                throw new IllegalArgumentException("poolSize must be greater than 0");
+            }
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        /**
+         * @param minRemainingLifetime Minimum remaining lifetime of a pre-signed assertion to be handed out,
+         *                             older assertions are dropped and replaced
+         * @return Builder instance
+         */
+        public PreSignedClientAssertionProviderBuilder minRemainingLifetime(Duration minRemainingLifetime) {
+            if (minRemainingLifetime == null || minRemainingLifetime.isNegative()) {
+                throw new IllegalArgumentException("minRemainingLifetime must not be negative");
+            }
+            this.minRemainingLifetime = minRemainingLifetime;
+            return this;
+        }
+
+        public PreSignedClientAssertionProvider build() {
+            return new PreSignedClientAssertionProvider(this);
+        }
+    }
+}
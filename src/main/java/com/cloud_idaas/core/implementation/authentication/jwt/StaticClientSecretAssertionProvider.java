@@ -1,22 +1,24 @@
 package com.cloud_idaas.core.implementation.authentication.jwt;
 
-import com.cloud_idaas.core.exception.CredentialException;
 import com.cloud_idaas.core.provider.JwtClientAssertionProvider;
-import org.jose4j.jws.AlgorithmIdentifiers;
-import org.jose4j.jws.JsonWebSignature;
-import org.jose4j.jwt.JwtClaims;
-import org.jose4j.jwt.NumericDate;
-import org.jose4j.keys.HmacKey;
-import org.jose4j.lang.JoseException;
+import com.cloud_idaas.core.util.JSONUtil;
 
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class StaticClientSecretAssertionProvider implements JwtClientAssertionProvider {
 
+    private static final long ASSERTION_LIFETIME_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
     private final Supplier<String> clientSecretSupplier;
 
+    // Signer of the last client secret, replaced when the supplier returns a rotated secret
+    private volatile SecretSigner secretSigner;
+
     private String clientId;
     private String tokenEndpoint;
     private String scope;
@@ -51,23 +53,37 @@ public class StaticClientSecretAssertionProvider implements JwtClientAssertionPr
 
     @Override
     public String getClientAssertion() {
-        final JwtClaims claims = new JwtClaims();
-        claims.setAudience(tokenEndpoint);
-        claims.setSubject(clientId);
-        claims.setIssuer(clientId);
-        claims.setJwtId(UUID.randomUUID().toString());
-        claims.setIssuedAt(NumericDate.now());
-        claims.setExpirationTimeMinutesInTheFuture(10);
-
-        JsonWebSignature jws = new JsonWebSignature();
-        jws.setPayload(claims.toJson());
-        jws.setKey(new HmacKey(clientSecretSupplier.get().getBytes(StandardCharsets.UTF_8)));
-
-        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
-        try {
-            return jws.getCompactSerialization();
-        } catch (JoseException e) {
-            throw new CredentialException(e.getMessage(), e);
+        long issuedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("aud", tokenEndpoint);
+        claims.put("sub", clientId);
+        claims.put("iss", clientId);
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("iat", issuedAt);
+        claims.put("exp", issuedAt + ASSERTION_LIFETIME_SECONDS);
+        return getSigner(clientSecretSupplier.get()).sign(JSONUtil.toJSONString(claims));
+    }
+
+    private CompactJwsSigner getSigner(String clientSecret) {
+        SecretSigner current = secretSigner;
+        if (current == null || !current.clientSecret.equals(clientSecret)) {
+            current = new SecretSigner(clientSecret, CompactJwsSigner.builder()
+                    .secret(clientSecret.getBytes(StandardCharsets.UTF_8))
+                    .build());
+            secretSigner = current;
+        }
+        return current.signer;
+    }
+
+    private static final class SecretSigner {
+
+        private final String clientSecret;
+
+        private final CompactJwsSigner signer;
+
+        private SecretSigner(String clientSecret, CompactJwsSigner signer) {
+            this.clientSecret = clientSecret;
+            this.signer = signer;
         }
     }
 }
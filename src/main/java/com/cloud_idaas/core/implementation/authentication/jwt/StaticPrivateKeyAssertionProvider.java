@@ -1,38 +1,55 @@
 package com.cloud_idaas.core.implementation.authentication.jwt;
 
-import com.cloud_idaas.core.domain.constants.ErrorCode;
 import com.cloud_idaas.core.exception.CredentialException;
 import com.cloud_idaas.core.provider.JwtClientAssertionProvider;
+import com.cloud_idaas.core.util.JSONUtil;
 import com.cloud_idaas.core.util.PkiUtil;
-import org.jose4j.jws.AlgorithmIdentifiers;
-import org.jose4j.jws.JsonWebSignature;
-import org.jose4j.jwt.JwtClaims;
-import org.jose4j.jwt.NumericDate;
-import org.jose4j.lang.JoseException;
 
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
-import java.security.interfaces.ECPrivateKey;
-import java.security.interfaces.RSAPrivateKey;
 import java.security.spec.InvalidKeySpecException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class StaticPrivateKeyAssertionProvider implements JwtClientAssertionProvider {
 
+    private static final long ASSERTION_LIFETIME_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
     private final String privateKeyString;
     private final transient PrivateKey privateKey;
+    private final transient CompactJwsSigner signer;
 
     private String clientId;
     private String tokenEndpoint;
     private String scope;
 
     public StaticPrivateKeyAssertionProvider(String privateKeyString) {
+        this(privateKeyString, null, false);
+    }
+
+    /**
+     * @param privateKeyString   PEM formatted private key
+     * @param algorithm          JWS algorithm, e.g. PS256 for an RSA key, derived from the key if null
+     * @param preferBouncyCastle Sign with BouncyCastle instead of the default JCA provider
+     */
+    public StaticPrivateKeyAssertionProvider(String privateKeyString, JwsAlgorithm algorithm, boolean preferBouncyCastle) {
         this.privateKeyString = privateKeyString;
         try {
             this.privateKey = PkiUtil.parsePrivateKeyFromPem(privateKeyString);
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
             throw new CredentialException(e.getMessage(),  e);
         }
+        this.signer = CompactJwsSigner.builder()
+                .key(privateKey)
+                .algorithm(algorithm)
+                .preferBouncyCastle(preferBouncyCastle)
+                .build();
+    }
+
+    public JwsAlgorithm getAlgorithm() {
+        return signer.getAlgorithm();
     }
 
     public String getClientId() {
@@ -61,29 +78,14 @@ public class StaticPrivateKeyAssertionProvider implements JwtClientAssertionProv
 
     @Override
     public String getClientAssertion() {
-        final JwtClaims claims = new JwtClaims();
-        claims.setAudience(tokenEndpoint);
-        claims.setSubject(clientId);
-        claims.setIssuer(clientId);
-        claims.setJwtId(UUID.randomUUID().toString());
-        claims.setIssuedAt(NumericDate.now());
-        claims.setExpirationTimeMinutesInTheFuture(10);
-
-        JsonWebSignature jws = new JsonWebSignature();
-        jws.setPayload(claims.toJson());
-        jws.setKey(privateKey);
-
-        if (privateKey instanceof ECPrivateKey) {
-            jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
-        } else if (privateKey instanceof RSAPrivateKey) {
-            jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
-        } else {
-            throw new CredentialException(ErrorCode.NOT_SUPPORTED_WEB_KEY.getCode(), "Not supported web key: " + privateKey);
-        }
-        try {
-            return jws.getCompactSerialization();
-        } catch (JoseException e) {
-            throw new CredentialException(e.getMessage(),  e);
-        }
+        long issuedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("aud", tokenEndpoint);
+        claims.put("sub", clientId);
+        claims.put("iss", clientId);
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("iat", issuedAt);
+        claims.put("exp", issuedAt + ASSERTION_LIFETIME_SECONDS);
+        return signer.sign(JSONUtil.toJSONString(claims));
     }
 }
@@ -0,0 +1,255 @@
+package com.cloud_idaas.core.implementation.authentication.oidc;
+
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import com.cloud_idaas.core.domain.DeviceCodeResponse;
+import com.cloud_idaas.core.domain.constants.ErrorCode;
+import com.cloud_idaas.core.domain.constants.OAuth2Constants;
+import com.cloud_idaas.core.exception.ClientException;
+import com.cloud_idaas.core.exception.CredentialException;
+import com.cloud_idaas.core.http.OAuth2TokenUtil;
+import com.cloud_idaas.core.util.SchedulerUtil;
+import com.cloud_idaas.core.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Device authorization grant (RFC 8628) run without holding a thread while the user authenticates.
+ * The token endpoint is polled by the shared scheduler at the interval given by the server, increased by 5 seconds
+ * on each slow_down error, until the device code expires.
+ * Cancelling the result future stops the polling.
+ */
+public final class DeviceAuthorizationFlow {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceAuthorizationFlow.class);
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 5;
+
+    private static final long SLOW_DOWN_INCREMENT_SECONDS = 5;
+
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 180;
+
+    // Time left to the last poll, sent at the expiry of the device code, to complete the flow itself
+    private static final long EXPIRY_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final String clientId;
+
+    private final String tokenEndpoint;
+
+    private final DeviceAuthorizationClient client;
+
+    private final CompletableFuture<IDaaSTokenResponse> result = new CompletableFuture<>();
+
+    private volatile String deviceCode;
+
+    private volatile long intervalMillis;
+
+    private volatile long deadlineMillis;
+
+    private volatile ScheduledFuture<?> scheduledPoll;
+
+    private DeviceAuthorizationFlow(String clientId, String tokenEndpoint, DeviceAuthorizationClient client) {
+        this.clientId = clientId;
+        this.tokenEndpoint = tokenEndpoint;
+        this.client = client;
+        // Until the device code is issued with its own expiry
+        this.deadlineMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(DEFAULT_EXPIRES_IN_SECONDS);
+        this.result.whenComplete((token, failure) -> cancelScheduledPoll());
+    }
+
+    /**
+     * Request a device code and poll the token endpoint until the user authorizes the device
+     *
+     * @param clientId                    Client ID
+     * @param scope                       Requested scope
+     * @param deviceAuthorizationEndpoint Device authorization endpoint
+     * @param tokenEndpoint               Token endpoint
+     * @param verificationHandler         Shows the verification URL to the user, called once the device code is issued
+     * @return Flow in progress
+     */
+    public static DeviceAuthorizationFlow start(String clientId, String scope, String deviceAuthorizationEndpoint,
+                                                String tokenEndpoint, Consumer<DeviceCodeResponse> verificationHandler) {
+        return start(clientId, scope, deviceAuthorizationEndpoint, tokenEndpoint, verificationHandler, DeviceAuthorizationClient.DEFAULT);
+    }
+
+    static DeviceAuthorizationFlow start(String clientId, String scope, String deviceAuthorizationEndpoint, String tokenEndpoint,
+                                         Consumer<DeviceCodeResponse> verificationHandler, DeviceAuthorizationClient client) {
+        DeviceAuthorizationFlow flow = new DeviceAuthorizationFlow(clientId, tokenEndpoint, client);
+        try {
+            client.getDeviceCodeAsync(clientId, scope, deviceAuthorizationEndpoint)
+                    .whenComplete((deviceCodeResponse, failure) -> {
+                        try {
+                            if (failure != null) {
+                                flow.result.completeExceptionally(unwrap(failure));
+                                return;
+                            }
+                            if (deviceCodeResponse == null || StringUtil.isBlank(deviceCodeResponse.getDeviceCode())) {
+                                flow.result.completeExceptionally(new CredentialException(ErrorCode.DEVICE_CODE_NOT_FOUND.getCode(),
+                                        "device authorization response has no device code"));
+                                return;
+                            }
+                            try {
+                                verificationHandler.accept(deviceCodeResponse);
+                            } catch (RuntimeException e) {
+                                LOGGER.error("Verification handler failed: {}, Please open the verification URL in your browser: {}",
+                                        e.getMessage(), deviceCodeResponse.getVerificationUriComplete());
+                            }
+                            flow.begin(deviceCodeResponse);
+                        } catch (Throwable e) {
+                            flow.result.completeExceptionally(e);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            flow.result.completeExceptionally(e);
+        }
+        return flow;
+    }
+
+    /**
+     * @return Future of the token response, cancelling it stops the flow
+     */
+    public CompletableFuture<IDaaSTokenResponse> getResult() {
+        return result;
+    }
+
+    /**
+     * Wait for the token response, at most until the device code expires. If no poll completed the flow by then,
+     * the flow is completed with a device code expired error.
+     *
+     * @return Token response
+     * @throws InterruptedException If interrupted while waiting, the flow goes on
+     * @throws ExecutionException   If the flow failed
+     */
+    public IDaaSTokenResponse get() throws InterruptedException, ExecutionException {
+        while (true) {
+            long deadline = deadlineMillis;
+            long remaining = deadline + EXPIRY_GRACE_MILLIS - System.currentTimeMillis();
+            try {
+                return result.get(Math.max(0L, remaining), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // The deadline moves once when the device code is issued
+                if (deadline == deadlineMillis) {
+                    result.completeExceptionally(expired());
+                }
+            }
+        }
+    }
+
+    private void begin(DeviceCodeResponse deviceCodeResponse) {
+        long now = System.currentTimeMillis();
+        long expiresIn = deviceCodeResponse.getExpiresIn() == null ? DEFAULT_EXPIRES_IN_SECONDS : deviceCodeResponse.getExpiresIn();
+        long interval = deviceCodeResponse.getInterval() == null ? DEFAULT_INTERVAL_SECONDS : deviceCodeResponse.getInterval();
+        this.deviceCode = deviceCodeResponse.getDeviceCode();
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(interval);
+        this.deadlineMillis = now + TimeUnit.SECONDS.toMillis(expiresIn);
+        schedulePoll();
+    }
+
+    /**
+     * Schedule the next poll after the current interval, or at the expiry of the device code if it comes first
+     */
+    private void schedulePoll() {
+        if (result.isDone()) {
+            return;
+        }
+        long delay = Math.max(0, Math.min(intervalMillis, deadlineMillis - System.currentTimeMillis()));
+        ScheduledFuture<?> poll = SchedulerUtil.schedule(this::pollSafely, delay, TimeUnit.MILLISECONDS);
+        scheduledPoll = poll;
+        // The result may have been cancelled before the poll was published
+        if (result.isDone()) {
+            poll.cancel(false);
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void poll() {
+        if (result.isDone()) {
+            return;
+        }
+        if (System.currentTimeMillis() >= deadlineMillis) {
+            LOGGER.error("waiting for token timeout.");
+            result.completeExceptionally(expired());
+            return;
+        }
+        client.pollTokenByDeviceCodeAsync(clientId, deviceCode, tokenEndpoint)
+                .whenComplete((token, failure) -> {
+                    try {
+                        onPolled(token, failure);
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+    }
+
+    private void onPolled(IDaaSTokenResponse token, Throwable failure) {
+        if (failure == null) {
+            if (token != null) {
+                result.complete(token);
+            } else {
+                schedulePoll();
+            }
+            return;
+        }
+        Throwable cause = unwrap(failure);
+        if (cause instanceof ClientException
+                && OAuth2Constants.SLOW_DOWN_ERROR.equals(((ClientException) cause).getErrorCode())) {
+            intervalMillis += TimeUnit.SECONDS.toMillis(SLOW_DOWN_INCREMENT_SECONDS);
+            LOGGER.debug("Device authorization polling slowed down to {} ms", intervalMillis);
+            schedulePoll();
+            return;
+        }
+        result.completeExceptionally(cause);
+    }
+
+    private void cancelScheduledPoll() {
+        ScheduledFuture<?> poll = scheduledPoll;
+        if (poll != null) {
+            poll.cancel(false);
+        }
+    }
+
+    private static CredentialException expired() {
+        return new CredentialException(ErrorCode.DEVICE_CODE_EXPIRED.getCode(),
+                "device code expired before the user authorized the device");
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Requests of the flow, sent through {@link OAuth2TokenUtil} by default
+     */
+    interface DeviceAuthorizationClient {
+
+        DeviceAuthorizationClient DEFAULT = new DeviceAuthorizationClient() {
+            @Override
+            public CompletableFuture<DeviceCodeResponse> getDeviceCodeAsync(String clientId, String scope, String deviceAuthorizationEndpoint) {
+                return OAuth2TokenUtil.getDeviceCodeAsync(clientId, scope, deviceAuthorizationEndpoint);
+            }
+
+            @Override
+            public CompletableFuture<IDaaSTokenResponse> pollTokenByDeviceCodeAsync(String clientId, String deviceCode, String tokenEndpoint) {
+                return OAuth2TokenUtil.pollTokenByDeviceCodeAsync(clientId, deviceCode, tokenEndpoint);
+            }
+        };
+
+        CompletableFuture<DeviceCodeResponse> getDeviceCodeAsync(String clientId, String scope, String deviceAuthorizationEndpoint);
+
+        CompletableFuture<IDaaSTokenResponse> pollTokenByDeviceCodeAsync(String clientId, String deviceCode, String tokenEndpoint);
+    }
+}
@@ -2,53 +2,230 @@ package com.cloud_idaas.core.implementation.authentication.oidc;
 
 import com.cloud_idaas.core.exception.CredentialException;
 import com.cloud_idaas.core.provider.OidcTokenProvider;
-import com.cloud_idaas.core.util.FileUtil;
-import org.jose4j.jwt.MalformedClaimException;
-import org.jose4j.jwt.consumer.InvalidJwtException;
-import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import com.cloud_idaas.core.util.AsyncExecutorUtil;
+import com.cloud_idaas.core.util.JwtUtil;
+import com.cloud_idaas.core.util.SchedulerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
-public class FileOidcTokenProvider implements OidcTokenProvider {
+/**
+ * OIDC token provider reading the token from a file, e.g. a Kubernetes projected service account token.
+ * By default the file is read again when the token is within 10 minutes of its expiry.
+ * In watch mode the shared scheduler periodically has the file attributes checked on the shared executor, and the token
+ * is only read again when the file is replaced, which also covers the kubelet swapping the ..data symlink, so that getOidcToken() never touches the file system.
+ */
+public class FileOidcTokenProvider implements OidcTokenProvider, AutoCloseable {
+
+    public static final Duration DEFAULT_WATCH_INTERVAL = Duration.ofSeconds(10);
+
+    private static final long EXPIRY_THRESHOLD_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileOidcTokenProvider.class);
 
     private final String oidcTokenFilePath;
 
-    private long expiresTime;
-    private transient String oidcToken;
+    private final Path path;
+
+    private final boolean watchEnabled;
+
+    private final long watchIntervalMillis;
+
+    private final Object reloadLock = new Object();
+
+    private volatile TokenSnapshot snapshot;
+
+    private volatile ScheduledFuture<?> scheduledWatch;
+
+    private volatile boolean closed;
 
     public FileOidcTokenProvider(String oidcTokenFilePath) {
+        this(oidcTokenFilePath, false, DEFAULT_WATCH_INTERVAL);
+    }
+
+    /**
+     * @param oidcTokenFilePath Path of the token file
+     * @param watchEnabled      Reload the token only when the file is replaced, instead of when the token is about to expire
+     * @param watchInterval     Interval between two checks of the file attributes in watch mode
+     */
+    public FileOidcTokenProvider(String oidcTokenFilePath, boolean watchEnabled, Duration watchInterval) {
+        if (watchInterval == null || watchInterval.isNegative() || watchInterval.isZero()) {
+            throw new IllegalArgumentException("watchInterval must be greater than 0");
+        }
         this.oidcTokenFilePath = oidcTokenFilePath;
+        this.path = Paths.get(oidcTokenFilePath);
+        this.watchEnabled = watchEnabled;
+        this.watchIntervalMillis = watchInterval.toMillis();
+        if (watchEnabled) {
+            try {
+                reload(null);
+            } catch (CredentialException e) {
+                LOGGER.warn("Failed to read OIDC token file {}: {}", oidcTokenFilePath, e.getMessage());
+            }
+            scheduleWatch();
+        }
     }
 
     @Override
     public String getOidcToken() {
-        if (oidcToken != null && !willSoonExpire()) {
-            return oidcToken;
-        } else {
+        TokenSnapshot current = snapshot;
+        if (current != null && (watchEnabled || !current.willSoonExpire())) {
+            return current.oidcToken;
+        }
+        return reload(current).oidcToken;
+    }
+
+    public String getOidcTokenFilePath() {
+        return oidcTokenFilePath;
+    }
+
+    public boolean isWatchEnabled() {
+        return watchEnabled;
+    }
+
+    /**
+     * Stop watching the token file
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledFuture<?> scheduled = scheduledWatch;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    /**
+     * Read the token file and publish a new snapshot, unless another thread already replaced the stale snapshot
+     *
+     * @param stale Snapshot found stale by the caller
+     * @return Current snapshot
+     */
+    private TokenSnapshot reload(TokenSnapshot stale) {
+        synchronized (reloadLock) {
+            TokenSnapshot current = snapshot;
+            if (current != stale) {
+                return current;
+            }
             try {
-                oidcToken = FileUtil.readFile(oidcTokenFilePath);
-                expiresTime = new JwtConsumerBuilder()
-                        .setSkipAllValidators()
-                        .setDisableRequireSignature()
-                        .setSkipSignatureVerification()
-                        .build()
-                        .processToClaims(oidcToken)
-                        .getExpirationTime()
-                        .getValue();
-            } catch (InvalidJwtException | MalformedClaimException | IOException e) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                String oidcToken = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                // Only the exp claim is read, the token is verified by IDaaS
+                Long expiresTime = JwtUtil.peekExpirationTime(oidcToken);
+                if (expiresTime == null) {
+                    throw new CredentialException("No exp claim in OIDC token file " + oidcTokenFilePath);
+                }
+                current = new TokenSnapshot(oidcToken, expiresTime, attributes);
+            } catch (IllegalArgumentException | IOException e) {
                 throw new CredentialException(e.getMessage(), e);
             }
+            snapshot = current;
+            return current;
         }
-        return oidcToken;
     }
 
-    public String getOidcTokenFilePath() {
-        return oidcTokenFilePath;
+    /**
+     * Reload the token if the file was replaced, or if the token is about to expire without the file being rotated
+     */
+    private void checkFile() {
+        TokenSnapshot current = snapshot;
+        try {
+            if (current == null || current.willSoonExpire()
+                    || current.isChanged(Files.readAttributes(path, BasicFileAttributes.class))) {
+                TokenSnapshot reloaded = reload(current);
+                if (current != null && !reloaded.oidcToken.equals(current.oidcToken)) {
+                    LOGGER.debug("Reloaded rotated OIDC token file {}", oidcTokenFilePath);
+                }
+            }
+        } catch (IOException | CredentialException e) {
+            LOGGER.warn("Failed to check OIDC token file {}: {}", oidcTokenFilePath, e.getMessage());
+        }
+    }
+
+    private void scheduleWatch() {
+        if (!closed) {
+            scheduledWatch = SchedulerUtil.schedule(new WatchTask(this), watchIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Watch task, only weakly referencing the provider so that an abandoned provider can still be garbage collected
+     */
+    private static final class WatchTask implements Runnable {
+
+        private final WeakReference<FileOidcTokenProvider> providerReference;
+
+        private WatchTask(FileOidcTokenProvider provider) {
+            this.providerReference = new WeakReference<>(provider);
+        }
+
+        @Override
+        public void run() {
+            FileOidcTokenProvider provider = providerReference.get();
+            if (provider == null || provider.closed) {
+                return;
+            }
+            // The file is read on the shared executor, the scheduler thread must never block on the file system
+            try {
+                AsyncExecutorUtil.getExecutor().execute(() -> {
+                    try {
+                        provider.checkFile();
+                    } finally {
+                        provider.scheduleWatch();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Failed to check OIDC token file {}: {}", provider.oidcTokenFilePath, e.getMessage());
+                provider.scheduleWatch();
+            }
+        }
     }
 
-    private boolean willSoonExpire() {
-        final long now = System.currentTimeMillis() / 1000;
-        return TimeUnit.MINUTES.toSeconds(10) > (this.expiresTime - now);
+    /**
+     * Immutable token read from the file, with the attributes of the file it was read from
+     */
+    private static final class TokenSnapshot {
+
+        private final String oidcToken;
+
+        private final long expiresTime;
+
+        private final long lastModifiedMillis;
+
+        private final long size;
+
+        // Inode of the file on unix, null where not available
+        private final Object fileKey;
+
+        private TokenSnapshot(String oidcToken, long expiresTime, BasicFileAttributes attributes) {
+            this.oidcToken = oidcToken;
+            this.expiresTime = expiresTime;
+            this.lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+            this.fileKey = attributes.fileKey();
+        }
+
+        private boolean willSoonExpire() {
+            final long now = System.currentTimeMillis() / 1000;
+            return EXPIRY_THRESHOLD_SECONDS > (this.expiresTime - now);
+        }
+
+        private boolean isChanged(BasicFileAttributes attributes) {
+            return lastModifiedMillis != attributes.lastModifiedTime().toMillis()
+                    || size != attributes.size()
+                    || !Objects.equals(fileKey, attributes.fileKey());
+        }
     }
 }
@@ -0,0 +1,280 @@
+package com.cloud_idaas.core.implementation.authentication.oidc;
+
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import com.cloud_idaas.core.util.JSONUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local cache file of the human credential, shared by the processes of the user.
+ * Writes go to a temporary file which is synced and then atomically moved over the cache file, so that readers never
+ * see a partially written file, and writers of different processes are serialized by a lock on a sibling ".lock" file.
+ * Writes can be done by a background thread, a write replacing a pending one that was not written yet. Pending writes
+ * are flushed by a shutdown hook, so that a short-lived process does not exit before its token is cached.
+ */
+public final class HumanCredentialCacheFile {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HumanCredentialCacheFile.class);
+
+    private static final String LOCK_FILE_SUFFIX = ".lock";
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    // File locks are held by the JVM, threads of the same JVM must not request overlapping ones
+    private static final Object WRITE_MONITOR = new Object();
+
+    // Files with a background write pending, flushed on shutdown
+    private static final Set<HumanCredentialCacheFile> PENDING_FILES = ConcurrentHashMap.newKeySet();
+
+    private final Path path;
+
+    private final Path lockPath;
+
+    private final Path tempPath;
+
+    private final AtomicReference<IDaaSTokenResponse> pendingWrite = new AtomicReference<>();
+
+    // Attributes of the file when last read or written by this process, null if unknown
+    private volatile FileVersion knownVersion;
+
+    public HumanCredentialCacheFile(String filePath) {
+        this.path = Paths.get(filePath);
+        this.lockPath = Paths.get(filePath + LOCK_FILE_SUFFIX);
+        this.tempPath = Paths.get(filePath + TEMP_FILE_SUFFIX);
+    }
+
+    public String getPath() {
+        return path.toString();
+    }
+
+    /**
+     * Read the cached token
+     *
+     * @return Cached token, null if there is no cache file
+     * @throws IOException If the file cannot be read
+     */
+    public IDaaSTokenResponse read() throws IOException {
+        try {
+            FileVersion version = FileVersion.of(Files.readAttributes(path, BasicFileAttributes.class));
+            IDaaSTokenResponse token = JSONUtil.parseObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8),
+                    IDaaSTokenResponse.class);
+            knownVersion = version;
+            return token;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the cached token if the file was replaced by another process since it was last read or written by this one
+     *
+     * @return Token written by another process, null if the file did not change or cannot be read
+     */
+    public IDaaSTokenResponse readIfChanged() {
+        try {
+            FileVersion current = FileVersion.of(Files.readAttributes(path, BasicFileAttributes.class));
+            if (current.equals(knownVersion)) {
+                return null;
+            }
+            return read();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to read human credential cache {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the token in the background, without waiting for the file system
+     *
+     * @param token Token to cache
+     */
+    public void writeAsync(IDaaSTokenResponse token) {
+        if (pendingWrite.getAndSet(token) == null) {
+            PENDING_FILES.add(this);
+            WriterHolder.WRITER.execute(this::flush);
+        }
+    }
+
+    /**
+     * Write the token on the calling thread, replacing the pending one if any
+     *
+     * @param token Token to cache
+     */
+    public void write(IDaaSTokenResponse token) {
+        pendingWrite.set(token);
+        flush();
+    }
+
+    /**
+     * Write the pending token, if any, on the calling thread
+     */
+    public void flush() {
+        // Removed before taking the token, a token set afterwards is either taken below or registers the file again
+        PENDING_FILES.remove(this);
+        // Held while writing, so that a flush waits for the write of the background thread in progress
+        synchronized (WRITE_MONITOR) {
+            IDaaSTokenResponse token = pendingWrite.getAndSet(null);
+            if (token == null) {
+                return;
+            }
+            try {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                writeLocked(token);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Failed to write human credential cache {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the pending tokens of all the files, after the background write in progress if any
+     */
+    private static void flushAll() {
+        synchronized (WRITE_MONITOR) {
+            for (HumanCredentialCacheFile file : PENDING_FILES) {
+                file.flush();
+            }
+        }
+    }
+
+    /**
+     * Atomically replace the cache file, unless another process already cached a token expiring later
+     */
+    private void writeLocked(IDaaSTokenResponse token) throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            FileVersion previousVersion = knownVersion;
+            IDaaSTokenResponse cached = readIfChanged();
+            if (cached != null && cached.resolveExpiresAt() > token.resolveExpiresAt()) {
+                LOGGER.debug("Human credential cache {} already holds a newer token", path);
+                // Still reported by readIfChanged, so that the provider adopts it on its next refresh
+                knownVersion = previousVersion;
+                return;
+            }
+            // A fixed name is safe under the lock, and replaces the file left by a writer that crashed
+            createTempFile();
+            try {
+                try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                    ByteBuffer content = ByteBuffer.wrap(JSONUtil.toJSONString(token).getBytes(StandardCharsets.UTF_8));
+                    while (content.hasRemaining()) {
+                        channel.write(content);
+                    }
+                    channel.force(true);
+                }
+                try {
+                    Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+            knownVersion = FileVersion.of(Files.readAttributes(path, BasicFileAttributes.class));
+        }
+    }
+
+    /**
+     * Create the temporary file readable by its owner only, it becomes the cache file
+     */
+    private void createTempFile() throws IOException {
+        Files.deleteIfExists(tempPath);
+        try {
+            Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rw-------");
+            FileAttribute<Set<PosixFilePermission>> attribute = PosixFilePermissions.asFileAttribute(ownerOnly);
+            Files.createFile(tempPath, attribute);
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(tempPath);
+        }
+    }
+
+    /**
+     * Identity of a version of the file: the file is replaced on each write, so its inode changes as well
+     */
+    private static final class FileVersion {
+
+        private final long lastModifiedMillis;
+
+        private final long size;
+
+        private final Object fileKey;
+
+        private FileVersion(long lastModifiedMillis, long size, Object fileKey) {
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+
+        private static FileVersion of(BasicFileAttributes attributes) {
+            return new FileVersion(attributes.lastModifiedTime().toMillis(), attributes.size(), attributes.fileKey());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileVersion that = (FileVersion) o;
+            return lastModifiedMillis == that.lastModifiedMillis && size == that.size && Objects.equals(fileKey, that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastModifiedMillis, size, fileKey);
+        }
+    }
+
+    /**
+     * Single background writer, its thread stops when idle. The shutdown hook is registered with the writer,
+     * writes on the calling thread are never left pending.
+     */
+    private static final class WriterHolder {
+
+        private static final Executor WRITER;
+
+        static {
+            ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "idaas-java-core-sdk-credential-cache-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            writer.allowCoreThreadTimeOut(true);
+            WRITER = writer;
+            try {
+                Runtime.getRuntime().addShutdownHook(new Thread(HumanCredentialCacheFile::flushAll,
+                        "idaas-java-core-sdk-credential-cache-flush"));
+            } catch (IllegalStateException e) {
+                // Already shutting down
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.cloud_idaas.core.exception.CredentialException;
 import com.cloud_idaas.core.factory.IDaaSCredentialProviderFactory;
 import com.cloud_idaas.core.http.OAuth2TokenUtil;
 import com.cloud_idaas.core.implementation.AbstractRefreshedCredentialProvider;
+import com.cloud_idaas.core.provider.AsyncRefreshCredentialProvider;
 import com.cloud_idaas.core.provider.OidcTokenProvider;
 import com.cloud_idaas.core.util.*;
 import org.apache.commons.lang3.exception.UncheckedInterruptedException;
@@ -20,12 +21,12 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Clock;
 import java.time.Instant;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredentialProvider<IDaaSTokenResponse> implements OidcTokenProvider {
-
-    private static final int MAX_WAIT_INTERVAL_SECONDS = 180;
+public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredentialProvider<IDaaSTokenResponse>
+        implements OidcTokenProvider, AsyncRefreshCredentialProvider<IDaaSTokenResponse> {
 
     private final TokenAuthnMethod authnMethod = TokenAuthnMethod.NONE;
     private final String clientId;
@@ -34,7 +35,9 @@ public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredential
     private final String deviceAuthorizationEndpoint;
     private transient RefreshResult<IDaaSTokenResponse> refreshResult;
     private final AtomicBoolean firstStartup = new AtomicBoolean(true);
-    private final String localHumanCachePath;
+    private final HumanCredentialCacheFile localHumanCache;
+    // Device authorization in progress, cancelled when the provider is closed
+    private volatile CompletableFuture<IDaaSTokenResponse> deviceAuthorization;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HumanFederatedOidcTokenProvider.class);
 
@@ -53,14 +56,16 @@ public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredential
 
         String envPath = System.getenv(ConfigPathConstants.ENV_HUMAN_CREDENTIAL_CACHE_PATH_KEY);
         if (StringUtil.isNoneBlank(envPath)) {
-            this.localHumanCachePath = envPath;
+            this.localHumanCache = new HumanCredentialCacheFile(envPath);
         } else {
-            this.localHumanCachePath = String.format(ConfigPathConstants.DEFAULT_HUMAN_CREDENTIAL_CACHE_PATH_TEMPLATE,
-                    IDaaSCredentialProviderFactory.getIDaasInstanceId(), this.clientId);
+            this.localHumanCache = new HumanCredentialCacheFile(String.format(ConfigPathConstants.DEFAULT_HUMAN_CREDENTIAL_CACHE_PATH_TEMPLATE,
+                    IDaaSCredentialProviderFactory.getIDaasInstanceId(), this.clientId));
         }
 
-        // To prevent concurrent operation, get credential when constructor
-        this.cachedResultSupplier.get();
+        if (builder.eagerAuthenticationEnabled) {
+            // To prevent concurrent operation, get credential when constructor
+            this.cachedResultSupplier.get();
+        }
     }
 
     public TokenAuthnMethod getAuthnMethod() {
@@ -88,70 +93,188 @@ public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredential
         if (firstStartup.get()) {
             RefreshResult<IDaaSTokenResponse> localCacheResult = tryReuseLocalCache();
             if (localCacheResult != null) {
-                this.firstStartup.compareAndSet(true, false);
                 return localCacheResult;
             }
             // Get token use device authorization
-            IDaaSTokenResponse tokenResponse = getTokenWithDeviceAuthorization();
-            // staleTime: 4/5 of expiresIn, prefetchTime: 2/3 of expiresIn
-            Instant staleTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 5));
-            Instant prefetchTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 3));
-            this.firstStartup.compareAndSet(true, false);
-            LOGGER.info("token authn time: {}", Clock.systemUTC().instant().toEpochMilli());
-            FileUtil.writeFile(this.localHumanCachePath, JSONUtil.toJSONString(tokenResponse));
-            refreshResult = RefreshResult.builder(tokenResponse)
-                    .staleTime(staleTime)
-                    .prefetchTime(prefetchTime)
-                    .build();
-            return refreshResult;
+            return onDeviceAuthorized(awaitDeviceAuthorization(startDeviceAuthorization()));
         } else {
+            // Another process of the user may have refreshed the token already, possibly rotating the refresh token
+            RefreshResult<IDaaSTokenResponse> siblingResult = tryAdoptSiblingToken();
+            if (siblingResult != null) {
+                return siblingResult;
+            }
             // refresh token must saved by itself and the cache result supplier cannot be used,
             // it will lead to repeat calls and stack overflow.
             final String refreshToken = refreshResult.getValue().getRefreshToken();
-            IDaaSTokenResponse tokenResponse = refreshToken(refreshToken);
-            Instant staleTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 5));
-            Instant prefetchTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 3));
-            LOGGER.info("token refresh time: {}", Clock.systemUTC().instant().toEpochMilli());
-            // Every time refresh token, write to local cache
-            FileUtil.writeFile(this.localHumanCachePath, JSONUtil.toJSONString(tokenResponse));
-            refreshResult = RefreshResult.builder(tokenResponse)
-                    .staleTime(staleTime)
-                    .prefetchTime(prefetchTime)
-                    .build();
-            return refreshResult;
+            return onTokenRefreshed(refreshToken(refreshToken));
+        }
+    }
+
+    /**
+     * Refresh without holding a thread while the user authenticates on the device authorization page.
+     * The local cache file is read on the calling thread, the token requests are sent asynchronously.
+     */
+    @Override
+    public CompletableFuture<RefreshResult<IDaaSTokenResponse>> refreshCredentialAsync() {
+        if (firstStartup.get()) {
+            IDaaSTokenResponse localToken = readLocalCache();
+            if (localToken != null && !localToken.willSoonExpire()) {
+                return CompletableFuture.completedFuture(reuseLocalToken(localToken));
+            }
+            CompletableFuture<RefreshResult<IDaaSTokenResponse>> localCacheResult = localToken == null
+                    ? CompletableFuture.completedFuture(null) : refreshLocalTokenAsync(localToken);
+            return localCacheResult.thenCompose(result -> result != null
+                    ? CompletableFuture.completedFuture(result)
+                    // The cache file is written before completing, off the thread polling the token endpoint
+                    : startDeviceAuthorization().getResult().thenApplyAsync(this::onDeviceAuthorized, AsyncExecutorUtil.getExecutor()));
+        } else {
+            RefreshResult<IDaaSTokenResponse> siblingResult = tryAdoptSiblingToken();
+            if (siblingResult != null) {
+                return CompletableFuture.completedFuture(siblingResult);
+            }
+            final String refreshToken = refreshResult.getValue().getRefreshToken();
+            if (StringUtil.isEmpty(refreshToken)) {
+                CompletableFuture<RefreshResult<IDaaSTokenResponse>> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new CredentialException(ErrorCode.REFRESH_TOKEN_EMPTY.getCode(), "refresh token is empty"));
+                return failed;
+            }
+            return OAuth2TokenUtil.refreshTokenAsync(clientId, refreshToken, tokenEndpoint).thenApply(this::onTokenRefreshed);
         }
     }
 
+    private RefreshResult<IDaaSTokenResponse> onDeviceAuthorized(IDaaSTokenResponse tokenResponse) {
+        this.firstStartup.compareAndSet(true, false);
+        LOGGER.info("token authn time: {}", Clock.systemUTC().instant().toEpochMilli());
+        // Written before returning, a short-lived process must not exit before the user authentication is cached
+        this.localHumanCache.write(tokenResponse);
+        return cacheTokenResponse(tokenResponse);
+    }
+
+    private RefreshResult<IDaaSTokenResponse> onTokenRefreshed(IDaaSTokenResponse tokenResponse) {
+        LOGGER.info("token refresh time: {}", Clock.systemUTC().instant().toEpochMilli());
+        // The rotated refresh token is written in the background, pending writes are flushed on shutdown
+        this.localHumanCache.writeAsync(tokenResponse);
+        return cacheTokenResponse(tokenResponse);
+    }
+
+    private RefreshResult<IDaaSTokenResponse> cacheTokenResponse(IDaaSTokenResponse tokenResponse) {
+        // staleTime: 4/5 of expiresIn, prefetchTime: 2/3 of expiresIn
+        Instant staleTime = tokenResponse.resolveStaleTime();
+        Instant prefetchTime = tokenResponse.resolvePrefetchTime();
+        refreshResult = RefreshResult.builder(tokenResponse)
+                .staleTime(staleTime)
+                .prefetchTime(prefetchTime)
+                .build();
+        return refreshResult;
+    }
+
     private RefreshResult<IDaaSTokenResponse> tryReuseLocalCache() {
         // Application run first, try to use local cache, to avoid repeated human authentication
+        IDaaSTokenResponse localToken = readLocalCache();
+        if (localToken == null) {
+            return null;
+        }
+        if (!localToken.willSoonExpire()) {
+            return reuseLocalToken(localToken);
+        }
+        try {
+            RefreshResult<IDaaSTokenResponse> result = onTokenRefreshed(refreshToken(localToken.getRefreshToken()));
+            this.firstStartup.compareAndSet(true, false);
+            return result;
+        } catch (Exception e) {
+            LOGGER.error("Refresh local cache token failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Refresh the local cache token without blocking
+     *
+     * @return Future of the refreshed token, completed with null if it cannot be refreshed
+     */
+    private CompletableFuture<RefreshResult<IDaaSTokenResponse>> refreshLocalTokenAsync(IDaaSTokenResponse localToken) {
+        final String refreshToken = localToken.getRefreshToken();
+        if (StringUtil.isEmpty(refreshToken)) {
+            LOGGER.error("Refresh local cache token failed: refresh token is empty");
+            return CompletableFuture.completedFuture(null);
+        }
+        return OAuth2TokenUtil.refreshTokenAsync(clientId, refreshToken, tokenEndpoint)
+                .thenApply(tokenResponse -> {
+                    RefreshResult<IDaaSTokenResponse> result = onTokenRefreshed(tokenResponse);
+                    this.firstStartup.compareAndSet(true, false);
+                    return result;
+                })
+                .exceptionally(e -> {
+                    LOGGER.error("Refresh local cache token failed: {}", e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * @return Valid token of the local cache file, null if there is none
+     */
+    private IDaaSTokenResponse readLocalCache() {
         try {
-            String localFileCachedResult = FileUtil.readFile(this.localHumanCachePath);
-            IDaaSTokenResponse localToken = JSONUtil.parseObject(localFileCachedResult, IDaaSTokenResponse.class);
+            IDaaSTokenResponse localToken = this.localHumanCache.read();
             if (localToken != null) {
                 ValidatorUtil.validateLocalToken(localToken);
-                if (localToken.willSoonExpire()) {
-                    final String refreshToken = localToken.getRefreshToken();
-                    IDaaSTokenResponse tokenResponse = refreshToken(refreshToken);
-                    Instant staleTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 5));
-                    Instant prefetchTime = Instant.ofEpochSecond(tokenResponse.getExpiresAt() - TimeUnit.SECONDS.toSeconds(tokenResponse.getExpiresIn() / 3));
-                    LOGGER.info("token refresh time: {}", Clock.systemUTC().instant().toString());
-                    FileUtil.writeFile(this.localHumanCachePath, JSONUtil.toJSONString(tokenResponse));
-                    refreshResult = RefreshResult.builder(tokenResponse)
-                            .staleTime(staleTime)
-                            .prefetchTime(prefetchTime)
-                            .build();
-                    return refreshResult;
-                } else {
-                    return RefreshResult.builder(localToken)
-                            .staleTime(Instant.ofEpochSecond(localToken.getExpiresAt() - TimeUnit.SECONDS.toSeconds(localToken.getExpiresIn() / 5)))
-                            .prefetchTime(Instant.ofEpochSecond(localToken.getExpiresAt() - TimeUnit.SECONDS.toSeconds(localToken.getExpiresIn() / 3)))
-                            .build();
-                }
             }
+            return localToken;
         } catch (Exception e) {
             LOGGER.error("Read local cache failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private RefreshResult<IDaaSTokenResponse> reuseLocalToken(IDaaSTokenResponse localToken) {
+        // Kept for the next refresh, which needs the refresh token of the reused token
+        refreshResult = RefreshResult.builder(localToken)
+                .staleTime(localToken.resolveStaleTime())
+                .prefetchTime(localToken.resolvePrefetchTime())
+                .build();
+        this.firstStartup.compareAndSet(true, false);
+        return refreshResult;
+    }
+
+    /**
+     * Adopt the token cached by another process if it expires later than the current one and is not due for refresh yet
+     *
+     * @return Token refreshed by another process, null if there is none
+     */
+    private RefreshResult<IDaaSTokenResponse> tryAdoptSiblingToken() {
+        IDaaSTokenResponse siblingToken = this.localHumanCache.readIfChanged();
+        if (siblingToken == null) {
+            return null;
+        }
+        try {
+            ValidatorUtil.validateLocalToken(siblingToken);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        Instant prefetchTime = siblingToken.resolvePrefetchTime();
+        if (siblingToken.resolveExpiresAt() <= refreshResult.getValue().resolveExpiresAt()
+                || !prefetchTime.isAfter(Clock.systemUTC().instant())) {
+            return null;
+        }
+        LOGGER.info("Reuse the token refreshed by another process");
+        refreshResult = RefreshResult.builder(siblingToken)
+                .staleTime(siblingToken.resolveStaleTime())
+                .prefetchTime(prefetchTime)
+                .build();
+        return refreshResult;
+    }
+
+    /**
+     * Stop the proactive refresh and the device authorization in progress, and write the pending local cache update
+     */
+    @Override
+    public void close() {
+        super.close();
+        CompletableFuture<IDaaSTokenResponse> localDeviceAuthorization = this.deviceAuthorization;
+        if (localDeviceAuthorization != null) {
+            localDeviceAuthorization.cancel(false);
         }
-        return null;
+        this.localHumanCache.flush();
     }
 
     @Override
@@ -159,6 +282,16 @@ public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredential
         return cachedResultSupplier.get().getAccessToken();
     }
 
+    /**
+     * Get the OIDC token without blocking the calling thread, so that the application can go on starting
+     * while the user authenticates on the device authorization page
+     *
+     * @return Future of the OIDC token
+     */
+    public CompletableFuture<String> getOidcTokenAsync() {
+        return cachedResultSupplier.getAsync().thenApply(IDaaSTokenResponse::getAccessToken);
+    }
+
     private IDaaSTokenResponse refreshToken(String refreshToken) {
         if (StringUtil.isEmpty(refreshToken)) {
             throw new CredentialException(ErrorCode.REFRESH_TOKEN_EMPTY.getCode(), "refresh token is empty");
@@ -166,38 +299,41 @@ public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredential
         return OAuth2TokenUtil.refreshToken(clientId, refreshToken, tokenEndpoint);
     }
 
-    private IDaaSTokenResponse getTokenWithDeviceAuthorization() {
-        final DeviceCodeResponse deviceCodeResponse;
-        deviceCodeResponse = OAuth2TokenUtil.getDeviceCode(clientId, scope, this.deviceAuthorizationEndpoint);
+    private DeviceAuthorizationFlow startDeviceAuthorization() {
+        DeviceAuthorizationFlow flow = DeviceAuthorizationFlow.start(clientId, scope,
+                this.deviceAuthorizationEndpoint, this.tokenEndpoint, this::showVerificationUri);
+        this.deviceAuthorization = flow.getResult();
+        return flow;
+    }
 
+    private void showVerificationUri(DeviceCodeResponse deviceCodeResponse) {
         try {
             // Print relevant information first, then help the user open manually
             LOGGER.info("Open the verification URL in your browser: {}", deviceCodeResponse.getVerificationUriComplete());
             BrowserUtil.open(new URI(deviceCodeResponse.getVerificationUriComplete()));
-
         } catch (IOException | URISyntaxException e) {
             LOGGER.error("Open browser failed: {}, Please open the verification URL in your browser: {}", e.getMessage(), deviceCodeResponse.getVerificationUriComplete());
         }
+    }
 
+    private IDaaSTokenResponse awaitDeviceAuthorization(DeviceAuthorizationFlow flow) {
         try {
-            final long pollInterval = (deviceCodeResponse.getInterval() == null ? 5 : deviceCodeResponse.getInterval());
-            IDaaSTokenResponse token;
-            for (int i = 0; ; i++) {
-                Thread.sleep(TimeUnit.SECONDS.toMillis(pollInterval));
-                token = OAuth2TokenUtil.getTokenByDeviceCode(this.clientId, deviceCodeResponse.getDeviceCode(), this.tokenEndpoint);
-                if (token != null) {
-                    break;
-                }
-                if (i >= MAX_WAIT_INTERVAL_SECONDS / pollInterval) {
-                    LOGGER.error("waiting for token timeout.");
-                    break;
-                }
-            }
-            return token;
+            // Bounded by the expiry of the device code
+            return flow.get();
         } catch (InterruptedException e) {
+            flow.getResult().cancel(false);
+            Thread.currentThread().interrupt();
             throw new UncheckedInterruptedException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CredentialException(cause.getMessage(), cause);
         }
-
     }
 
     public static final class IDaaSHumanOIDCTokenProviderBuilder
@@ -205,6 +341,7 @@ public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredential
         private String clientId;
         private String tokenEndpoint;
         private String deviceAuthorizationEndpoint;
+        private boolean eagerAuthenticationEnabled = true;
 
         private IDaaSHumanOIDCTokenProviderBuilder() {}
 
@@ -225,6 +362,18 @@ public class HumanFederatedOidcTokenProvider extends AbstractRefreshedCredential
             return this;
         }
 
+        /**
+         * Set whether the user is authenticated when the provider is built, which blocks until the device is authorized.
+         * When disabled, the first call of {@link HumanFederatedOidcTokenProvider#getOidcTokenAsync()} starts the authentication without blocking.
+         *
+         * @param eagerAuthenticationEnabled Whether the user is authenticated when the provider is built
+         * @return Builder instance
+         */
+        public IDaaSHumanOIDCTokenProviderBuilder eagerAuthenticationEnabled(boolean eagerAuthenticationEnabled) {
+            this.eagerAuthenticationEnabled = eagerAuthenticationEnabled;
+            return this;
+        }
+
         public HumanFederatedOidcTokenProvider build() {
             return new HumanFederatedOidcTokenProvider(this);
         }
@@ -5,6 +5,7 @@ import com.cloud_idaas.core.domain.constants.HttpConstants;
 import com.cloud_idaas.core.exception.EncodingException;
 import com.cloud_idaas.core.http.*;
 import com.cloud_idaas.core.implementation.AbstractRefreshedCredentialProvider;
+import com.cloud_idaas.core.provider.AsyncRefreshCredentialProvider;
 import com.cloud_idaas.core.provider.Pkcs7AttestedDocumentProvider;
 import com.cloud_idaas.core.util.JSONUtil;
 import com.cloud_idaas.core.util.StringUtil;
@@ -17,8 +18,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCredentialProvider<String> implements Pkcs7AttestedDocumentProvider {
+public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCredentialProvider<String> implements Pkcs7AttestedDocumentProvider,
+        AsyncRefreshCredentialProvider<String> {
 
     private static final String ECS_META_SERVER_PKCS7_TOKEN_URL = "http://100.100.100.200/latest/api/token";
 
@@ -26,6 +29,8 @@ public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCr
 
     private final String metaServerUrlTemplate;
 
+    private final String metaServerTokenUrl;
+
     private String idaasInstanceId;
 
     private transient long signingTime = getNow();
@@ -37,6 +42,7 @@ public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCr
     protected AlibabaCloudEcsAttestedDocumentProvider(AlibabaCloudEcsAttestedDocumentProviderBuilder builder) {
         super(builder);
         this.metaServerUrlTemplate = builder.metaServerPkcs7UrlTemplate;
+        this.metaServerTokenUrl = builder.metaServerTokenUrl;
         this.idaasInstanceId = builder.idaasInstanceId;
         this.defaultDocumentEffectiveSeconds = builder.defaultDocumentEffectiveSeconds;
     }
@@ -45,6 +51,10 @@ public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCr
         return metaServerUrlTemplate;
     }
 
+    public String getMetaServerTokenUrl() {
+        return metaServerTokenUrl;
+    }
+
     public String getIdaasInstanceId() {
         return idaasInstanceId;
     }
@@ -82,34 +92,54 @@ public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCr
 
     @Override
     public RefreshResult<String> refreshCredential() {
+        String audienceParameterValue = buildAudienceParameterValue();
+        HttpResponse tokenResponse = HTTP_CLIENT.send(buildTokenRequest());
+        HttpResponse docResponse = HTTP_CLIENT.send(buildDocumentRequest(tokenResponse.getBody(), audienceParameterValue));
+        return toRefreshResult(docResponse.getBody());
+    }
+
+    @Override
+    public CompletableFuture<RefreshResult<String>> refreshCredentialAsync() {
+        String audienceParameterValue = buildAudienceParameterValue();
+        return HTTP_CLIENT.sendAsync(buildTokenRequest())
+                .thenCompose(tokenResponse -> HTTP_CLIENT.sendAsync(buildDocumentRequest(tokenResponse.getBody(), audienceParameterValue)))
+                .thenApply(docResponse -> toRefreshResult(docResponse.getBody()));
+    }
+
+    private String buildAudienceParameterValue() {
         Map<String, Object> audienceValue = new HashMap<>();
         audienceValue.put("aud", this.idaasInstanceId);
         this.signingTime = getNow();
         audienceValue.put("signingTime", this.signingTime);
-        final String audienceParameterValue;
         try {
-            audienceParameterValue = URLEncoder.encode(JSONUtil.toJSONString(audienceValue), StandardCharsets.UTF_8.toString());
+            return URLEncoder.encode(JSONUtil.toJSONString(audienceValue), StandardCharsets.UTF_8.toString());
         } catch (UnsupportedEncodingException e) {
             throw new EncodingException(e.getMessage(),  e);
         }
+    }
+
+    private HttpRequest buildTokenRequest() {
         Map<String, List<String>> tokenHeaders = new HashMap<>();
         tokenHeaders.put(HttpConstants.X_ALIYUN_ECS_METADATA_TOKEN_TTL_SECONDS, Collections.singletonList(String.valueOf(this.defaultDocumentEffectiveSeconds)));
-        HttpRequest tokenRequest = new HttpRequest.Builder()
-                .url(ECS_META_SERVER_PKCS7_TOKEN_URL)
+        return new HttpRequest.Builder()
+                .url(this.metaServerTokenUrl)
                 .httpMethod(HttpMethod.PUT)
                 .headers(tokenHeaders)
                 .build();
-        HttpResponse tokenResponse = HTTP_CLIENT.send(tokenRequest);
-        String token = tokenResponse.getBody();
+    }
+
+    private HttpRequest buildDocumentRequest(String token, String audienceParameterValue) {
         Map<String, List<String>> docHeaders = new HashMap<>();
         docHeaders.put(HttpConstants.X_ALIYUN_ECS_METADATA_TOKEN, Collections.singletonList(token));
-        HttpRequest docRequest= new HttpRequest.Builder()
+        return new HttpRequest.Builder()
                 .url(String.format(this.metaServerUrlTemplate, audienceParameterValue))
                 .httpMethod(HttpMethod.GET)
                 .headers(docHeaders)
                 .build();
-        HttpResponse docResponse = HTTP_CLIENT.send(docRequest);
-        return RefreshResult.builder(docResponse.getBody())
+    }
+
+    private RefreshResult<String> toRefreshResult(String attestedDocument) {
+        return RefreshResult.builder(attestedDocument)
                 .staleTime(Instant.ofEpochSecond(this.signingTime + this.defaultDocumentEffectiveSeconds))
                 .prefetchTime(Instant.ofEpochSecond(this.signingTime + this.defaultDocumentEffectiveSeconds / 2))
                 .build();
@@ -123,6 +153,7 @@ public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCr
             extends AbstractRefreshedCredentialProvider.BuilderImpl<AlibabaCloudEcsAttestedDocumentProvider, AlibabaCloudEcsAttestedDocumentProviderBuilder> {
 
         private String metaServerPkcs7UrlTemplate = ECS_META_SERVER_PKCS7_URL_TEMPLATE;
+        private String metaServerTokenUrl = ECS_META_SERVER_PKCS7_TOKEN_URL;
         private String idaasInstanceId;
         private long defaultDocumentEffectiveSeconds = 3600L;
 
@@ -139,6 +170,15 @@ public class AlibabaCloudEcsAttestedDocumentProvider extends AbstractRefreshedCr
             return this;
         }
 
+        public AlibabaCloudEcsAttestedDocumentProviderBuilder metaServerTokenUrl(String metaServerTokenUrl) {
+            if (StringUtil.isEmpty(metaServerTokenUrl)) {
+                throw new IllegalArgumentException("metaServerTokenUrl cannot be empty");
+            }
+
+            this.metaServerTokenUrl = metaServerTokenUrl;
+            return this;
+        }
+
         public AlibabaCloudEcsAttestedDocumentProviderBuilder idaasInstanceId(String idaasInstanceId) {
             if (StringUtil.isEmpty(idaasInstanceId)) {
                 throw new IllegalArgumentException("idaasInstanceId cannot be empty");
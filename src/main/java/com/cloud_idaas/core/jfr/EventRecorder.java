@@ -0,0 +1,68 @@
+package com.cloud_idaas.core.jfr;
+
+/**
+ * Facade of the JDK Flight Recorder events emitted by the SDK. Duration events are started by a begin method,
+ * which returns null while the event is disabled, and are passed back to the matching commit method.
+ * Obtain the recorder via {@link EventRecorderUtil#getRecorder()}.
+ */
+public interface EventRecorder {
+
+    /**
+     * @return Started cache refresh event, null if disabled
+     */
+    Object beginRefresh();
+
+    /**
+     * @param event   Event returned by {@link #beginRefresh()}
+     * @param cache   Name of the refreshed cache
+     * @param success Whether the refresh succeeded
+     */
+    void commitRefresh(Object event, String cache, boolean success);
+
+    /**
+     * @return Started event of a caller waiting for the in-flight refresh of another caller, null if disabled
+     */
+    Object beginRefreshWait();
+
+    /**
+     * @param event Event returned by {@link #beginRefreshWait()}
+     * @param cache Name of the cache
+     */
+    void commitRefreshWait(Object event, String cache);
+
+    /**
+     * @param cache Name of the cache serving a stale value
+     */
+    void staleServed(String cache);
+
+    /**
+     * @param strategy Prefetch strategy dropping the prefetch
+     * @param reason   Reason the prefetch was dropped
+     */
+    void prefetchDropped(String strategy, String reason);
+
+    /**
+     * @return Started HTTP call event, null if disabled
+     */
+    Object beginHttpCall();
+
+    /**
+     * @param event         Event returned by {@link #beginHttpCall()}
+     * @param method        Request method
+     * @param url           Request url
+     * @param status        Response status code, -1 if no response was received
+     * @param responseBytes Length of the response body, -1 if unknown
+     */
+    void commitHttpCall(Object event, String method, String url, int status, long responseBytes);
+
+    /**
+     * @return Started JWT signing event, null if disabled
+     */
+    Object beginJwtSigning();
+
+    /**
+     * @param event     Event returned by {@link #beginJwtSigning()}
+     * @param algorithm JWS algorithm
+     */
+    void commitJwtSigning(Object event, String algorithm);
+}
@@ -0,0 +1,32 @@
+package com.cloud_idaas.core.jfr;
+
+/**
+ * Holder of the event recorder of the SDK. JDK Flight Recorder events are emitted on JVMs providing jdk.jfr,
+ * the recorder is looked up reflectively so that the SDK still runs on JVMs without it, e.g. older JDK 8 builds.
+ */
+public class EventRecorderUtil {
+
+    private static final String JFR_EVENT_CLASS = "jdk.jfr.Event";
+
+    private static final String JFR_EVENT_RECORDER_CLASS = "com.cloud_idaas.core.jfr.JfrEventRecorder";
+
+    private static final EventRecorder RECORDER = createRecorder();
+
+    /**
+     * Get the event recorder of the SDK
+     *
+     * @return Event recorder, doing nothing if JDK Flight Recorder is not available
+     */
+    public static EventRecorder getRecorder() {
+        return RECORDER;
+    }
+
+    private static EventRecorder createRecorder() {
+        try {
+            Class.forName(JFR_EVENT_CLASS);
+            return (EventRecorder) Class.forName(JFR_EVENT_RECORDER_CLASS).getDeclaredConstructor().newInstance();
+        } catch (Throwable t) {
+            return new NoOpEventRecorder();
+        }
+    }
+}
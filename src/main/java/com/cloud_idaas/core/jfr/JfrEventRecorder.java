@@ -0,0 +1,221 @@
+package com.cloud_idaas.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event recorder emitting JDK Flight Recorder events. Only loaded by {@link EventRecorderUtil} when jdk.jfr is available,
+ * events are only allocated while a recording has them enabled.
+ */
+public final class JfrEventRecorder implements EventRecorder {
+
+    private static final EventType REFRESH = EventType.getEventType(CacheRefreshEvent.class);
+
+    private static final EventType REFRESH_WAIT = EventType.getEventType(CacheRefreshWaitEvent.class);
+
+    private static final EventType STALE_SERVED = EventType.getEventType(StaleValueServedEvent.class);
+
+    private static final EventType PREFETCH_DROPPED = EventType.getEventType(PrefetchDroppedEvent.class);
+
+    private static final EventType HTTP_CALL = EventType.getEventType(HttpCallEvent.class);
+
+    private static final EventType JWT_SIGNING = EventType.getEventType(JwtSigningEvent.class);
+
+    @Override
+    public Object beginRefresh() {
+        if (!REFRESH.isEnabled()) {
+            return null;
+        }
+        CacheRefreshEvent event = new CacheRefreshEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitRefresh(Object event, String cache, boolean success) {
+        if (event == null) {
+            return;
+        }
+        CacheRefreshEvent refreshEvent = (CacheRefreshEvent) event;
+        refreshEvent.end();
+        if (refreshEvent.shouldCommit()) {
+            refreshEvent.cache = cache;
+            refreshEvent.success = success;
+            refreshEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginRefreshWait() {
+        if (!REFRESH_WAIT.isEnabled()) {
+            return null;
+        }
+        CacheRefreshWaitEvent event = new CacheRefreshWaitEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitRefreshWait(Object event, String cache) {
+        if (event == null) {
+            return;
+        }
+        CacheRefreshWaitEvent waitEvent = (CacheRefreshWaitEvent) event;
+        waitEvent.end();
+        if (waitEvent.shouldCommit()) {
+            waitEvent.cache = cache;
+            waitEvent.commit();
+        }
+    }
+
+    @Override
+    public void staleServed(String cache) {
+        if (!STALE_SERVED.isEnabled()) {
+            return;
+        }
+        StaleValueServedEvent event = new StaleValueServedEvent();
+        event.cache = cache;
+        event.commit();
+    }
+
+    @Override
+    public void prefetchDropped(String strategy, String reason) {
+        if (!PREFETCH_DROPPED.isEnabled()) {
+            return;
+        }
+        PrefetchDroppedEvent event = new PrefetchDroppedEvent();
+        event.strategy = strategy;
+        event.reason = reason;
+        event.commit();
+    }
+
+    @Override
+    public Object beginHttpCall() {
+        if (!HTTP_CALL.isEnabled()) {
+            return null;
+        }
+        HttpCallEvent event = new HttpCallEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitHttpCall(Object event, String method, String url, int status, long responseBytes) {
+        if (event == null) {
+            return;
+        }
+        HttpCallEvent httpCallEvent = (HttpCallEvent) event;
+        httpCallEvent.end();
+        if (httpCallEvent.shouldCommit()) {
+            httpCallEvent.method = method;
+            httpCallEvent.url = url;
+            httpCallEvent.status = status;
+            httpCallEvent.responseBytes = responseBytes;
+            httpCallEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginJwtSigning() {
+        if (!JWT_SIGNING.isEnabled()) {
+            return null;
+        }
+        JwtSigningEvent event = new JwtSigningEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitJwtSigning(Object event, String algorithm) {
+        if (event == null) {
+            return;
+        }
+        JwtSigningEvent signingEvent = (JwtSigningEvent) event;
+        signingEvent.end();
+        if (signingEvent.shouldCommit()) {
+            signingEvent.algorithm = algorithm;
+            signingEvent.commit();
+        }
+    }
+
+    @Name("com.cloud_idaas.CacheRefresh")
+    @Label("Cache Refresh")
+    @Category({"IDaaS SDK", "Cache"})
+    @Description("Refresh of a cached credential by its value supplier")
+    static final class CacheRefreshEvent extends Event {
+
+        @Label("Cache")
+        String cache;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("com.cloud_idaas.CacheRefreshWait")
+    @Label("Cache Refresh Wait")
+    @Category({"IDaaS SDK", "Cache"})
+    @Description("Caller waiting for the in-flight refresh owned by another caller")
+    static final class CacheRefreshWaitEvent extends Event {
+
+        @Label("Cache")
+        String cache;
+    }
+
+    @Name("com.cloud_idaas.StaleValueServed")
+    @Label("Stale Value Served")
+    @Category({"IDaaS SDK", "Cache"})
+    @Description("Stale cached value served because the refresh failed, timed out or is suspended")
+    static final class StaleValueServedEvent extends Event {
+
+        @Label("Cache")
+        String cache;
+    }
+
+    @Name("com.cloud_idaas.PrefetchDropped")
+    @Label("Prefetch Dropped")
+    @Category({"IDaaS SDK", "Cache"})
+    @Description("Prefetch not started by the prefetch strategy")
+    static final class PrefetchDroppedEvent extends Event {
+
+        @Label("Strategy")
+        String strategy;
+
+        @Label("Reason")
+        String reason;
+    }
+
+    @Name("com.cloud_idaas.HttpCall")
+    @Label("HTTP Call")
+    @Category({"IDaaS SDK", "HTTP"})
+    @Description("Single attempt of an HTTP request")
+    static final class HttpCallEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("URL")
+        String url;
+
+        @Label("Status")
+        int status;
+
+        @Label("Response Size")
+        @DataAmount
+        long responseBytes;
+    }
+
+    @Name("com.cloud_idaas.JwtSigning")
+    @Label("JWT Signing")
+    @Category({"IDaaS SDK", "JWT"})
+    @Description("Signing of a JWT client assertion")
+    static final class JwtSigningEvent extends Event {
+
+        @Label("Algorithm")
+        String algorithm;
+    }
+}
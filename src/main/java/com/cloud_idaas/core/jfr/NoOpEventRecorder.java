@@ -0,0 +1,51 @@
+package com.cloud_idaas.core.jfr;
+
+/**
+ * Event recorder used when the JVM has no JDK Flight Recorder, all methods do nothing
+ */
+public class NoOpEventRecorder implements EventRecorder {
+
+    @Override
+    public Object beginRefresh() {
+        return null;
+    }
+
+    @Override
+    public void commitRefresh(Object event, String cache, boolean success) {
+    }
+
+    @Override
+    public Object beginRefreshWait() {
+        return null;
+    }
+
+    @Override
+    public void commitRefreshWait(Object event, String cache) {
+    }
+
+    @Override
+    public void staleServed(String cache) {
+    }
+
+    @Override
+    public void prefetchDropped(String strategy, String reason) {
+    }
+
+    @Override
+    public Object beginHttpCall() {
+        return null;
+    }
+
+    @Override
+    public void commitHttpCall(Object event, String method, String url, int status, long responseBytes) {
+    }
+
+    @Override
+    public Object beginJwtSigning() {
+        return null;
+    }
+
+    @Override
+    public void commitJwtSigning(Object event, String algorithm) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloud_idaas.core.metrics;
+
+/**
+ * Monotonically increasing counter
+ */
+public interface Counter {
+
+    /**
+     * Increment the counter by one
+     */
+    default void increment() {
+        increment(1L);
+    }
+
+    /**
+     * Increment the counter
+     *
+     * @param amount Amount to add, must not be negative
+     */
+    void increment(long amount);
+
+    /**
+     * Get the current count
+     *
+     * @return Current count
+     */
+    long count();
+}
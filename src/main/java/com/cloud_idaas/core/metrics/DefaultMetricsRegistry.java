@@ -0,0 +1,163 @@
+package com.cloud_idaas.core.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default in-memory metrics registry. Counters and timers are striped over {@link LongAdder} cells,
+ * so that concurrent updates from many threads do not contend on a single memory location.
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+
+    private final ConcurrentMap<MeterId, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<MeterId, Timer> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<MeterId, Gauge> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(new MeterId(name, tags), id -> new StripedCounter());
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(new MeterId(name, tags), id -> new StripedTimer());
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge, String... tags) {
+        gauges.put(new MeterId(name, tags), gauge);
+    }
+
+    public Map<MeterId, Counter> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Map<MeterId, Timer> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+    public Map<MeterId, Gauge> getGauges() {
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    /**
+     * Meter identity made of the meter name and its tags
+     */
+    public static final class MeterId {
+
+        private final String name;
+
+        private final String[] tags;
+
+        private MeterId(String name, String[] tags) {
+            if (name == null) {
+                throw new IllegalArgumentException("name cannot be null");
+            }
+            if (tags != null && tags.length % 2 != 0) {
+                throw new IllegalArgumentException("tags must be alternating keys and values");
+            }
+            this.name = name;
+            this.tags = tags == null ? new String[0] : tags.clone();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Alternating tag keys and values
+         */
+        public String[] getTags() {
+            return tags.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MeterId)) {
+                return false;
+            }
+            MeterId meterId = (MeterId) o;
+            return name.equals(meterId.name) && Arrays.equals(tags, meterId.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Arrays.hashCode(tags);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name);
+            for (int i = 0; i + 1 < tags.length; i += 2) {
+                builder.append(i == 0 ? '{' : ',').append(tags[i]).append('=').append(tags[i + 1]);
+            }
+            return tags.length == 0 ? builder.toString() : builder.append('}').toString();
+        }
+    }
+
+    private static final class StripedCounter implements Counter {
+
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment() {
+            count.increment();
+        }
+
+        @Override
+        public void increment(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+    }
+
+    private static final class StripedTimer implements Timer {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+        @Override
+        public void record(long duration, TimeUnit unit) {
+            long nanos = unit.toNanos(duration);
+            if (nanos < 0) {
+                return;
+            }
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+
+        @Override
+        public long totalTime(TimeUnit unit) {
+            return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public long max(TimeUnit unit) {
+            return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
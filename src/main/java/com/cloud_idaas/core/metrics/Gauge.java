@@ -0,0 +1,15 @@
+package com.cloud_idaas.core.metrics;
+
+/**
+ * Gauge sampling the current value of some state when it is read
+ */
+@FunctionalInterface
+public interface Gauge {
+
+    /**
+     * Get the current value
+     *
+     * @return Current value, {@link Double#NaN} if the value is not available
+     */
+    double value();
+}
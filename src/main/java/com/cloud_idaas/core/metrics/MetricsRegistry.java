@@ -0,0 +1,36 @@
+package com.cloud_idaas.core.metrics;
+
+/**
+ * Metrics SPI the SDK reports into. Meters are identified by their name and tags, the tags are given as
+ * alternating keys and values. Asking twice for the same meter returns the same instance, so callers on
+ * hot paths resolve their meters once and keep them.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Get or create a counter
+     *
+     * @param name Meter name
+     * @param tags Alternating tag keys and values
+     * @return Counter
+     */
+    Counter counter(String name, String... tags);
+
+    /**
+     * Get or create a timer
+     *
+     * @param name Meter name
+     * @param tags Alternating tag keys and values
+     * @return Timer
+     */
+    Timer timer(String name, String... tags);
+
+    /**
+     * Register a gauge, replacing the gauge registered before under the same name and tags
+     *
+     * @param name  Meter name
+     * @param gauge Gauge sampled whenever the meter is read, must be cheap and must not block
+     * @param tags  Alternating tag keys and values
+     */
+    void gauge(String name, Gauge gauge, String... tags);
+}
@@ -0,0 +1,32 @@
+package com.cloud_idaas.core.metrics;
+
+/**
+ * Holder of the metrics registry the whole SDK reports into.
+ * Meters are resolved when the reporting components are created, so a custom registry has to be set
+ * before the credential providers and http clients are created, e.g. before IDaaSCredentialProviderFactory.init.
+ */
+public class MetricsUtil {
+
+    private static volatile MetricsRegistry registry = new DefaultMetricsRegistry();
+
+    /**
+     * Get the metrics registry of the SDK
+     *
+     * @return Metrics registry
+     */
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Set the metrics registry of the SDK
+     *
+     * @param metricsRegistry Metrics registry, {@link NoopMetricsRegistry} to disable metrics
+     */
+    public static void setRegistry(MetricsRegistry metricsRegistry) {
+        if (metricsRegistry == null) {
+            throw new IllegalArgumentException("metricsRegistry cannot be null");
+        }
+        registry = metricsRegistry;
+    }
+}
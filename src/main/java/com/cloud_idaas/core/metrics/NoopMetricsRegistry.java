@@ -0,0 +1,55 @@
+package com.cloud_idaas.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics registry discarding all measurements
+ */
+public class NoopMetricsRegistry implements MetricsRegistry {
+
+    private static final Counter NOOP_COUNTER = new Counter() {
+        @Override
+        public void increment(long amount) {
+        }
+
+        @Override
+        public long count() {
+            return 0L;
+        }
+    };
+
+    private static final Timer NOOP_TIMER = new Timer() {
+        @Override
+        public void record(long duration, TimeUnit unit) {
+        }
+
+        @Override
+        public long count() {
+            return 0L;
+        }
+
+        @Override
+        public long totalTime(TimeUnit unit) {
+            return 0L;
+        }
+
+        @Override
+        public long max(TimeUnit unit) {
+            return 0L;
+        }
+    };
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        return NOOP_COUNTER;
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        return NOOP_TIMER;
+    }
+
+    @Override
+    public void gauge(String name, Gauge gauge, String... tags) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.cloud_idaas.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer recording the count, total time and maximum time of short durations
+ */
+public interface Timer {
+
+    /**
+     * Record a duration
+     *
+     * @param duration Duration to record
+     * @param unit     Time unit of the duration
+     */
+    void record(long duration, TimeUnit unit);
+
+    /**
+     * Get the number of recorded durations
+     *
+     * @return Number of recorded durations
+     */
+    long count();
+
+    /**
+     * Get the sum of all recorded durations
+     *
+     * @param unit Time unit of the result
+     * @return Total time
+     */
+    long totalTime(TimeUnit unit);
+
+    /**
+     * Get the longest recorded duration
+     *
+     * @param unit Time unit of the result
+     * @return Maximum time
+     */
+    long max(TimeUnit unit);
+}
@@ -0,0 +1,85 @@
+package com.cloud_idaas.core.metrics.micrometer;
+
+import com.cloud_idaas.core.metrics.Counter;
+import com.cloud_idaas.core.metrics.Gauge;
+import com.cloud_idaas.core.metrics.MetricsRegistry;
+import com.cloud_idaas.core.metrics.Timer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics registry reporting into a Micrometer {@link MeterRegistry}, only usable when micrometer-core is on the classpath.
+ * Usage: MetricsUtil.setRegistry(new MicrometerMetricsRegistry(meterRegistry))
+ */
+public class MicrometerMetricsRegistry implements MetricsRegistry {
+
+    private final MeterRegistry meterRegistry;
+
+    public MicrometerMetricsRegistry(MeterRegistry meterRegistry) {
+        if (meterRegistry == null) {
+            throw new IllegalArgumentException("meterRegistry cannot be null");
+        }
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        io.micrometer.core.instrument.Counter counter = meterRegistry.counter(name, Tags.of(tags));
+        return new Counter() {
+            @Override
+            public void increment() {
+                counter.increment();
+            }
+
+            @Override
+            public void increment(long amount) {
+                counter.increment(amount);
+            }
+
+            @Override
+            public long count() {
+                return (long) counter.count();
+            }
+        };
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        io.micrometer.core.instrument.Timer timer = meterRegistry.timer(name, Tags.of(tags));
+        return new Timer() {
+            @Override
+            public void record(long duration, TimeUnit unit) {
+                timer.record(duration, unit);
+            }
+
+            @Override
+            public long count() {
+                return timer.count();
+            }
+
+            @Override
+            public long totalTime(TimeUnit unit) {
+                return (long) timer.totalTime(unit);
+            }
+
+            @Override
+            public long max(TimeUnit unit) {
+                return (long) timer.max(unit);
+            }
+        };
+    }
+
+    /**
+     * Micrometer gauges are registered once and never replaced, the first gauge of a name and tags stays in effect.
+     * The gauge is held strongly by the meter registry.
+     */
+    @Override
+    public void gauge(String name, Gauge gauge, String... tags) {
+        io.micrometer.core.instrument.Gauge.builder(name, gauge, Gauge::value)
+                .tags(Tags.of(tags))
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.cloud_idaas.core.provider;
+
+import com.cloud_idaas.core.cache.RefreshResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Credential provider able to refresh its credential without holding a thread while the refresh is in flight
+ *
+ * @param <T> The type of the credential
+ */
+public interface AsyncRefreshCredentialProvider<T> extends RefreshCredentialProvider<T> {
+
+    CompletableFuture<RefreshResult<T>> refreshCredentialAsync();
+}
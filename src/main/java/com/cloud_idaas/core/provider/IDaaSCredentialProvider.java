@@ -1,6 +1,9 @@
 package com.cloud_idaas.core.provider;
 
 import com.cloud_idaas.core.credential.IDaaSCredential;
+import com.cloud_idaas.core.util.AsyncExecutorUtil;
+
+import java.util.concurrent.CompletableFuture;
 
 @FunctionalInterface
 public interface IDaaSCredentialProvider extends OidcTokenProvider {
@@ -18,4 +21,15 @@ public interface IDaaSCredentialProvider extends OidcTokenProvider {
     }
 
     IDaaSCredential getCredential();
+
+    /**
+     * Get credential without blocking the calling thread.
+     * The default implementation runs {@link #getCredential()} on the shared executor of the SDK,
+     * implementations backed by a cache should complete from the cache directly.
+     *
+     * @return Future of the credential
+     */
+    default CompletableFuture<IDaaSCredential> getCredentialAsync() {
+        return CompletableFuture.supplyAsync(this::getCredential, AsyncExecutorUtil.getExecutor());
+    }
 }
@@ -0,0 +1,40 @@
+package com.cloud_idaas.core.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared executor utility class
+ * Blocking work run on behalf of asynchronous callers, such as credential refreshes and HTTP calls,
+ * goes to this executor rather than to the common pool, which must be kept free for non-blocking tasks.
+ */
+public class AsyncExecutorUtil {
+
+    /**
+     * Global executor for all blocking work of the SDK run on behalf of asynchronous callers
+     */
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(1, Integer.MAX_VALUE,
+            60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setName("idaas-java-core-sdk-async-refresh");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /**
+     * Get the shared executor
+     *
+     * @return Shared executor
+     */
+    public static Executor getExecutor() {
+        return EXECUTOR;
+    }
+}
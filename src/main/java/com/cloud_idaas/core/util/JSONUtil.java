@@ -1,8 +1,15 @@
 package com.cloud_idaas.core.util;
 
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import com.cloud_idaas.core.domain.DeviceCodeResponse;
+import com.cloud_idaas.core.domain.ErrResponse;
+import com.cloud_idaas.core.util.json.DeviceCodeResponseTypeAdapter;
+import com.cloud_idaas.core.util.json.ErrResponseTypeAdapter;
+import com.cloud_idaas.core.util.json.IDaaSTokenResponseTypeAdapter;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.Reader;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
@@ -15,6 +22,10 @@ public class JSONUtil {
             .excludeFieldsWithModifiers(Modifier.TRANSIENT, Modifier.STATIC)
             .disableHtmlEscaping()
             .disableJdkUnsafe()
+            // Streaming adapters of the responses parsed on every token refresh, instead of reflective binding
+            .registerTypeAdapter(IDaaSTokenResponse.class, new IDaaSTokenResponseTypeAdapter())
+            .registerTypeAdapter(DeviceCodeResponse.class, new DeviceCodeResponseTypeAdapter())
+            .registerTypeAdapter(ErrResponse.class, new ErrResponseTypeAdapter())
             .create();
 
     public static String toJSONString(Object o) {
@@ -30,6 +41,19 @@ public class JSONUtil {
         return GSON_INSTANCE.fromJson(jsonString, clazz);
     }
 
+    /**
+     * Parse JSON read from a reader, without materializing it as a string first
+     *
+     * @param reader JSON reader, not closed
+     * @param clazz  Target class
+     * @return Parsed object, null if the reader is empty
+     * @throws JsonSyntaxException if the JSON is malformed
+     * @throws JsonIOException     if the reader fails
+     */
+    public static <T> T parseObject(Reader reader, Class<T> clazz) throws JsonSyntaxException, JsonIOException {
+        return GSON_INSTANCE.fromJson(reader, clazz);
+    }
+
     public static <T> T parseObject(String jsonString, Type type) throws JsonSyntaxException {
         return GSON_INSTANCE.fromJson(jsonString, type);
     }
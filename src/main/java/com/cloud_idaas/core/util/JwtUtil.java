@@ -0,0 +1,102 @@
+package com.cloud_idaas.core.util;
+
+import com.cloud_idaas.core.domain.JwtTimeClaims;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * JWT utility class reading claims without verifying the token, for tokens verified by IDaaS or just issued by it
+ */
+public class JwtUtil {
+
+    private static final String EXPIRATION_TIME_CLAIM = "exp";
+
+    private static final String ISSUED_AT_CLAIM = "iat";
+
+    private static final String NOT_BEFORE_CLAIM = "nbf";
+
+    /**
+     * Read the exp, iat and nbf claims of a compact serialized JWT.
+     * Only the payload segment is decoded, and it is streamed so that the other claims are skipped without being parsed.
+     *
+     * @param jwt Compact serialized JWT
+     * @return Time claims of the JWT
+     * @throws IllegalArgumentException if the JWT is malformed
+     */
+    public static JwtTimeClaims peekTimeClaims(String jwt) {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(decodePayload(jwt)),
+                StandardCharsets.UTF_8));
+        try {
+            Long expirationTime = null;
+            Long issuedAt = null;
+            Long notBefore = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (EXPIRATION_TIME_CLAIM.equals(name)) {
+                    expirationTime = readNumericDate(reader);
+                } else if (ISSUED_AT_CLAIM.equals(name)) {
+                    issuedAt = readNumericDate(reader);
+                } else if (NOT_BEFORE_CLAIM.equals(name)) {
+                    notBefore = readNumericDate(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return new JwtTimeClaims(expirationTime, issuedAt, notBefore);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed JWT payload: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the exp claim of a compact serialized JWT
+     *
+     * @param jwt Compact serialized JWT
+     * @return exp claim in seconds since the epoch, null if absent
+     * @throws IllegalArgumentException if the JWT is malformed
+     */
+    public static Long peekExpirationTime(String jwt) {
+        return peekTimeClaims(jwt).getExpirationTime();
+    }
+
+    /**
+     * Base64URL decode the payload, the segment between the first and the second dot
+     */
+    private static byte[] decodePayload(String jwt) {
+        if (jwt == null) {
+            throw new IllegalArgumentException("JWT cannot be null");
+        }
+        int payloadStart = jwt.indexOf('.') + 1;
+        int payloadEnd = jwt.indexOf('.', payloadStart);
+        if (payloadStart == 0 || payloadEnd < 0) {
+            throw new IllegalArgumentException("Not a compact serialized JWT");
+        }
+        byte[] encodedPayload = new byte[payloadEnd - payloadStart];
+        for (int i = 0; i < encodedPayload.length; i++) {
+            char c = jwt.charAt(payloadStart + i);
+            if (c > 0x7f) {
+                throw new IllegalArgumentException("Illegal character in JWT payload");
+            }
+            encodedPayload[i] = (byte) c;
+        }
+        return Base64.getUrlDecoder().decode(encodedPayload);
+    }
+
+    /**
+     * Read a NumericDate, which may have a fractional part, other JSON types are skipped
+     */
+    private static Long readNumericDate(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.NUMBER) {
+            reader.skipValue();
+            return null;
+        }
+        return (long) reader.nextDouble();
+    }
+}
@@ -0,0 +1,55 @@
+package com.cloud_idaas.core.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared scheduler utility class
+ * A single small daemon scheduler thread is shared by the whole SDK, scheduled tasks must be short
+ * and hand any blocking work over to another executor.
+ */
+public class SchedulerUtil {
+
+    /**
+     * Global scheduler for all timed tasks of the SDK
+     */
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setName("idaas-java-core-sdk-scheduler");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    static {
+        // Cancelled tasks are removed at once, so that cancelled refreshes do not pile up in the queue
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedule a one-shot task on the shared scheduler
+     *
+     * @param task  Task to execute, must not block
+     * @param delay Delay before the task is executed
+     * @param unit  Time unit of the delay
+     * @return Scheduled future of the task
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return SCHEDULER.schedule(task, delay, unit);
+    }
+
+    /**
+     * Get the shared scheduler
+     *
+     * @return Shared scheduler
+     */
+    public static ScheduledExecutorService getScheduler() {
+        return SCHEDULER;
+    }
+}
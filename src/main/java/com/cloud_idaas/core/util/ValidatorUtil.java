@@ -77,6 +77,29 @@ public class ValidatorUtil {
             if (httpConfiguration.getReadTimeout() < 2000 || httpConfiguration.getReadTimeout() > 60000){
                 throw new ConfigException(ErrorCode.READ_TIMEOUT_NOT_VALID.getCode(), "Read Timeout not valid.");
             }
+            if (httpConfiguration.getWriteTimeout() < 2000 || httpConfiguration.getWriteTimeout() > 60000){
+                throw new ConfigException(ErrorCode.WRITE_TIMEOUT_NOT_VALID.getCode(), "Write Timeout not valid.");
+            }
+            if (httpConfiguration.getCallTimeout() != 0 && (httpConfiguration.getCallTimeout() < 2000 || httpConfiguration.getCallTimeout() > 180000)){
+                throw new ConfigException(ErrorCode.CALL_TIMEOUT_NOT_VALID.getCode(), "Call Timeout not valid.");
+            }
+            if (httpConfiguration.getMaxIdleConnections() < 0 || httpConfiguration.getKeepAliveDuration() <= 0){
+                throw new ConfigException(ErrorCode.CONNECTION_POOL_NOT_VALID.getCode(), "Connection Pool not valid.");
+            }
+            if (httpConfiguration.getMaxRequests() < 1 || httpConfiguration.getMaxRequestsPerHost() < 1){
+                throw new ConfigException(ErrorCode.MAX_REQUESTS_NOT_VALID.getCode(), "Max Requests not valid.");
+            }
+            if (httpConfiguration.getTlsSessionCacheSize() < 0 || httpConfiguration.getTlsSessionTimeout() < 0){
+                throw new ConfigException(ErrorCode.TLS_SESSION_CACHE_NOT_VALID.getCode(), "TLS Session Cache not valid.");
+            }
+            if (httpConfiguration.getMaxRetries() < 0 || httpConfiguration.getMaxRetries() > 10
+                    || httpConfiguration.getRetryInitialBackoff() < 0 || httpConfiguration.getRetryMaxBackoff() < httpConfiguration.getRetryInitialBackoff()
+                    || httpConfiguration.getRetryBudget() < 0){
+                throw new ConfigException(ErrorCode.RETRY_POLICY_NOT_VALID.getCode(), "Retry Policy not valid.");
+            }
+            if (httpConfiguration.getAttemptTimeout() != 0 && (httpConfiguration.getAttemptTimeout() < 1000 || httpConfiguration.getAttemptTimeout() > 60000)){
+                throw new ConfigException(ErrorCode.CALL_TIMEOUT_NOT_VALID.getCode(), "Attempt Timeout not valid.");
+            }
         }
     }
 
@@ -0,0 +1,97 @@
+package com.cloud_idaas.core.util.json;
+
+import com.cloud_idaas.core.domain.DeviceCodeResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming type adapter of the device authorization response
+ */
+public class DeviceCodeResponseTypeAdapter extends TypeAdapter<DeviceCodeResponse> {
+
+    private static final String DEVICE_CODE = "device_code";
+
+    private static final String USER_CODE = "user_code";
+
+    private static final String VERIFICATION_URI = "verification_uri";
+
+    private static final String VERIFICATION_URI_COMPLETE = "verification_uri_complete";
+
+    private static final String EXPIRES_IN = "expires_in";
+
+    private static final String EXPIRES_AT = "expires_at";
+
+    private static final String INTERVAL = "interval";
+
+    @Override
+    public void write(JsonWriter out, DeviceCodeResponse value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeIfNotNull(out, DEVICE_CODE, value.getDeviceCode());
+        writeIfNotNull(out, USER_CODE, value.getUserCode());
+        writeIfNotNull(out, VERIFICATION_URI, value.getVerificationUri());
+        writeIfNotNull(out, VERIFICATION_URI_COMPLETE, value.getVerificationUriComplete());
+        writeIfNotNull(out, EXPIRES_IN, value.getExpiresIn());
+        writeIfNotNull(out, EXPIRES_AT, value.getExpiresAt());
+        writeIfNotNull(out, INTERVAL, value.getInterval());
+        out.endObject();
+    }
+
+    @Override
+    public DeviceCodeResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        DeviceCodeResponse deviceCodeResponse = new DeviceCodeResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case DEVICE_CODE:
+                    deviceCodeResponse.setDeviceCode(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case USER_CODE:
+                    deviceCodeResponse.setUserCode(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case VERIFICATION_URI:
+                    deviceCodeResponse.setVerificationUri(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case VERIFICATION_URI_COMPLETE:
+                    deviceCodeResponse.setVerificationUriComplete(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case EXPIRES_IN:
+                    deviceCodeResponse.setExpiresIn(JsonReaderUtil.nextLongOrNull(in));
+                    break;
+                case EXPIRES_AT:
+                    deviceCodeResponse.setExpiresAt(JsonReaderUtil.nextLongOrNull(in));
+                    break;
+                case INTERVAL:
+                    deviceCodeResponse.setInterval(JsonReaderUtil.nextLongOrNull(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return deviceCodeResponse;
+    }
+
+    private static void writeIfNotNull(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void writeIfNotNull(JsonWriter out, String name, Long value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.cloud_idaas.core.util.json;
+
+import com.cloud_idaas.core.domain.ErrResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming type adapter of error responses, reading both the OAuth2 error fields and the
+ * Code/Message/RequestId fields of the developer API, the OAuth2 fields take precedence
+ */
+public class ErrResponseTypeAdapter extends TypeAdapter<ErrResponse> {
+
+    private static final String ERROR = "error";
+
+    private static final String ERROR_DESCRIPTION = "error_description";
+
+    private static final String REQUEST_ID = "request_id";
+
+    private static final String CODE = "Code";
+
+    private static final String MESSAGE = "Message";
+
+    private static final String REQUEST_ID_PASCAL_CASE = "RequestId";
+
+    @Override
+    public void write(JsonWriter out, ErrResponse value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (value.getError() != null) {
+            out.name(ERROR).value(value.getError());
+        }
+        if (value.getErrorDescription() != null) {
+            out.name(ERROR_DESCRIPTION).value(value.getErrorDescription());
+        }
+        if (value.getRequestId() != null) {
+            out.name(REQUEST_ID).value(value.getRequestId());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ErrResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String error = null;
+        String errorDescription = null;
+        String requestId = null;
+        String code = null;
+        String message = null;
+        String pascalCaseRequestId = null;
+        boolean hasError = false;
+        boolean hasErrorDescription = false;
+        boolean hasRequestId = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case ERROR:
+                    error = JsonReaderUtil.nextStringOrNull(in);
+                    hasError = true;
+                    break;
+                case ERROR_DESCRIPTION:
+                    errorDescription = JsonReaderUtil.nextStringOrNull(in);
+                    hasErrorDescription = true;
+                    break;
+                case REQUEST_ID:
+                    requestId = JsonReaderUtil.nextStringOrNull(in);
+                    hasRequestId = true;
+                    break;
+                case CODE:
+                    code = JsonReaderUtil.nextStringOrNull(in);
+                    break;
+                case MESSAGE:
+                    message = JsonReaderUtil.nextStringOrNull(in);
+                    break;
+                case REQUEST_ID_PASCAL_CASE:
+                    pascalCaseRequestId = JsonReaderUtil.nextStringOrNull(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ErrResponse(hasError ? error : code,
+                hasErrorDescription ? errorDescription : message,
+                hasRequestId ? requestId : pascalCaseRequestId);
+    }
+}
@@ -0,0 +1,86 @@
+package com.cloud_idaas.core.util.json;
+
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming type adapter of the token response, written with the same fields and order as the reflective binding
+ * so that local caches written by earlier versions stay readable
+ */
+public class IDaaSTokenResponseTypeAdapter extends TypeAdapter<IDaaSTokenResponse> {
+
+    private static final String ACCESS_TOKEN = "access_token";
+
+    private static final String ID_TOKEN = "id_token";
+
+    private static final String REFRESH_TOKEN = "refresh_token";
+
+    private static final String TOKEN_TYPE = "token_type";
+
+    private static final String EXPIRES_IN = "expires_in";
+
+    private static final String EXPIRES_AT = "expires_at";
+
+    @Override
+    public void write(JsonWriter out, IDaaSTokenResponse value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeIfNotNull(out, ACCESS_TOKEN, value.getAccessToken());
+        writeIfNotNull(out, ID_TOKEN, value.getIdToken());
+        writeIfNotNull(out, REFRESH_TOKEN, value.getRefreshToken());
+        writeIfNotNull(out, TOKEN_TYPE, value.getTokenType());
+        out.name(EXPIRES_IN).value(value.getExpiresIn());
+        out.name(EXPIRES_AT).value(value.getExpiresAt());
+        out.endObject();
+    }
+
+    @Override
+    public IDaaSTokenResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        IDaaSTokenResponse tokenResponse = new IDaaSTokenResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case ACCESS_TOKEN:
+                    tokenResponse.setAccessToken(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case ID_TOKEN:
+                    tokenResponse.setIdToken(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case REFRESH_TOKEN:
+                    tokenResponse.setRefreshToken(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case TOKEN_TYPE:
+                    tokenResponse.setTokenType(JsonReaderUtil.nextStringOrNull(in));
+                    break;
+                case EXPIRES_IN:
+                    tokenResponse.setExpiresIn(JsonReaderUtil.nextLongOrZero(in));
+                    break;
+                case EXPIRES_AT:
+                    tokenResponse.setExpiresAt(JsonReaderUtil.nextLongOrZero(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return tokenResponse;
+    }
+
+    private static void writeIfNotNull(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
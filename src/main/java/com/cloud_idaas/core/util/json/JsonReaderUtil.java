@@ -0,0 +1,51 @@
+package com.cloud_idaas.core.util.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Helpers of the streaming type adapters, lenient about the JSON types the way the reflective binding is
+ */
+final class JsonReaderUtil {
+
+    private JsonReaderUtil() {
+    }
+
+    /**
+     * @return String or number value as a string, null for null, objects, arrays and booleans
+     */
+    static String nextStringOrNull(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * @return Long value, parsed from a string if quoted, null for null
+     */
+    static Long nextLongOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        try {
+            return reader.nextLong();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * @return Long value, 0 for null
+     */
+    static long nextLongOrZero(JsonReader reader) throws IOException {
+        Long value = nextLongOrNull(reader);
+        return value == null ? 0L : value;
+    }
+}
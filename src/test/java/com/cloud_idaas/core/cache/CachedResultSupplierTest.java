@@ -0,0 +1,181 @@
+package com.cloud_idaas.core.cache;
+
+import com.cloud_idaas.core.exception.CacheException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachedResultSupplierTest {
+
+    private static final Duration FAILURE_BACKOFF = Duration.ofSeconds(10);
+
+    @Test
+    void concurrentCallersShareOneRefresh() throws Exception {
+        int callers = 8;
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        CachedResultSupplier<String> supplier = new CachedResultSupplier.Builder<>(() -> {
+            calls.incrementAndGet();
+            refreshStarted.countDown();
+            await(releaseRefresh);
+            return result("value", Instant.now().plusSeconds(3600));
+        }).build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(supplier::get));
+            assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(supplier::get));
+            }
+            // Let the other callers park on the in-flight refresh
+            Thread.sleep(200);
+            releaseRefresh.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void opensCircuitAfterFailureAndRetriesAfterBackoff() {
+        MutableClock clock = new MutableClock();
+        AtomicInteger calls = new AtomicInteger();
+        CachedResultSupplier<String> supplier = supplier(clock, StaleValueBehavior.STRICT, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("token endpoint unavailable");
+            }
+            return result("value", clock.instant().plusSeconds(3600));
+        });
+
+        assertThrows(CacheException.class, supplier::get);
+        assertEquals(1, calls.get());
+
+        // Circuit open, the value supplier is not called again
+        clock.advance(Duration.ofMillis(FAILURE_BACKOFF.toMillis() / 2 - 1));
+        assertThrows(CacheException.class, supplier::get);
+        assertEquals(1, calls.get());
+
+        // The backoff is at most the failure backoff and a half
+        clock.advance(FAILURE_BACKOFF);
+        assertEquals("value", supplier.get());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void strictFailsWhileCircuitIsOpen() {
+        MutableClock clock = new MutableClock();
+        AtomicInteger calls = new AtomicInteger();
+        CachedResultSupplier<String> supplier = supplier(clock, StaleValueBehavior.STRICT, failingAfterFirstValue(clock, calls));
+
+        assertEquals("value", supplier.get());
+        clock.advance(Duration.ofSeconds(2));
+
+        assertThrows(CacheException.class, supplier::get);
+        assertThrows(CacheException.class, supplier::get);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void allowServesStaleValueWhileCircuitIsOpen() {
+        MutableClock clock = new MutableClock();
+        AtomicInteger calls = new AtomicInteger();
+        CachedResultSupplier<String> supplier = supplier(clock, StaleValueBehavior.ALLOW, failingAfterFirstValue(clock, calls));
+
+        assertEquals("value", supplier.get());
+        clock.advance(Duration.ofSeconds(2));
+
+        assertEquals("value", supplier.get());
+        assertEquals("value", supplier.get());
+        assertEquals(2, calls.get());
+    }
+
+    private static CachedResultSupplier<String> supplier(Clock clock, StaleValueBehavior staleValueBehavior,
+                                                         Supplier<RefreshResult<String>> valueSupplier) {
+        return new CachedResultSupplier.Builder<>(valueSupplier)
+                .clock(clock)
+                .staleValueBehavior(staleValueBehavior)
+                .failureBackoff(FAILURE_BACKOFF, Duration.ofMinutes(1))
+                .build();
+    }
+
+    /**
+     * Value supplier returning a value stale after one second, then failing
+     */
+    private static Supplier<RefreshResult<String>> failingAfterFirstValue(Clock clock, AtomicInteger calls) {
+        return () -> {
+            if (calls.incrementAndGet() == 1) {
+                return result("value", clock.instant().plusSeconds(1));
+            }
+            throw new IllegalStateException("token endpoint unavailable");
+        };
+    }
+
+    private static RefreshResult<String> result(String value, Instant staleTime) {
+        return RefreshResult.builder(value)
+                .staleTime(staleTime)
+                .jitterEnabled(false)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(System.currentTimeMillis());
+
+        private void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+}
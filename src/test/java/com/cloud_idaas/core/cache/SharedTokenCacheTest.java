@@ -0,0 +1,244 @@
+package com.cloud_idaas.core.cache;
+
+import com.cloud_idaas.core.credential.IDaaSCredential;
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedTokenCacheTest {
+
+    private static final Instant STALE_TIME = Instant.ofEpochMilli(4_000_000_000_000L);
+
+    private static final Instant PREFETCH_TIME = Instant.ofEpochMilli(3_900_000_000_000L);
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    private SharedTokenCache cache;
+
+    @BeforeEach
+    void openCache() throws Exception {
+        file = directory.resolve("token-cache");
+        cache = SharedTokenCache.open(file.toString());
+    }
+
+    @Test
+    void readsPublishedToken() {
+        long keyHash = SharedTokenCache.hashKey("client", "https://idaas.example.com/token", "api");
+        assertTrue(cache.write(keyHash, result("access-token", STALE_TIME, PREFETCH_TIME)));
+
+        RefreshResult<IDaaSCredential> read = cache.read(keyHash);
+        assertNotNull(read);
+        assertEquals("access-token", read.getValue().getAccessToken());
+        assertEquals("Bearer", read.getValue().getTokenType());
+        assertEquals(STALE_TIME, read.getStaleTime());
+        assertEquals(PREFETCH_TIME, read.getPrefetchTime());
+
+        assertTrue(cache.write(keyHash, result("rotated-token", STALE_TIME, PREFETCH_TIME)));
+        assertEquals("rotated-token", cache.read(keyHash).getValue().getAccessToken());
+    }
+
+    @Test
+    void returnsNullForUnknownKey() {
+        assertNull(cache.read(collidingKey(7, 0)));
+        assertTrue(cache.write(collidingKey(7, 0), result("token-0", STALE_TIME, PREFETCH_TIME)));
+        assertNull(cache.read(collidingKey(7, 1)));
+    }
+
+    @Test
+    void keepsCollidingKeysInSeparateSlots() {
+        for (int i = 0; i < SharedTokenCache.PROBE_LENGTH; i++) {
+            assertTrue(cache.write(collidingKey(3, i), result("token-" + i, STALE_TIME, PREFETCH_TIME)));
+        }
+        // Rewriting a key updates its own slot only
+        assertTrue(cache.write(collidingKey(3, 2), result("token-2-rotated", STALE_TIME, PREFETCH_TIME)));
+
+        for (int i = 0; i < SharedTokenCache.PROBE_LENGTH; i++) {
+            String expected = i == 2 ? "token-2-rotated" : "token-" + i;
+            assertEquals(expected, cache.read(collidingKey(3, i)).getValue().getAccessToken());
+        }
+    }
+
+    @Test
+    void evictsEarliestStaleTokenOnceProbedSlotsAreFull() {
+        for (int i = 0; i < SharedTokenCache.PROBE_LENGTH; i++) {
+            Instant staleTime = i == 5 ? STALE_TIME.minusSeconds(60) : STALE_TIME;
+            assertTrue(cache.write(collidingKey(11, i), result("token-" + i, staleTime, null)));
+        }
+        int newKey = SharedTokenCache.PROBE_LENGTH;
+        assertTrue(cache.write(collidingKey(11, newKey), result("token-new", STALE_TIME, null)));
+
+        assertNull(cache.read(collidingKey(11, 5)));
+        assertEquals("token-new", cache.read(collidingKey(11, newKey)).getValue().getAccessToken());
+        for (int i = 0; i < SharedTokenCache.PROBE_LENGTH; i++) {
+            if (i != 5) {
+                assertEquals("token-" + i, cache.read(collidingKey(11, i)).getValue().getAccessToken());
+            }
+        }
+    }
+
+    @Test
+    void probesPastLastSlot() throws Exception {
+        int lastSlot = SharedTokenCache.SLOT_COUNT - 1;
+        assertTrue(cache.write(collidingKey(lastSlot, 0), result("token-0", STALE_TIME, PREFETCH_TIME)));
+        assertTrue(cache.write(collidingKey(lastSlot, 1), result("token-1", STALE_TIME, PREFETCH_TIME)));
+
+        assertEquals("token-0", cache.read(collidingKey(lastSlot, 0)).getValue().getAccessToken());
+        assertEquals("token-1", cache.read(collidingKey(lastSlot, 1)).getValue().getAccessToken());
+        assertTrue(readSequence(0) > 0);
+    }
+
+    @Test
+    void skipsCorruptedRecord() throws Exception {
+        long keyHash = collidingKey(20, 0);
+        assertTrue(cache.write(keyHash, result("access-token", STALE_TIME, PREFETCH_TIME)));
+
+        int payloadOffset = SharedTokenCache.slotOffset(20) + SharedTokenCache.PAYLOAD_OFFSET;
+        byte[] payloadByte = new byte[1];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.read(ByteBuffer.wrap(payloadByte), payloadOffset + 6);
+            payloadByte[0] ^= 0x01;
+            channel.write(ByteBuffer.wrap(payloadByte), payloadOffset + 6);
+        }
+        assertNull(cache.read(keyHash));
+
+        // The next write repairs the slot
+        assertTrue(cache.write(keyHash, result("access-token", STALE_TIME, PREFETCH_TIME)));
+        assertEquals("access-token", cache.read(keyHash).getValue().getAccessToken());
+    }
+
+    @Test
+    void skipsRecordBeingWritten() throws Exception {
+        long keyHash = collidingKey(30, 0);
+        assertTrue(cache.write(keyHash, result("access-token", STALE_TIME, PREFETCH_TIME)));
+        long sequence = readSequence(30);
+        assertEquals(0L, sequence & 1L);
+
+        writeSequence(30, sequence + 1);
+        assertNull(cache.read(keyHash));
+
+        writeSequence(30, sequence + 2);
+        assertEquals("access-token", cache.read(keyHash).getValue().getAccessToken());
+
+        // A record left odd by a crashed writer is overwritten
+        writeSequence(30, sequence + 3);
+        assertTrue(cache.write(keyHash, result("new-token", STALE_TIME, PREFETCH_TIME)));
+        assertEquals(sequence + 4, readSequence(30));
+        assertEquals("new-token", cache.read(keyHash).getValue().getAccessToken());
+    }
+
+    @Test
+    void rejectsTokenLargerThanSlot() {
+        char[] accessToken = new char[SharedTokenCache.MAX_PAYLOAD_LENGTH];
+        Arrays.fill(accessToken, 'a');
+        long keyHash = collidingKey(40, 0);
+
+        assertFalse(cache.write(keyHash, result(new String(accessToken), STALE_TIME, PREFETCH_TIME)));
+        assertNull(cache.read(keyHash));
+    }
+
+    @Test
+    void encodesAndDecodesToken() {
+        IDaaSTokenResponse token = new IDaaSTokenResponse();
+        token.setAccessToken("access-token-é");
+        token.setIdToken("id-token");
+        token.setExpiresAt(4_000_000_000L);
+        token.setRefreshToken("refresh-token");
+        RefreshResult<IDaaSCredential> result = RefreshResult.builder((IDaaSCredential) token)
+                .staleTime(STALE_TIME)
+                .build();
+
+        byte[] payload = SharedTokenCache.encodePayload(token);
+        byte[] header = SharedTokenCache.encodeHeader(42L, result, payload);
+        RefreshResult<IDaaSCredential> decoded = SharedTokenCache.decode(ByteBuffer.wrap(header), payload);
+
+        IDaaSTokenResponse decodedToken = (IDaaSTokenResponse) decoded.getValue();
+        assertEquals("access-token-é", decodedToken.getAccessToken());
+        assertNull(decodedToken.getTokenType());
+        assertEquals("id-token", decodedToken.getIdToken());
+        assertNull(decodedToken.getRefreshToken());
+        assertEquals(4_000_000_000L, decodedToken.getExpiresAt());
+        assertTrue(decodedToken.getExpiresIn() > 0);
+        assertEquals(STALE_TIME, decoded.getStaleTime());
+        assertNull(decoded.getPrefetchTime());
+        assertArrayEquals(payload, SharedTokenCache.encodePayload(decodedToken));
+    }
+
+    @Test
+    void locksKeysIndependently() throws Exception {
+        long keyHash = collidingKey(50, 0);
+        long collidingKeyHash = collidingKey(50, 1);
+        try (SharedTokenCache.KeyLock lock = cache.tryLock(keyHash)) {
+            assertNotNull(lock);
+            assertNull(CompletableFuture.supplyAsync(() -> tryLockAndRelease(keyHash)).get());
+            assertEquals(Boolean.TRUE, CompletableFuture.supplyAsync(() -> tryLockAndRelease(collidingKeyHash)).get());
+        }
+        assertEquals(Boolean.TRUE, CompletableFuture.supplyAsync(() -> tryLockAndRelease(keyHash)).get());
+    }
+
+    private Boolean tryLockAndRelease(long keyHash) {
+        try {
+            SharedTokenCache.KeyLock lock = cache.tryLock(keyHash);
+            if (lock == null) {
+                return null;
+            }
+            lock.close();
+            return Boolean.TRUE;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Key hashes with the same home slot
+     */
+    private static long collidingKey(int homeSlot, int index) {
+        long keyHash = ((long) index * SharedTokenCache.SLOT_COUNT + homeSlot) << 1;
+        assertEquals(homeSlot, SharedTokenCache.slotIndex(keyHash));
+        return keyHash;
+    }
+
+    private static RefreshResult<IDaaSCredential> result(String accessToken, Instant staleTime, Instant prefetchTime) {
+        IDaaSTokenResponse token = new IDaaSTokenResponse();
+        token.setAccessToken(accessToken);
+        token.setTokenType("Bearer");
+        return RefreshResult.builder((IDaaSCredential) token)
+                .staleTime(staleTime)
+                .prefetchTime(prefetchTime)
+                .build();
+    }
+
+    private long readSequence(int slot) throws Exception {
+        ByteBuffer sequence = ByteBuffer.allocate(8);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(sequence, SharedTokenCache.slotOffset(slot) + SharedTokenCache.SEQUENCE_OFFSET);
+        }
+        return sequence.getLong(0);
+    }
+
+    private void writeSequence(int slot, long value) throws Exception {
+        ByteBuffer sequence = ByteBuffer.allocate(8);
+        sequence.putLong(0, value);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(sequence, SharedTokenCache.slotOffset(slot) + SharedTokenCache.SEQUENCE_OFFSET);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cloud_idaas.core.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultOKHttpClientImpTest {
+
+    @Test
+    void retriesIdempotentRequestAfterAnyFailure() {
+        assertTrue(DefaultOKHttpClientImp.isRetryable(new IOException("unexpected end of stream"), true, true));
+        assertTrue(DefaultOKHttpClientImp.isRetryable(new SocketTimeoutException("Read timed out"), true, true));
+    }
+
+    @Test
+    void neverResendsSentNonIdempotentRequest() {
+        assertFalse(DefaultOKHttpClientImp.isRetryable(new ConnectException("Connection refused"), true, false));
+        assertFalse(DefaultOKHttpClientImp.isRetryable(new SocketTimeoutException("Read timed out"), true, false));
+        assertFalse(DefaultOKHttpClientImp.isRetryable(new IOException("unexpected end of stream"), true, false));
+    }
+
+    @Test
+    void retriesUnsentNonIdempotentRequestOnlyAfterConnectFailure() {
+        assertTrue(DefaultOKHttpClientImp.isRetryable(new ConnectException("Connection refused"), false, false));
+        assertTrue(DefaultOKHttpClientImp.isRetryable(new UnknownHostException("idaas.example.com"), false, false));
+        assertTrue(DefaultOKHttpClientImp.isRetryable(new SocketTimeoutException("connect timed out"), false, false));
+        assertTrue(DefaultOKHttpClientImp.isRetryable(new IOException(new ConnectException("Connection refused")), false, false));
+
+        assertFalse(DefaultOKHttpClientImp.isRetryable(new IOException("Canceled"), false, false));
+        assertFalse(DefaultOKHttpClientImp.isRetryable(new InterruptedIOException("interrupted"), false, false));
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloud_idaas.core.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    @Test
+    void retriesUpToMaxRetries() {
+        RetryPolicy retryPolicy = RetryPolicy.builder().maxRetries(2).retryBudget(10).build();
+
+        assertTrue(retryPolicy.tryAcquireRetry(0));
+        assertTrue(retryPolicy.tryAcquireRetry(1));
+        assertFalse(retryPolicy.tryAcquireRetry(2));
+        assertFalse(RetryPolicy.none().tryAcquireRetry(0));
+    }
+
+    @Test
+    void retriesArePaidFromBudget() {
+        RetryPolicy retryPolicy = RetryPolicy.builder().maxRetries(5).retryBudget(2).build();
+
+        assertTrue(retryPolicy.tryAcquireRetry(0));
+        assertTrue(retryPolicy.tryAcquireRetry(0));
+        assertFalse(retryPolicy.tryAcquireRetry(0));
+
+        // Ten successful requests refill one retry
+        for (int i = 0; i < 9; i++) {
+            retryPolicy.onSuccess();
+        }
+        assertFalse(retryPolicy.tryAcquireRetry(0));
+        retryPolicy.onSuccess();
+        assertTrue(retryPolicy.tryAcquireRetry(0));
+        assertFalse(retryPolicy.tryAcquireRetry(0));
+    }
+
+    @Test
+    void budgetIsNotRefilledBeyondCapacity() {
+        RetryPolicy retryPolicy = RetryPolicy.builder().maxRetries(5).retryBudget(1).build();
+        for (int i = 0; i < 100; i++) {
+            retryPolicy.onSuccess();
+        }
+
+        assertTrue(retryPolicy.tryAcquireRetry(0));
+        assertFalse(retryPolicy.tryAcquireRetry(0));
+    }
+
+    @Test
+    void capsExponentialBackoff() {
+        RetryPolicy retryPolicy = RetryPolicy.builder().initialBackoff(100L).maxBackoff(2000L).build();
+
+        for (int i = 0; i < 1000; i++) {
+            assertBetween(0L, 100L, retryPolicy.computeBackoff(0));
+            assertBetween(0L, 400L, retryPolicy.computeBackoff(2));
+            assertBetween(0L, 2000L, retryPolicy.computeBackoff(10));
+            assertBetween(0L, 2000L, retryPolicy.computeBackoff(Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void capsOverflowingBackoff() {
+        // Shifted to zero and to a negative value
+        RetryPolicy retryPolicy = RetryPolicy.builder().initialBackoff(1L << 40).maxBackoff(2000L).build();
+
+        for (int i = 0; i < 1000; i++) {
+            assertBetween(0L, 2000L, retryPolicy.computeBackoff(30));
+            assertBetween(0L, 2000L, retryPolicy.computeBackoff(23));
+        }
+    }
+
+    @Test
+    void noBackoffWhenMaxBackoffIsZero() {
+        RetryPolicy retryPolicy = RetryPolicy.builder().initialBackoff(100L).maxBackoff(0L).build();
+
+        assertEquals(0L, retryPolicy.computeBackoff(0));
+        assertEquals(0L, retryPolicy.computeBackoff(5));
+    }
+
+    @Test
+    void retriesTransientStatusOfIdempotentRequests() {
+        RetryPolicy retryPolicy = RetryPolicy.builder().build();
+
+        for (int statusCode : new int[]{408, 429, 500, 502, 503, 504}) {
+            assertTrue(retryPolicy.isRetryableStatus(statusCode, true), "status " + statusCode);
+            assertFalse(retryPolicy.isRetryableStatus(statusCode, false), "status " + statusCode);
+        }
+        for (int statusCode : new int[]{400, 401, 403, 404, 501}) {
+            assertFalse(retryPolicy.isRetryableStatus(statusCode, true), "status " + statusCode);
+        }
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual >= min && actual <= max, actual + " not between " + min + " and " + max);
+    }
+}
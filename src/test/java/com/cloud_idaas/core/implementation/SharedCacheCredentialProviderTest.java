@@ -0,0 +1,84 @@
+package com.cloud_idaas.core.implementation;
+
+import com.cloud_idaas.core.cache.RefreshResult;
+import com.cloud_idaas.core.cache.SharedTokenCache;
+import com.cloud_idaas.core.credential.IDaaSCredential;
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedCacheCredentialProviderTest {
+
+    private static final String CLIENT_ID = "client";
+
+    private static final String TOKEN_ENDPOINT = "https://idaas.example.com/token";
+
+    private static final String SCOPE = "api";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTokenPublishedByLockHolder() throws Exception {
+        String cacheFilePath = directory.resolve("token-cache").toString();
+        long keyHash = SharedTokenCache.hashKey(CLIENT_ID, TOKEN_ENDPOINT, SCOPE);
+        // Opened separately, its file lock is held as if by another process
+        SharedTokenCache otherProcess = SharedTokenCache.open(cacheFilePath);
+        Instant now = Instant.now();
+        assertTrue(otherProcess.write(keyHash, result("old-token", now.plusSeconds(3600), now.minusSeconds(1))));
+        SharedTokenCache.KeyLock otherProcessLock = otherProcess.tryLock(keyHash);
+        assertNotNull(otherProcessLock);
+
+        AtomicInteger delegateCalls = new AtomicInteger();
+        SharedCacheCredentialProvider provider = SharedCacheCredentialProvider.builder()
+                .delegate(() -> {
+                    delegateCalls.incrementAndGet();
+                    return result("delegate-token", Instant.now().plusSeconds(3600), null);
+                })
+                .clientId(CLIENT_ID)
+                .tokenEndpoint(TOKEN_ENDPOINT)
+                .scope(SCOPE)
+                .cacheFilePath(cacheFilePath)
+                .build();
+        try {
+            long start = System.currentTimeMillis();
+            assertEquals("old-token", provider.getCredential().getAccessToken());
+
+            Instant refreshed = Instant.now();
+            assertTrue(otherProcess.write(keyHash, result("new-token", refreshed.plusSeconds(3600), refreshed.plusSeconds(1800))));
+            otherProcessLock.close();
+            assertEquals("old-token", provider.getCredential().getAccessToken());
+
+            String accessToken = provider.getCredential().getAccessToken();
+            while (!"new-token".equals(accessToken) && System.currentTimeMillis() - start < 10_000) {
+                Thread.sleep(50);
+                accessToken = provider.getCredential().getAccessToken();
+            }
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertEquals("new-token", accessToken);
+            assertTrue(elapsed >= 900 && elapsed < 5000, "elapsed " + elapsed);
+            assertEquals(0, delegateCalls.get());
+        } finally {
+            provider.close();
+        }
+    }
+
+    private static RefreshResult<IDaaSCredential> result(String accessToken, Instant staleTime, Instant prefetchTime) {
+        IDaaSTokenResponse token = new IDaaSTokenResponse();
+        token.setAccessToken(accessToken);
+        token.setTokenType("Bearer");
+        return RefreshResult.builder((IDaaSCredential) token)
+                .staleTime(staleTime)
+                .prefetchTime(prefetchTime)
+                .build();
+    }
+}
@@ -0,0 +1,198 @@
+package com.cloud_idaas.core.implementation.authentication.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactJwsSignerTest {
+
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    @Test
+    void es256SignaturesVerifyAfterConversionBackToDer() throws Exception {
+        assertEcdsaSignaturesVerify("secp256r1", JwsAlgorithm.ES256, "SHA256withECDSA", 32);
+    }
+
+    @Test
+    void es384SignaturesVerifyAfterConversionBackToDer() throws Exception {
+        assertEcdsaSignaturesVerify("secp384r1", JwsAlgorithm.ES384, "SHA384withECDSA", 48);
+    }
+
+    @Test
+    void ps256SignatureVerifies() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        CompactJwsSigner signer = CompactJwsSigner.builder().algorithm(JwsAlgorithm.PS256).key(keyPair.getPrivate()).build();
+
+        String[] jws = signer.sign("{\"sub\":\"client\"}").split("\\.");
+        assertEquals("{\"alg\":\"PS256\"}", new String(BASE64_URL_DECODER.decode(jws[0]), StandardCharsets.UTF_8));
+
+        Signature verifier = Signature.getInstance("RSASSA-PSS");
+        verifier.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update((jws[0] + "." + jws[1]).getBytes(StandardCharsets.US_ASCII));
+        assertTrue(verifier.verify(BASE64_URL_DECODER.decode(jws[2])));
+    }
+
+    @Test
+    void stripsSignByteOfHighBitIntegers() throws Exception {
+        byte[] r = filled(32, (byte) 0x81);
+        byte[] s = filled(32, (byte) 0xF0);
+        byte[] der = sequence(integer(r), integer(s));
+        // Both integers take a leading zero byte to stay positive
+        assertEquals(2 + 2 * (2 + 33), der.length);
+
+        assertArrayEquals(concat(r, s), CompactJwsSigner.derToConcatenated(der, 32));
+    }
+
+    @Test
+    void padsIntegersShorterThanTheCoordinate() throws Exception {
+        byte[] r = new byte[32];
+        r[2] = 0x7F;
+        r[31] = 0x01;
+        byte[] s = new byte[32];
+        s[31] = 0x05;
+        byte[] der = sequence(integer(r), integer(s));
+        // R is encoded on 30 bytes and S on a single byte
+        assertEquals(2 + (2 + 30) + (2 + 1), der.length);
+
+        assertArrayEquals(concat(r, s), CompactJwsSigner.derToConcatenated(der, 32));
+    }
+
+    @Test
+    void readsLongFormSequenceLength() throws Exception {
+        // 66 byte coordinates with the high bit set take 2 * (2 + 67) = 138 content bytes, above the short form limit
+        byte[] r = filled(66, (byte) 0xC1);
+        byte[] s = filled(66, (byte) 0x91);
+        byte[] der = sequence(integer(r), integer(s));
+        assertEquals((byte) 0x81, der[1]);
+
+        assertArrayEquals(concat(r, s), CompactJwsSigner.derToConcatenated(der, 66));
+    }
+
+    @Test
+    void readsLongFormSequenceLengthOfShortSignature() throws Exception {
+        byte[] r = filled(32, (byte) 0x11);
+        byte[] s = filled(32, (byte) 0x22);
+        byte[] shortForm = sequence(integer(r), integer(s));
+        byte[] longForm = new byte[shortForm.length + 1];
+        longForm[0] = 0x30;
+        longForm[1] = (byte) 0x81;
+        System.arraycopy(shortForm, 1, longForm, 2, shortForm.length - 1);
+
+        assertArrayEquals(concat(r, s), CompactJwsSigner.derToConcatenated(longForm, 32));
+    }
+
+    @Test
+    void rejectsMalformedSignatures() {
+        byte[] valid = sequence(integer(filled(32, (byte) 0x11)), integer(filled(32, (byte) 0x22)));
+
+        byte[] notSequence = valid.clone();
+        notSequence[0] = 0x31;
+        assertThrows(GeneralSecurityException.class, () -> CompactJwsSigner.derToConcatenated(notSequence, 32));
+
+        byte[] notInteger = valid.clone();
+        notInteger[2] = 0x04;
+        assertThrows(GeneralSecurityException.class, () -> CompactJwsSigner.derToConcatenated(notInteger, 32));
+
+        byte[] truncated = Arrays.copyOf(valid, valid.length - 5);
+        assertThrows(GeneralSecurityException.class, () -> CompactJwsSigner.derToConcatenated(truncated, 32));
+
+        byte[] tooLong = sequence(integer(filled(33, (byte) 0x11)), integer(filled(32, (byte) 0x22)));
+        assertThrows(GeneralSecurityException.class, () -> CompactJwsSigner.derToConcatenated(tooLong, 32));
+
+        assertThrows(GeneralSecurityException.class, () -> CompactJwsSigner.derToConcatenated(new byte[]{0x30, 0x00}, 32));
+    }
+
+    /**
+     * Sign until both a signature with a leading zero R or S byte and one with a high bit R or S byte have been verified,
+     * so that the shortened and the sign byte encodings are both exercised with real signatures
+     */
+    private static void assertEcdsaSignaturesVerify(String curve, JwsAlgorithm algorithm, String jcaName, int coordinateLength)
+            throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curve));
+        KeyPair keyPair = generator.generateKeyPair();
+        CompactJwsSigner signer = CompactJwsSigner.builder().key(keyPair.getPrivate()).build();
+        assertEquals(algorithm, signer.getAlgorithm());
+
+        Signature verifier = Signature.getInstance(jcaName);
+        verifier.initVerify(keyPair.getPublic());
+        boolean leadingZeroSeen = false;
+        boolean highBitSeen = false;
+        for (int i = 0; i < 5000 && !(leadingZeroSeen && highBitSeen); i++) {
+            String[] jws = signer.sign("{\"jti\":\"" + i + "\"}").split("\\.");
+            byte[] concatenated = BASE64_URL_DECODER.decode(jws[2]);
+            assertEquals(2 * coordinateLength, concatenated.length);
+            byte[] r = Arrays.copyOfRange(concatenated, 0, coordinateLength);
+            byte[] s = Arrays.copyOfRange(concatenated, coordinateLength, 2 * coordinateLength);
+            leadingZeroSeen |= r[0] == 0 || s[0] == 0;
+            highBitSeen |= r[0] < 0 || s[0] < 0;
+
+            verifier.update((jws[0] + "." + jws[1]).getBytes(StandardCharsets.US_ASCII));
+            assertTrue(verifier.verify(sequence(integer(r), integer(s))), "signature " + i + " does not verify");
+        }
+        assertTrue(leadingZeroSeen, "no signature with a leading zero coordinate byte");
+        assertTrue(highBitSeen, "no signature with a high bit coordinate byte");
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    /**
+     * Minimal DER INTEGER of the unsigned big endian value
+     */
+    private static byte[] integer(byte[] unsigned) {
+        int start = 0;
+        while (start < unsigned.length - 1 && unsigned[start] == 0) {
+            start++;
+        }
+        boolean signByte = unsigned[start] < 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x02);
+        out.write(unsigned.length - start + (signByte ? 1 : 0));
+        if (signByte) {
+            out.write(0);
+        }
+        out.write(unsigned, start, unsigned.length - start);
+        return out.toByteArray();
+    }
+
+    private static byte[] sequence(byte[] first, byte[] second) {
+        int length = first.length + second.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x30);
+        if (length > 127) {
+            out.write(0x81);
+        }
+        out.write(length);
+        out.write(first, 0, first.length);
+        out.write(second, 0, second.length);
+        return out.toByteArray();
+    }
+}
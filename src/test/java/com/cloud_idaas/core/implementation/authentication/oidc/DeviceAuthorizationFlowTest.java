@@ -0,0 +1,157 @@
+package com.cloud_idaas.core.implementation.authentication.oidc;
+
+import com.cloud_idaas.core.credential.IDaaSTokenResponse;
+import com.cloud_idaas.core.domain.DeviceCodeResponse;
+import com.cloud_idaas.core.domain.constants.ErrorCode;
+import com.cloud_idaas.core.domain.constants.OAuth2Constants;
+import com.cloud_idaas.core.exception.ClientException;
+import com.cloud_idaas.core.exception.CredentialException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceAuthorizationFlowTest {
+
+    @Test
+    void pollsUntilTokenIsIssued() throws Exception {
+        IDaaSTokenResponse token = new IDaaSTokenResponse();
+        token.setAccessToken("access-token");
+        StubClient client = new StubClient(deviceCode("device-code", 1L, 60L));
+        client.pollResults.add(() -> CompletableFuture.completedFuture(null));
+        client.pollResults.add(() -> failed(new ClientException(OAuth2Constants.SLOW_DOWN_ERROR, "slow down")));
+        client.pollResults.add(() -> CompletableFuture.completedFuture(token));
+        List<DeviceCodeResponse> shown = Collections.synchronizedList(new ArrayList<>());
+
+        DeviceAuthorizationFlow flow = DeviceAuthorizationFlow.start("client", "openid", "https://idaas.example.com/device",
+                "https://idaas.example.com/token", shown::add, client);
+
+        assertSame(token, flow.getResult().get(30, TimeUnit.SECONDS));
+        assertEquals(1, client.deviceCodeRequests.get());
+        assertEquals(1, shown.size());
+        assertEquals(3, client.pollTimes.size());
+        assertEquals(Collections.nCopies(3, "device-code"), client.polledDeviceCodes);
+        // Interval of the device code response, then increased by 5 seconds by slow_down
+        long firstInterval = client.pollTimes.get(1) - client.pollTimes.get(0);
+        long slowedInterval = client.pollTimes.get(2) - client.pollTimes.get(1);
+        assertTrue(firstInterval >= 900 && firstInterval < 5000, "first interval " + firstInterval);
+        assertTrue(slowedInterval >= 5900, "slowed interval " + slowedInterval);
+    }
+
+    @Test
+    void expiresWithDeviceCode() {
+        StubClient client = new StubClient(deviceCode("device-code", 1L, 1L));
+        client.defaultPollResult = () -> CompletableFuture.completedFuture(null);
+
+        long start = System.currentTimeMillis();
+        DeviceAuthorizationFlow flow = DeviceAuthorizationFlow.start("client", "openid", "https://idaas.example.com/device",
+                "https://idaas.example.com/token", deviceCodeResponse -> { }, client);
+
+        ExecutionException e = assertThrows(ExecutionException.class, flow::get);
+        assertEquals(ErrorCode.DEVICE_CODE_EXPIRED.getCode(), ((CredentialException) e.getCause()).getErrorCode());
+        // Expires in of the response, not the default of 180 seconds
+        assertTrue(System.currentTimeMillis() - start < 10_000);
+    }
+
+    @Test
+    void failsWithoutDeviceCode() {
+        StubClient client = new StubClient(deviceCode(null, null, null));
+
+        DeviceAuthorizationFlow flow = DeviceAuthorizationFlow.start("client", "openid", "https://idaas.example.com/device",
+                "https://idaas.example.com/token", deviceCodeResponse -> { }, client);
+
+        ExecutionException e = assertThrows(ExecutionException.class, flow::get);
+        assertEquals(ErrorCode.DEVICE_CODE_NOT_FOUND.getCode(), ((CredentialException) e.getCause()).getErrorCode());
+        assertEquals(0, client.pollTimes.size());
+    }
+
+    @Test
+    void failsWhenPollThrows() {
+        StubClient client = new StubClient(deviceCode("device-code", 1L, 60L));
+        client.pollResults.add(() -> {
+            throw new IllegalStateException("poll failed");
+        });
+
+        DeviceAuthorizationFlow flow = DeviceAuthorizationFlow.start("client", "openid", "https://idaas.example.com/device",
+                "https://idaas.example.com/token", deviceCodeResponse -> { }, client);
+
+        ExecutionException e = assertThrows(ExecutionException.class, flow::get);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void stopsPollingWhenCancelled() throws Exception {
+        StubClient client = new StubClient(deviceCode("device-code", 1L, 60L));
+        client.defaultPollResult = () -> CompletableFuture.completedFuture(null);
+
+        DeviceAuthorizationFlow flow = DeviceAuthorizationFlow.start("client", "openid", "https://idaas.example.com/device",
+                "https://idaas.example.com/token", deviceCodeResponse -> { }, client);
+        Thread.sleep(1500);
+        flow.getResult().cancel(false);
+        int polls = client.pollTimes.size();
+        Thread.sleep(1500);
+
+        assertTrue(polls >= 1);
+        assertEquals(polls, client.pollTimes.size());
+    }
+
+    private static DeviceCodeResponse deviceCode(String deviceCode, Long interval, Long expiresIn) {
+        DeviceCodeResponse response = new DeviceCodeResponse();
+        response.setDeviceCode(deviceCode);
+        response.setVerificationUriComplete("https://idaas.example.com/device?user_code=ABCD");
+        response.setInterval(interval);
+        response.setExpiresIn(expiresIn);
+        return response;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable failure) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    private static final class StubClient implements DeviceAuthorizationFlow.DeviceAuthorizationClient {
+
+        private final DeviceCodeResponse deviceCodeResponse;
+
+        private final ConcurrentLinkedQueue<Supplier<CompletableFuture<IDaaSTokenResponse>>> pollResults = new ConcurrentLinkedQueue<>();
+
+        private volatile Supplier<CompletableFuture<IDaaSTokenResponse>> defaultPollResult = CompletableFuture::new;
+
+        private final List<Long> pollTimes = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<String> polledDeviceCodes = Collections.synchronizedList(new ArrayList<>());
+
+        private final AtomicInteger deviceCodeRequests = new AtomicInteger();
+
+        private StubClient(DeviceCodeResponse deviceCodeResponse) {
+            this.deviceCodeResponse = deviceCodeResponse;
+        }
+
+        @Override
+        public CompletableFuture<DeviceCodeResponse> getDeviceCodeAsync(String clientId, String scope, String deviceAuthorizationEndpoint) {
+            deviceCodeRequests.incrementAndGet();
+            return CompletableFuture.completedFuture(deviceCodeResponse);
+        }
+
+        @Override
+        public CompletableFuture<IDaaSTokenResponse> pollTokenByDeviceCodeAsync(String clientId, String deviceCode, String tokenEndpoint) {
+            pollTimes.add(System.currentTimeMillis());
+            polledDeviceCodes.add(deviceCode);
+            Supplier<CompletableFuture<IDaaSTokenResponse>> next = pollResults.poll();
+            return (next == null ? defaultPollResult : next).get();
+        }
+    }
+}
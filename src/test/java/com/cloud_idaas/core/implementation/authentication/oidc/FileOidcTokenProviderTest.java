@@ -0,0 +1,54 @@
+package com.cloud_idaas.core.implementation.authentication.oidc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOidcTokenProviderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadsReplacedTokenFileInWatchMode() throws Exception {
+        Path tokenFile = directory.resolve("token");
+        String firstToken = token("first");
+        String rotatedToken = token("rotated");
+        Files.write(tokenFile, firstToken.getBytes(StandardCharsets.UTF_8));
+
+        FileOidcTokenProvider provider = new FileOidcTokenProvider(tokenFile.toString(), true, Duration.ofMillis(50));
+        try {
+            assertEquals(firstToken, provider.getOidcToken());
+
+            // Replaced like the kubelet does, by moving a new file over the old one
+            Path newFile = directory.resolve("token.new");
+            Files.write(newFile, rotatedToken.getBytes(StandardCharsets.UTF_8));
+            Files.move(newFile, tokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!rotatedToken.equals(provider.getOidcToken()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(rotatedToken, provider.getOidcToken());
+        } finally {
+            provider.close();
+        }
+    }
+
+    private static String token(String subject) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        long expiresTime = System.currentTimeMillis() / 1000 + 3600;
+        String header = encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"" + subject + "\",\"exp\":" + expiresTime + "}")
+                .getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".signature";
+    }
+}